@@ -0,0 +1,25 @@
+package btp.bookingtradeplatform.Config;
+
+import btp.bookingtradeplatform.Service.BookDetailCache;
+import btp.bookingtradeplatform.Service.Search.BookChangeBroadcaster;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class CacheConfig {
+
+    // Lắng nghe kênh invalidation và kênh thay đổi sách để đồng bộ cache/index local giữa các instance
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory,
+                                                                       BookDetailCache bookDetailCache,
+                                                                       BookChangeBroadcaster bookChangeBroadcaster) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(bookDetailCache, new ChannelTopic(BookDetailCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(bookChangeBroadcaster, new ChannelTopic(BookChangeBroadcaster.CHANNEL));
+        return container;
+    }
+}
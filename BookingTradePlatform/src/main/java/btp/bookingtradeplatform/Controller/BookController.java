@@ -1,18 +1,29 @@
 package btp.bookingtradeplatform.Controller;
 
 import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Model.DTO.BestSellerDTO;
 import btp.bookingtradeplatform.Model.DTO.BookDTO;
+import btp.bookingtradeplatform.Model.DTO.BookImportReportDTO;
+import btp.bookingtradeplatform.Model.DTO.FacetedBooksDTO;
+import btp.bookingtradeplatform.Model.DTO.SuggestionDTO;
 import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Request.BrowseBooksRequest;
 import btp.bookingtradeplatform.Model.Request.CreateBookRequest;
 import btp.bookingtradeplatform.Model.Response.ResponseData;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdateBookForm;
+import btp.bookingtradeplatform.Service.BestSellerService;
+import btp.bookingtradeplatform.Service.BookExportService;
 import btp.bookingtradeplatform.Service.BookImageService;
 import btp.bookingtradeplatform.Service.BookService;
+import btp.bookingtradeplatform.Service.Import.BookImportService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.List;
@@ -27,14 +38,46 @@ public class BookController {
     @Autowired
     private BookImageService bookImageService;
 
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Autowired
+    private BestSellerService bestSellerService;
+
     @GetMapping("/all")
-    public ResponseEntity<ResponseData<List<BookDTO>>> getAllBooks() {
-        return bookService.getAllBooks();
+    public ResponseEntity<ResponseData<List<BookDTO>>> getAllBooks(@RequestHeader HttpHeaders headers) {
+        return bookService.getAllBooks(headers);
+    }
+
+    // Phân trang theo cursor: ?size=20 rồi gửi lại data.nextCursor qua ?cursor=
+    @GetMapping("/page")
+    public ResponseEntity<StreamingResponseBody> getBookPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return bookService.streamBookPage(cursor, size);
+    }
+
+    // Dump toàn bộ catalog: ?format=ndjson (mặc định) hoặc ?format=csv
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(
+            @RequestParam(value = "format", required = false) String format) {
+        return bookExportService.exportBooks(format);
     }
 
     @GetMapping("/get/{id}")
-    public ResponseEntity<ResponseData<BookDTO>> getBookById(@PathVariable Long id) {
-        return bookService.getBookById(id);
+    public ResponseEntity<ResponseData<BookDTO>> getBookById(@PathVariable Long id, @RequestHeader HttpHeaders headers) {
+        return bookService.getBookById(id, headers);
+    }
+
+    // Nhập hàng loạt: body là CSV (có header) hoặc NDJSON, đọc dần theo luồng
+    @PostMapping(value = "/import", consumes = {BookImportService.CSV, BookImportService.NDJSON})
+    public ResponseEntity<ResponseData<BookImportReportDTO>> importBooks(
+            @RequestParam("sellerId") Long sellerId,
+            HttpServletRequest request) throws IOException {
+        return bookImportService.importBooks(sellerId, request.getContentType(), request.getInputStream());
     }
 
     @PostMapping("/create")
@@ -72,13 +115,41 @@ public class BookController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<ResponseData<List<BookDTO>>> searchBooks(@RequestParam("q") String keyword) {
-        return bookService.searchBooks(keyword);
+    public ResponseEntity<ResponseData<List<BookDTO>>> searchBooks(
+            @RequestParam("q") String keyword,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return bookService.searchBooks(keyword, page, size);
+    }
+
+    // Lọc nhiều facet kèm số đếm, ví dụ ?categoryIds=1&categoryIds=2&formats=PAPERBACK&priceRanges=50000-100000
+    @GetMapping("/browse")
+    public ResponseEntity<ResponseData<FacetedBooksDTO>> browseBooks(@ModelAttribute BrowseBooksRequest request) {
+        return bookService.browseBooks(request);
+    }
+
+    // Gợi ý khi đang gõ, dùng thay cho /search ở mỗi phím bấm
+    @GetMapping("/suggest")
+    public ResponseEntity<ResponseData<List<SuggestionDTO>>> suggest(
+            @RequestParam("q") String prefix,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return bookService.suggest(prefix, limit);
+    }
+
+    // Bán chạy: ?scope=global|category|seller&id=...&window=all|7d&limit=10
+    @GetMapping("/best-sellers")
+    public ResponseEntity<ResponseData<List<BestSellerDTO>>> getBestSellers(
+            @RequestParam(value = "scope", required = false) String scope,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "window", required = false) String window,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return bestSellerService.getBestSellers(scope, id, window, limit);
     }
 
     @GetMapping("/seller/{sellerId}")
-    public ResponseEntity<ResponseData<List<BookDTO>>> getBooksBySeller(@PathVariable Long sellerId) {
-        return bookService.getBooksbySeller(sellerId);
+    public ResponseEntity<ResponseData<List<BookDTO>>> getBooksBySeller(@PathVariable Long sellerId,
+                                                                       @RequestHeader HttpHeaders headers) {
+        return bookService.getBooksbySeller(sellerId, headers);
     }
 
 }
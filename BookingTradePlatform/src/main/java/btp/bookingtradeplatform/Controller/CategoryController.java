@@ -6,6 +6,7 @@ import btp.bookingtradeplatform.Model.Response.ResponseData;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdateCategoryForm;
 import btp.bookingtradeplatform.Service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,13 +20,14 @@ public class CategoryController {
     private CategoryService categoryService;
 
     @GetMapping("/all")
-    public ResponseEntity<ResponseData<List<CategoryDTO>>> getAllCategories() {
-        return categoryService.getAllCategories();
+    public ResponseEntity<ResponseData<List<CategoryDTO>>> getAllCategories(@RequestHeader HttpHeaders headers) {
+        return categoryService.getAllCategories(headers);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ResponseData<CategoryDTO>> getCategoryById(@PathVariable Long id) {
-        return categoryService.getCategoryById(id);
+    public ResponseEntity<ResponseData<CategoryDTO>> getCategoryById(@PathVariable Long id,
+                                                                     @RequestHeader HttpHeaders headers) {
+        return categoryService.getCategoryById(id, headers);
     }
 
     @PostMapping("/create")
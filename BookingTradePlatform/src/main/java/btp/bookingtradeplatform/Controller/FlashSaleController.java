@@ -0,0 +1,34 @@
+package btp.bookingtradeplatform.Controller;
+
+import btp.bookingtradeplatform.Model.DTO.FlashSaleDTO;
+import btp.bookingtradeplatform.Model.Request.FlashSaleRequest;
+import btp.bookingtradeplatform.Model.Response.ResponseData;
+import btp.bookingtradeplatform.Service.FlashSale.FlashSaleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/flash-sales")
+public class FlashSaleController {
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    // Mở flash sale hoặc cộng thêm hàng, ví dụ {"quantity": 500}
+    @PostMapping("/{bookId}")
+    public ResponseEntity<ResponseData<FlashSaleDTO>> open(@PathVariable Long bookId,
+                                                           @RequestBody FlashSaleRequest request) {
+        return flashSaleService.open(bookId, request);
+    }
+
+    @GetMapping("/{bookId}")
+    public ResponseEntity<ResponseData<FlashSaleDTO>> get(@PathVariable Long bookId) {
+        return flashSaleService.get(bookId);
+    }
+
+    @DeleteMapping("/{bookId}")
+    public ResponseEntity<ResponseData<FlashSaleDTO>> close(@PathVariable Long bookId) {
+        return flashSaleService.close(bookId);
+    }
+}
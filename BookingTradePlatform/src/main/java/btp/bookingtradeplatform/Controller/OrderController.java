@@ -1,10 +1,19 @@
 package btp.bookingtradeplatform.Controller;
 
+import btp.bookingtradeplatform.Model.DTO.BulkOrderStatusDTO;
 import btp.bookingtradeplatform.Model.DTO.OrderDTO;
+import btp.bookingtradeplatform.Model.DTO.SellerOrderDTO;
 import btp.bookingtradeplatform.Model.Entity.Order;
+import btp.bookingtradeplatform.Model.Request.CheckoutRequest;
 import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Model.Request.OrderHistoryRequest;
+import btp.bookingtradeplatform.Model.Request.SellerInboxRequest;
+import btp.bookingtradeplatform.Model.Response.CursorPage;
 import btp.bookingtradeplatform.Model.Response.ResponseData;
+import btp.bookingtradeplatform.Model.UpdateRequest.BulkUpdateOrderStatus;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdateOrderStatus;
+import btp.bookingtradeplatform.Service.Cart.CartCheckoutService;
+import btp.bookingtradeplatform.Service.IdempotencyService;
 import btp.bookingtradeplatform.Service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +28,12 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private CartCheckoutService cartCheckoutService;
+
     // Lấy tất cả đơn hàng
     @GetMapping("/all")
     public ResponseEntity<ResponseData<List<OrderDTO>>> getAllOrders() {
@@ -33,8 +48,20 @@ public class OrderController {
 
     // Tạo đơn hàng mới
     @PostMapping("/create")
-    public ResponseEntity<ResponseData<OrderDTO>> createOrder(@RequestBody CreateOrderRequest request) {
-        return orderService.createOrder(request);
+    public ResponseEntity<ResponseData<OrderDTO>> createOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestBody CreateOrderRequest request) {
+        return idempotencyService.execute("orders:create", idempotencyKey, request, OrderDTO.class,
+                () -> orderService.createOrder(request));
+    }
+
+    // Đặt hàng từ giỏ hiện tại, ví dụ {"customerId":1,"discountCodes":{"12":"SALE10"}}
+    @PostMapping("/checkout")
+    public ResponseEntity<ResponseData<OrderDTO>> checkout(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestBody CheckoutRequest request) {
+        return idempotencyService.execute("orders:checkout", idempotencyKey, request, OrderDTO.class,
+                () -> cartCheckoutService.checkout(request));
     }
 
     // Cập nhật trạng thái đơn hàng
@@ -49,11 +76,32 @@ public class OrderController {
         return orderService.getOrdersByCustomerId(customerId);
     }
 
+    // Lịch sử đơn mới nhất trước, ví dụ ?statuses=PENDING&statuses=CONFIRMED&size=20 rồi gửi lại data.nextCursor qua ?cursor=
+    @GetMapping("/customer/{customerId}/history")
+    public ResponseEntity<ResponseData<CursorPage<OrderDTO>>> getOrderHistory(@PathVariable Long customerId,
+                                                                              @ModelAttribute OrderHistoryRequest request) {
+        return orderService.getOrderHistory(customerId, request);
+    }
+
     @PostMapping("/cancel/{id}")
     public ResponseEntity<ResponseData<Void>> cancelOrder(@PathVariable Long id) {
         return orderService.CancelOrder(id);
     }
 
+    // Hộp đơn của seller, ví dụ ?statuses=PENDING&size=20 rồi gửi lại data.nextCursor qua ?cursor=
+    @GetMapping("/seller/{sellerId}/inbox")
+    public ResponseEntity<ResponseData<CursorPage<SellerOrderDTO>>> getSellerInbox(@PathVariable Long sellerId,
+                                                                                  @ModelAttribute SellerInboxRequest request) {
+        return orderService.getSellerInbox(sellerId, request);
+    }
+
+    // Chuyển trạng thái nhiều đơn của seller một lần, ví dụ {"status":"SHIPPING","orderIds":[1,2,3]}
+    @PutMapping("/seller/{sellerId}/status")
+    public ResponseEntity<ResponseData<BulkOrderStatusDTO>> bulkUpdateOrderStatus(@PathVariable Long sellerId,
+                                                                                @RequestBody BulkUpdateOrderStatus request) {
+        return orderService.bulkUpdateOrderStatus(sellerId, request);
+    }
+
     @GetMapping("/seller/{sellerId}")
     public ResponseEntity<ResponseData<List<OrderDTO>>> getPendingOrdersBySeller(
             @PathVariable Long sellerId) {
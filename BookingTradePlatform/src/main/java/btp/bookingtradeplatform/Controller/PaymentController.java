@@ -6,6 +6,7 @@ import btp.bookingtradeplatform.Model.Request.MomoPaymentRequest;
 import btp.bookingtradeplatform.Model.Response.MomoPaymentResponse;
 import btp.bookingtradeplatform.Model.Response.ResponseData;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdatePaymentForm;
+import btp.bookingtradeplatform.Service.IdempotencyService;
 import btp.bookingtradeplatform.Service.MomoPaymentService;
 import btp.bookingtradeplatform.Service.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +26,9 @@ public class PaymentController {
     @Autowired
     private MomoPaymentService momoService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @GetMapping("/all")
     public ResponseEntity<ResponseData<List<PaymentDTO>>> getAllPayments() {
         return paymentService.getAllPayments();
@@ -36,8 +40,11 @@ public class PaymentController {
     }
 
     @PostMapping("/create")
-    public ResponseEntity<ResponseData<PaymentDTO>> createPayment(@RequestBody CreatePaymentRequest request) {
-        return paymentService.createPayment(request);
+    public ResponseEntity<ResponseData<PaymentDTO>> createPayment(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestBody CreatePaymentRequest request) {
+        return idempotencyService.execute("payments:create", idempotencyKey, request, PaymentDTO.class,
+                () -> paymentService.createPayment(request));
     }
 
     @PutMapping("/status/{id}")
@@ -7,6 +7,7 @@ import btp.bookingtradeplatform.Model.Response.ResponseData;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdateSeriesForm;
 import btp.bookingtradeplatform.Service.SeriesService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,13 +21,13 @@ public class SeriesController {
     private SeriesService seriesService;
 
     @GetMapping("/getall")
-    public ResponseEntity<ResponseData<List<SeriesDTO>>> getAllSeries() {
-        return seriesService.getAllSeries();
+    public ResponseEntity<ResponseData<List<SeriesDTO>>> getAllSeries(@RequestHeader HttpHeaders headers) {
+        return seriesService.getAllSeries(headers);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ResponseData<SeriesDTO>> getSeriesById(@PathVariable Long id) {
-        return seriesService.getSeriesById(id);
+    public ResponseEntity<ResponseData<SeriesDTO>> getSeriesById(@PathVariable Long id, @RequestHeader HttpHeaders headers) {
+        return seriesService.getSeriesById(id, headers);
     }
 
     @PostMapping("/create")
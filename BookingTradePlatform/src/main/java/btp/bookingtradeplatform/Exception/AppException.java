@@ -12,6 +12,9 @@ public enum AppException {
     NOT_FOUND("ERR_004", "Không tìm thấy", HttpStatus.NOT_FOUND),
     VALIDATION_FAILED("ERR_005", "Dữ liệu không hợp lệ", HttpStatus.BAD_REQUEST),
     EMAIL_NOT_VERIFIED("ERP_006", "Email chưa được xác minh", HttpStatus.FORBIDDEN),
+    INVALID_CURSOR("ERR_007", "Con trỏ phân trang không hợp lệ", HttpStatus.BAD_REQUEST),
+    IDEMPOTENCY_IN_PROGRESS("ERR_008", "Yêu cầu cùng Idempotency-Key đang được xử lý", HttpStatus.CONFLICT),
+    IDEMPOTENCY_KEY_REUSED("ERR_009", "Idempotency-Key đã được dùng cho một yêu cầu khác", HttpStatus.UNPROCESSABLE_ENTITY),
 
     // ========== User / Auth ==========
     EMAIL_ALREADY_EXISTS("USR_001", "Email đã được sử dụng", HttpStatus.BAD_REQUEST),
@@ -38,10 +41,12 @@ public enum AppException {
     // ========== Book ==========
     BOOK_NOT_FOUND("BOK_001", "Không tìm thấy sách", HttpStatus.NOT_FOUND),
     OUT_OF_STOCK("BOK_002", "Sách đã hết hàng", HttpStatus.BAD_REQUEST),
+    FLASH_SALE_NOT_FOUND("BOK_003", "Sách không có flash sale đang diễn ra", HttpStatus.NOT_FOUND),
 
     // ========== Cart ==========
     CART_EMPTY("CRT_001", "Giỏ hàng trống", HttpStatus.BAD_REQUEST),
     ITEM_ALREADY_IN_CART("CRT_002", "Sách đã có trong giỏ hàng", HttpStatus.BAD_REQUEST),
+    CART_CHANGED("CRT_003", "Giỏ hàng vừa thay đổi, vui lòng kiểm tra lại trước khi đặt hàng", HttpStatus.CONFLICT),
 
     // ========== Order / Payment ==========
     ORDER_NOT_FOUND("ORD_001", "Không tìm thấy đơn hàng", HttpStatus.NOT_FOUND),
@@ -52,6 +57,7 @@ public enum AppException {
     CREATED("SUC_201", "Đã tạo", HttpStatus.CREATED),
 
     CANNOT_CANCEL_ORDER("ORD_002", "Không thể huỷ đơn hàng đã được xử lý", HttpStatus.BAD_REQUEST),
+    INVALID_ORDER_TRANSITION("ORD_003", "Không thể chuyển đơn hàng sang trạng thái này", HttpStatus.BAD_REQUEST),
 
 
     // ========== Discount ==========
@@ -0,0 +1,17 @@
+package btp.bookingtradeplatform.Model.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BestSellerDTO {
+    private int rank;
+    // Chi tiết sách lấy qua /books/get/{id} (đã có cache)
+    private Long bookId;
+    private long soldCount;
+}
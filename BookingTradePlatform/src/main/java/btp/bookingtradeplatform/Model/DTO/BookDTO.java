@@ -6,6 +6,7 @@ import btp.bookingtradeplatform.Model.Enum.BookFormat;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,14 +26,30 @@ public class BookDTO {
     private List<String> additionalImages;
     private BigDecimal price;
     private int stock;
+    private int available;
     private Long sellerId;
     private Long seriesId;
     private BookFormat format;
+    // categoryIds để file export nhập lại được qua /books/import; categoryNames để hiển thị
+    private List<Long> categoryIds;
     private List<String> categoryNames;
     private boolean isActive;
     private int soldCount;
+    private Long version;
+    private LocalDateTime updatedAt;
 
     public static BookDTO fromEntity(Book book) {
+        return fromEntity(
+                book,
+                book.getCategories().stream().map(Category::getId).collect(Collectors.toList()),
+                book.getCategories().stream().map(Category::getName).collect(Collectors.toList()),
+                book.getAdditionalImages()
+        );
+    }
+
+    // Dùng khi categories/additionalImages đã được nạp theo lô, tránh chạm vào collection lazy
+    public static BookDTO fromEntity(Book book, List<Long> categoryIds, List<String> categoryNames,
+                                     List<String> additionalImages) {
         return BookDTO.builder()
                 .id(book.getId())
                 .title(book.getTitle())
@@ -41,15 +58,19 @@ public class BookDTO {
                 .language(book.getLanguage())
                 .pageCount(book.getPageCount())
                 .coverImage(book.getCoverImage())
-                .additionalImages(book.getAdditionalImages())
+                .additionalImages(additionalImages)
                 .price(book.getPrice())
                 .stock(book.getStock())
+                .available(book.getAvailable())
                 .sellerId(book.getSeller() != null ? book.getSeller().getId() : null)
                 .seriesId(book.getSeries() != null ? book.getSeries().getId() : null)
                 .format(book.getFormat())
-                .categoryNames(book.getCategories().stream().map(Category::getName).collect(Collectors.toList()))
+                .categoryIds(categoryIds)
+                .categoryNames(categoryNames)
                 .isActive(book.isActive())
                 .soldCount(book.getSoldCount())
+                .version(book.getVersion())
+                .updatedAt(book.getUpdatedAt())
                 .build();
     }
 }
@@ -0,0 +1,32 @@
+package btp.bookingtradeplatform.Model.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookImportReportDTO {
+    private long totalRows;
+    private long imported;
+    private long failed;
+    private List<RowError> errors = new ArrayList<>();
+    // true khi số lỗi vượt giới hạn và danh sách errors bị cắt bớt
+    private boolean errorsTruncated;
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        // Số dòng trong file (CSV tính cả dòng header)
+        private long line;
+        private String message;
+    }
+}
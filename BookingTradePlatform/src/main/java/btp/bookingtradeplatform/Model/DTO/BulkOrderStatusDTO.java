@@ -0,0 +1,19 @@
+package btp.bookingtradeplatform.Model.DTO;
+
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderStatusDTO {
+    private OrderStatus status;
+    private int applied;
+    private int rejected;
+    // cùng thứ tự với orderIds trong yêu cầu
+    private List<OrderTransitionDTO> results;
+}
@@ -0,0 +1,33 @@
+package btp.bookingtradeplatform.Model.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class FacetedBooksDTO {
+    private List<BookDTO> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int total;
+    // category, format, language, price, seller -> các giá trị kèm số sách
+    private Map<String, List<FacetValue>> facets;
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class FacetValue {
+        private String value;
+        // Tên hiển thị, hiện chỉ có với category
+        private String label;
+        private int count;
+    }
+}
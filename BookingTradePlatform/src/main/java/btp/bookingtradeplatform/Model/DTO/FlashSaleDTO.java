@@ -0,0 +1,16 @@
+package btp.bookingtradeplatform.Model.DTO;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FlashSaleDTO {
+    private Long bookId;
+    // còn bán được trên bộ đếm; 0 khi đã đóng
+    private int remaining;
+    // đã bán nhưng chưa đồng bộ về Book.stock/soldCount
+    private int pendingSold;
+}
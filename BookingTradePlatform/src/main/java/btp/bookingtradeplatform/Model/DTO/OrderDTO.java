@@ -27,10 +27,15 @@ public class OrderDTO {
     private boolean paid;
 
     public static OrderDTO fromEntity(Order order) {
+        return fromEntity(order, order.getOrderItems());
+    }
+
+    // Dùng khi item của nhiều đơn đã được nạp theo lô, tránh chạm vào collection lazy
+    public static OrderDTO fromEntity(Order order, List<OrderItem> items) {
         return OrderDTO.builder()
                 .id(order.getId())
                 .customerId(order.getCustomer().getId())
-                .cartItems(order.getOrderItems().stream()
+                .cartItems(items.stream()
                         .map(OrderItemDTO::fromEntity)
                         .collect(Collectors.toList()))
                 .totalPrice(order.getTotalPrice())
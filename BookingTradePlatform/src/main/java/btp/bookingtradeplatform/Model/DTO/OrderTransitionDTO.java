@@ -0,0 +1,17 @@
+package btp.bookingtradeplatform.Model.DTO;
+
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import btp.bookingtradeplatform.Model.Enum.TransitionOutcome;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderTransitionDTO {
+    private Long orderId;
+    // trạng thái trước khi chuyển; null nếu NOT_FOUND
+    private OrderStatus previousStatus;
+    private TransitionOutcome outcome;
+}
@@ -0,0 +1,31 @@
+package btp.bookingtradeplatform.Model.DTO;
+
+import btp.bookingtradeplatform.Model.Entity.SellerOrder;
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SellerOrderDTO {
+    private Long orderId;
+    private OrderStatus status;
+    private LocalDateTime orderDate;
+    private int itemCount;
+    private BigDecimal subtotal;
+
+    public static SellerOrderDTO fromEntity(SellerOrder row) {
+        return SellerOrderDTO.builder()
+                .orderId(row.getOrderId())
+                .status(row.getStatus())
+                .orderDate(row.getOrderDate())
+                .itemCount(row.getItemCount())
+                .subtotal(row.getSubtotal())
+                .build();
+    }
+}
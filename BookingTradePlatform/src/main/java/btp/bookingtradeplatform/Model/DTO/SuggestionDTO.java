@@ -0,0 +1,19 @@
+package btp.bookingtradeplatform.Model.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SuggestionDTO {
+    private String text;
+    // TITLE, AUTHOR hoặc STORE
+    private String type;
+    private long soldCount;
+    // Chỉ có khi gợi ý ứng với đúng một cuốn sách
+    private Long bookId;
+}
@@ -6,8 +6,11 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,10 +43,15 @@ public class Book {
     private BigDecimal price;
     private int stock;
 
-    @ManyToOne
+    // Số lượng đang giữ cho các đơn chưa thanh toán; còn bán được = stock - reserved
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int reserved;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     private Seller seller;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Series series;
 
     @Enumerated(EnumType.STRING)
@@ -59,5 +67,17 @@ public class Book {
 
     private boolean isActive = true;
     private int soldCount = 0;
-}
 
+    // Tăng mỗi lần cập nhật, dùng cho ETag và optimistic locking
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    public int getAvailable() {
+        return stock - reserved;
+    }
+}
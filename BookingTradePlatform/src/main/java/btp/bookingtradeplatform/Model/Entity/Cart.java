@@ -5,8 +5,11 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +18,10 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(name = "cart", indexes = {
+        @Index(name = "uk_cart_user", columnList = "user_id", unique = true),
+        @Index(name = "idx_cart_updated_at", columnList = "updated_at, id")
+})
 public class Cart {
 
     @Id
@@ -25,6 +32,15 @@ public class Cart {
 
     private BigDecimal totalPrice;
 
+    // Version của CartStore đã ghi xuống; bản cũ hơn đến sau bị bỏ qua
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long storeVersion;
+
+    // Lần write-behind ghi giỏ gần nhất; CartSweeper dựa vào đây để tìm giỏ bỏ quên
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CartItem> cartItems = new ArrayList<>();
 }
@@ -2,7 +2,10 @@ package btp.bookingtradeplatform.Model.Entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Getter
@@ -20,4 +23,13 @@ public class Category {
 
     @ManyToMany(mappedBy = "categories")
     private List<Book> books;
+
+    // Tăng mỗi lần cập nhật, dùng cho ETag và optimistic locking
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
 }
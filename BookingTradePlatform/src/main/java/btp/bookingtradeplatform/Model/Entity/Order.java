@@ -14,7 +14,7 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_customer_date", columnList = "customer_id, order_date, id"))
 public class Order {
 
     @Id
@@ -42,6 +42,11 @@ public class Order {
 
     private boolean Paid = false;
 
+    // Hạn giữ hàng của đơn; null = không còn giữ (đã thanh toán, huỷ hoặc hết hạn).
+    // Chỉ được đổi qua UPDATE có điều kiện trong OrderRepository để mỗi lần giữ chỉ được chốt/nhả đúng một lần
+    @Column(updatable = false)
+    private LocalDateTime reservedUntil;
+
     @PrePersist
     public void prePersist() {
         if (transactionId == null) {
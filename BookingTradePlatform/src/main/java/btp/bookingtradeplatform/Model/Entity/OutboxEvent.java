@@ -0,0 +1,42 @@
+package btp.bookingtradeplatform.Model.Entity;
+
+import btp.bookingtradeplatform.Model.Enum.OrderEventType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sự kiện vòng đời đơn hàng chờ gửi ra Kafka, được ghi cùng transaction với thay đổi trạng thái.
+ * publishedAt = null nghĩa là relay chưa gửi.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "outbox_event", indexes = @Index(name = "idx_outbox_published_at", columnList = "published_at, id"))
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Key của message: mọi sự kiện của cùng một đơn vào cùng partition nên giữ đúng thứ tự
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private OrderEventType eventType;
+
+    @Lob
+    @Column(columnDefinition = "LONGTEXT", nullable = false)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime publishedAt;
+}
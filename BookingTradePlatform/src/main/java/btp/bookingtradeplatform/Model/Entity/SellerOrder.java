@@ -0,0 +1,49 @@
+package btp.bookingtradeplatform.Model.Entity;
+
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng phi chuẩn hoá cho hộp đơn của seller: mỗi dòng là phần của một seller trong một đơn.
+ * Được ghi khi tạo đơn và cập nhật status cùng lúc với Order, nên dashboard seller
+ * chỉ cần quét một khoảng index thay vì JOIN order_items.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "seller_order",
+        uniqueConstraints = @UniqueConstraint(name = "uk_seller_order", columnNames = {"seller_id", "order_id"}),
+        indexes = {
+                @Index(name = "idx_seller_order_date", columnList = "seller_id, order_date, order_id"),
+                @Index(name = "idx_seller_order_status_date", columnList = "seller_id, status, order_date, order_id"),
+                @Index(name = "idx_seller_order_order", columnList = "order_id")
+        })
+public class SellerOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long sellerId;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private LocalDateTime orderDate;
+
+    // Tổng số lượng và thành tiền (sau giảm giá) của riêng các item thuộc seller này
+    private int itemCount;
+
+    private BigDecimal subtotal;
+}
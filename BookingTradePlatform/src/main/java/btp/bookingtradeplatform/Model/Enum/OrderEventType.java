@@ -0,0 +1,12 @@
+package btp.bookingtradeplatform.Model.Enum;
+
+public enum OrderEventType {
+    ORDER_CREATED,
+    ORDER_STATUS_CHANGED,
+    ORDER_CANCELLED,
+    ORDER_RESERVATION_EXPIRED,
+    PAYMENT_CREATED,
+    PAYMENT_STATUS_CHANGED,
+    PAYMENT_SUCCEEDED,
+    PAYMENT_FAILED,
+}
@@ -1,9 +1,40 @@
 package btp.bookingtradeplatform.Model.Enum;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING,
     CONFIRMED,
     CANCELLED,
     DELIVERED,
     SHIPPING,
+    ;
+
+    /**
+     * Máy trạng thái của đơn: PENDING -> CONFIRMED (thanh toán) -> SHIPPING -> DELIVERED,
+     * huỷ được khi còn PENDING hoặc đã CONFIRMED (huỷ đơn đã thanh toán thì hoàn kho). Khách chỉ tự huỷ
+     * được đơn PENDING (CancelOrder). DELIVERED và CANCELLED là trạng thái cuối.
+     */
+    public Set<OrderStatus> nextStatuses() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(CONFIRMED, CANCELLED);
+            case CONFIRMED -> EnumSet.of(SHIPPING, CANCELLED);
+            case SHIPPING -> EnumSet.of(DELIVERED);
+            case DELIVERED, CANCELLED -> EnumSet.noneOf(OrderStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return nextStatuses().contains(next);
+    }
+
+    // Các trạng thái có thể chuyển sang next
+    public static Set<OrderStatus> previousStatuses(OrderStatus next) {
+        Set<OrderStatus> previous = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus status : values()) {
+            if (status.canTransitionTo(next)) previous.add(status);
+        }
+        return previous;
+    }
 }
@@ -0,0 +1,11 @@
+package btp.bookingtradeplatform.Model.Enum;
+
+// Kết quả chuyển trạng thái của từng đơn trong một lần cập nhật hàng loạt
+public enum TransitionOutcome {
+    APPLIED,
+    // đơn đã ở sẵn trạng thái đích (gửi lại cùng yêu cầu)
+    UNCHANGED,
+    // không tồn tại hoặc không thuộc seller
+    NOT_FOUND,
+    INVALID_TRANSITION,
+}
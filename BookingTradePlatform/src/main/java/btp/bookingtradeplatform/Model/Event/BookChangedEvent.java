@@ -0,0 +1,48 @@
+package btp.bookingtradeplatform.Model.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Phát ra khi dữ liệu sách thay đổi. Các index/cache trong bộ nhớ lắng nghe
+ * sự kiện này sau khi transaction commit để tự cập nhật.
+ */
+@Getter
+@AllArgsConstructor
+public class BookChangedEvent {
+
+    public enum Type {
+        UPSERT,
+        DELETE,
+        // stock và soldCount thay đổi (bán/hoàn kho): chỉ index gợi ý (xếp theo soldCount) cần cập nhật
+        STOCK,
+        // chỉ phần giữ hàng thay đổi, soldCount giữ nguyên: không index nào cần cập nhật, chỉ cache chi tiết
+        RESERVATION
+    }
+
+    private final Collection<Long> bookIds;
+    private final Type type;
+
+    public static BookChangedEvent upsert(Long bookId) {
+        return new BookChangedEvent(List.of(bookId), Type.UPSERT);
+    }
+
+    public static BookChangedEvent upsert(Collection<Long> bookIds) {
+        return new BookChangedEvent(List.copyOf(bookIds), Type.UPSERT);
+    }
+
+    public static BookChangedEvent stock(Collection<Long> bookIds) {
+        return new BookChangedEvent(List.copyOf(bookIds), Type.STOCK);
+    }
+
+    public static BookChangedEvent reservation(Collection<Long> bookIds) {
+        return new BookChangedEvent(List.copyOf(bookIds), Type.RESERVATION);
+    }
+
+    public static BookChangedEvent delete(Long bookId) {
+        return new BookChangedEvent(List.of(bookId), Type.DELETE);
+    }
+}
@@ -0,0 +1,15 @@
+package btp.bookingtradeplatform.Model.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collection;
+
+/**
+ * Phát ra khi giá sách thay đổi; sau commit, các giỏ đang chứa sách được đưa vào hàng đợi đổi giá.
+ */
+@Getter
+@AllArgsConstructor
+public class BookPriceChangedEvent {
+    private final Collection<Long> bookIds;
+}
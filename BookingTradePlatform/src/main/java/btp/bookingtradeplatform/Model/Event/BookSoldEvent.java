@@ -0,0 +1,18 @@
+package btp.bookingtradeplatform.Model.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Phát ra khi kho bị trừ (bán) hoặc hoàn lại (huỷ/hoàn tiền) cho một đơn hàng.
+ * quantities: bookId -> số lượng, âm khi hoàn lại. saleDate là ngày tính doanh số.
+ */
+@Getter
+@AllArgsConstructor
+public class BookSoldEvent {
+    private final Map<Long, Integer> quantities;
+    private final LocalDate saleDate;
+}
@@ -0,0 +1,18 @@
+package btp.bookingtradeplatform.Model.Event;
+
+import btp.bookingtradeplatform.Service.Cart.CartLine;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Phát ra khi các dòng giỏ đã đặt được trừ khỏi CartStore trong transaction checkout;
+ * nếu transaction rollback, các dòng này được trả lại giỏ.
+ */
+@Getter
+@AllArgsConstructor
+public class CartCheckedOutEvent {
+    private final Long userId;
+    private final List<CartLine> lines;
+}
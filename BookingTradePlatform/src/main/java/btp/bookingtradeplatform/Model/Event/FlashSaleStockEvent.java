@@ -0,0 +1,24 @@
+package btp.bookingtradeplatform.Model.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Thay đổi trên bộ đếm flash sale phải khớp với kết quả transaction của đơn:
+ * ACQUIRED được hoàn lại nếu transaction rollback, RELEASED/SOLD chỉ áp dụng sau khi commit.
+ */
+@Getter
+@AllArgsConstructor
+public class FlashSaleStockEvent {
+
+    public enum Type {
+        ACQUIRED,
+        RELEASED,
+        SOLD
+    }
+
+    private final Map<Long, Integer> quantities;
+    private final Type type;
+}
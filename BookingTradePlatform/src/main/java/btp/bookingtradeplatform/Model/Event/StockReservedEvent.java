@@ -0,0 +1,16 @@
+package btp.bookingtradeplatform.Model.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phát ra khi một đơn mới giữ hàng thành công; sau commit, hạn giữ được đưa vào hàng đợi hết hạn.
+ */
+@Getter
+@AllArgsConstructor
+public class StockReservedEvent {
+    private final Long orderId;
+    private final LocalDateTime expiresAt;
+}
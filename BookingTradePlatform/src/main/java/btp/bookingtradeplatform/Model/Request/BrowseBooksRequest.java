@@ -0,0 +1,19 @@
+package btp.bookingtradeplatform.Model.Request;
+
+import btp.bookingtradeplatform.Model.Enum.BookFormat;
+import lombok.Data;
+
+import java.util.List;
+
+// Tham số query của /books/browse; trong cùng một facet là OR, giữa các facet là AND
+@Data
+public class BrowseBooksRequest {
+    private List<Long> categoryIds;
+    private List<BookFormat> formats;
+    private List<String> languages;
+    // Nhãn khoảng giá như trong facet "price", ví dụ 50000-100000 hoặc 500000+
+    private List<String> priceRanges;
+    private List<Long> sellerIds;
+    private String cursor;
+    private Integer size;
+}
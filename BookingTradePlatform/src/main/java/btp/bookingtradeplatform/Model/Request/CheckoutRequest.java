@@ -0,0 +1,18 @@
+package btp.bookingtradeplatform.Model.Request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+    private Long customerId;
+    // Mã giảm giá theo từng sách trong giỏ (bookId -> mã), có thể bỏ trống
+    private Map<Long, String> discountCodes;
+}
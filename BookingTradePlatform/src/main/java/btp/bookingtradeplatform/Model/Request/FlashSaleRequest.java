@@ -0,0 +1,13 @@
+package btp.bookingtradeplatform.Model.Request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Số hàng tách khỏi kho DB để bán qua bộ đếm flash sale
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleRequest {
+    private Integer quantity;
+}
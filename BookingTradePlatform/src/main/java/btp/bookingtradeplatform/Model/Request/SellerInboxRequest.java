@@ -0,0 +1,14 @@
+package btp.bookingtradeplatform.Model.Request;
+
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import lombok.Data;
+
+import java.util.List;
+
+// Tham số query của /orders/seller/{id}/inbox; statuses rỗng = mọi trạng thái
+@Data
+public class SellerInboxRequest {
+    private List<OrderStatus> statuses;
+    private String cursor;
+    private Integer size;
+}
@@ -0,0 +1,117 @@
+package btp.bookingtradeplatform.Model.Response;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * ETag mạnh và Last-Modified cho các API GET của catalog.
+ * Được tính từ các dòng version/updatedAt lấy bằng truy vấn projection nhỏ,
+ * nên request có If-None-Match khớp được trả 304 mà không cần nạp entity hay serialize body.
+ * Danh sách chỉ có ETag: xoá một phần tử không làm max(updatedAt) tăng nên Last-Modified của danh sách
+ * sẽ khiến If-Modified-Since trả 304 cho dữ liệu đã cũ.
+ */
+@Getter
+public class CacheValidators {
+
+    private final String etag;
+    private final Instant lastModified;
+
+    private CacheValidators(String etag, Instant lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Validator cho một tài nguyên đơn lẻ: có ETag và Last-Modified.
+     *
+     * @param kind tên tài nguyên, vd. "book:12"
+     * @param rows các dòng [id/version..., updatedAt...]; giá trị thời gian mới nhất thành Last-Modified
+     */
+    public static CacheValidators of(String kind, List<Object[]> rows) {
+        return build(kind, rows, true);
+    }
+
+    /**
+     * Validator cho danh sách (hoặc tài nguyên nhúng danh sách): chỉ có ETag, vì số dòng nằm trong hash
+     * nên xoá phần tử vẫn đổi ETag, còn max(updatedAt) thì không.
+     *
+     * @param kind tên tài nguyên, vd. "categories"
+     * @param rows các dòng [count, max(version), max(updatedAt)...]
+     */
+    public static CacheValidators ofCollection(String kind, List<Object[]> rows) {
+        return build(kind, rows, false);
+    }
+
+    private static CacheValidators build(String kind, List<Object[]> rows, boolean withLastModified) {
+        StringBuilder raw = new StringBuilder(kind);
+        LocalDateTime latest = null;
+        for (Object[] row : rows) {
+            for (Object value : row) {
+                raw.append('|').append(value);
+                if (value instanceof LocalDateTime time && (latest == null || time.isAfter(latest))) {
+                    latest = time;
+                }
+            }
+        }
+        Instant lastModified = withLastModified && latest != null
+                ? latest.atZone(ZoneId.systemDefault()).toInstant().truncatedTo(ChronoUnit.SECONDS)
+                : null;
+        return new CacheValidators('"' + hash(raw.toString()) + '"', lastModified);
+    }
+
+    // If-None-Match được ưu tiên; chỉ xét If-Modified-Since khi client không gửi ETag
+    public boolean isNotModified(HttpHeaders request) {
+        List<String> ifNoneMatch = request.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            for (String tag : ifNoneMatch) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+                if (candidate.equals("*") || candidate.equals(etag)) return true;
+            }
+            return false;
+        }
+        long ifModifiedSince = request.getIfModifiedSince();
+        return ifModifiedSince >= 0 && lastModified != null && lastModified.toEpochMilli() <= ifModifiedSince;
+    }
+
+    public <T> ResponseEntity<ResponseData<T>> notModified() {
+        return headers(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).build();
+    }
+
+    public <T> ResponseEntity<ResponseData<T>> ok(T data) {
+        return headers(ResponseEntity.status(AppException.SUCCESS.getHttpStatus()))
+                .body(new ResponseData<>(
+                        AppException.SUCCESS.getCode(),
+                        AppException.SUCCESS.getMessage(),
+                        data
+                ));
+    }
+
+    private ResponseEntity.BodyBuilder headers(ResponseEntity.BodyBuilder builder) {
+        builder.eTag(etag);
+        if (lastModified != null) builder.lastModified(lastModified);
+        return builder;
+    }
+
+    private static String hash(String raw) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package btp.bookingtradeplatform.Model.Response;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import lombok.*;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Một trang kết quả phân trang theo keyset.
+ * nextCursor là chuỗi mờ (opaque), client chỉ việc gửi lại nguyên vẹn để lấy trang kế tiếp.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CursorPage<T> implements Serializable {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+
+    private static final String SEPARATOR = "|";
+    private static final String VERSION = "v1";
+
+    public static int clampSize(Integer size, int defaultSize, int maxSize) {
+        if (size == null || size <= 0) return defaultSize;
+        return Math.min(size, maxSize);
+    }
+
+    /**
+     * Mã hoá các thành phần của khoá sắp xếp thành cursor.
+     */
+    public static String encodeCursor(Object... keys) {
+        StringBuilder raw = new StringBuilder(VERSION);
+        for (Object key : keys) {
+            raw.append(SEPARATOR).append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giải mã cursor, trả về đúng expectedParts thành phần của khoá sắp xếp.
+     */
+    public static String[] decodeCursor(String cursor, int expectedParts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != expectedParts + 1 || !VERSION.equals(parts[0])) {
+                throw new BusinessException(AppException.INVALID_CURSOR);
+            }
+            String[] keys = new String[expectedParts];
+            System.arraycopy(parts, 1, keys, 0, expectedParts);
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(AppException.INVALID_CURSOR);
+        }
+    }
+
+    public static long decodeIdCursor(String cursor) {
+        try {
+            return Long.parseLong(decodeCursor(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw new BusinessException(AppException.INVALID_CURSOR);
+        }
+    }
+}
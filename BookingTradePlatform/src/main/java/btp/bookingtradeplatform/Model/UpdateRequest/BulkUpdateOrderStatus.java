@@ -0,0 +1,18 @@
+package btp.bookingtradeplatform.Model.UpdateRequest;
+
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkUpdateOrderStatus {
+    private OrderStatus status;
+    private List<Long> orderIds;
+}
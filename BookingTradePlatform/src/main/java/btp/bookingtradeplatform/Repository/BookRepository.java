@@ -2,21 +2,114 @@ package btp.bookingtradeplatform.Repository;
 
 import btp.bookingtradeplatform.Model.Entity.Book;
 import io.lettuce.core.dynamic.annotation.Param;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
 
-        @Query("SELECT b FROM Book b " +
-                "JOIN b.seller s " +
-                "WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-                "   OR LOWER(b.author) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-                "   OR LOWER(s.storeName) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-        List<Book> searchByKeyword(@Param("keyword") String keyword);
+        List<Book> findBySellerId(Long sellerId);
 
+        // Trừ kho có điều kiện trong một câu UPDATE: 0 dòng nghĩa là không đủ hàng (hoặc sách không tồn tại).
+        // Kiểm tra và trừ diễn ra dưới khoá dòng của DB nên không bán vượt và không mất cập nhật.
+        @Modifying(flushAutomatically = true)
+        @Query("UPDATE Book b SET b.stock = b.stock - :quantity, b.soldCount = b.soldCount + :quantity, " +
+                "b.version = b.version + 1, b.updatedAt = LOCAL DATETIME " +
+                "WHERE b.id = :id AND b.stock - b.reserved >= :quantity")
+        int decreaseStock(@Param("id") Long id, @Param("quantity") int quantity);
 
-        List<Book> findBySellerId(Long sellerId);
+        @Modifying(flushAutomatically = true)
+        @Query("UPDATE Book b SET b.reserved = b.reserved - :quantity, " +
+                "b.version = b.version + 1, b.updatedAt = LOCAL DATETIME " +
+                "WHERE b.id = :id AND b.reserved >= :quantity")
+        int releaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+        // Thanh toán thành công: chuyển phần đang giữ thành đã bán
+        @Modifying(flushAutomatically = true)
+        @Query("UPDATE Book b SET b.stock = b.stock - :quantity, b.reserved = b.reserved - :quantity, " +
+                "b.soldCount = b.soldCount + :quantity, b.version = b.version + 1, b.updatedAt = LOCAL DATETIME " +
+                "WHERE b.id = :id AND b.reserved >= :quantity AND b.stock >= :quantity")
+        int commitReservedStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+        @Modifying(flushAutomatically = true)
+        @Query("UPDATE Book b SET b.stock = b.stock + :quantity, b.soldCount = b.soldCount - :quantity, " +
+                "b.version = b.version + 1, b.updatedAt = LOCAL DATETIME " +
+                "WHERE b.id = :id")
+        int increaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+        // Dùng khi tạo đơn: một truy vấn cho mọi sách của đơn, seller được JOIN FETCH để lấy snapshot
+        @Query("SELECT b FROM Book b LEFT JOIN FETCH b.seller WHERE b.id IN :ids")
+        List<Book> findAllWithSellerByIdIn(@Param("ids") Collection<Long> ids);
+
+        // Phân trang keyset theo khoá chính: luôn dùng index PRIMARY, không OFFSET
+        List<Book> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+        // Dữ liệu thô cho BookSearchIndex/BookSuggestIndex: [id, title, author, storeName, soldCount]
+        @Query("SELECT b.id, b.title, b.author, s.storeName, b.soldCount FROM Book b " +
+                "LEFT JOIN b.seller s " +
+                "WHERE b.id > :afterId ORDER BY b.id")
+        List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+        @Query("SELECT b.id, b.title, b.author, s.storeName, b.soldCount FROM Book b " +
+                "LEFT JOIN b.seller s " +
+                "WHERE b.id IN :ids")
+        List<Object[]> findSearchRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+        // Nạp theo lô các collection của một trang sách: [bookId, giá trị]
+        // [bookId, categoryId, tên category]
+        @Query("SELECT b.id, c.id, c.name FROM Book b JOIN b.categories c WHERE b.id IN :ids")
+        List<Object[]> findCategoriesByBookIdIn(@Param("ids") Collection<Long> ids);
+
+        @Query("SELECT b.id, img FROM Book b JOIN b.additionalImages img WHERE b.id IN :ids")
+        List<Object[]> findAdditionalImagesByBookIdIn(@Param("ids") Collection<Long> ids);
+
+        // Dữ liệu thô cho BookFacetIndex: [id, format, language, price, sellerId]
+        @Query("SELECT b.id, b.format, b.language, b.price, b.seller.id FROM Book b " +
+                "WHERE b.id > :afterId ORDER BY b.id")
+        List<Object[]> findFacetRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+        @Query("SELECT b.id, b.format, b.language, b.price, b.seller.id FROM Book b WHERE b.id IN :ids")
+        List<Object[]> findFacetRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+        @Query("SELECT b.id, c.id FROM Book b JOIN b.categories c WHERE b.id IN :ids")
+        List<Object[]> findCategoryIdsByBookIdIn(@Param("ids") Collection<Long> ids);
+
+        // Cho ETag của danh sách sách: [số sách, id lớn nhất, tổng version, updatedAt mới nhất]
+        @Query("SELECT COUNT(b), COALESCE(MAX(b.id), 0), COALESCE(SUM(b.version), 0), MAX(b.updatedAt) FROM Book b")
+        List<Object[]> findCatalogVersion();
+
+        @Query("SELECT COUNT(b), COALESCE(MAX(b.id), 0), COALESCE(SUM(b.version), 0), MAX(b.updatedAt) FROM Book b WHERE b.seller.id = :sellerId")
+        List<Object[]> findCatalogVersionBySellerId(@Param("sellerId") Long sellerId);
+
+        @Query("SELECT COUNT(b), COALESCE(MAX(b.id), 0), COALESCE(SUM(b.version), 0), MAX(b.updatedAt) FROM Book b WHERE b.series.id = :seriesId")
+        List<Object[]> findCatalogVersionBySeriesId(@Param("seriesId") Long seriesId);
+
+        @Query("SELECT COUNT(b), COALESCE(MAX(b.id), 0), COALESCE(SUM(b.version), 0), MAX(b.updatedAt) FROM Book b WHERE b.series IS NOT NULL")
+        List<Object[]> findCatalogVersionInSeries();
+
+        @Query("SELECT b.id FROM Book b JOIN b.categories c WHERE c.id = :categoryId")
+        List<Long> findIdsByCategoryId(@Param("categoryId") Long categoryId);
+
+        @Query("SELECT b.id FROM Book b WHERE b.series.id = :seriesId")
+        List<Long> findIdsBySeriesId(@Param("seriesId") Long seriesId);
+
+        // Cho CartRepricer: [id, price] hiện tại của các sách vừa đổi giá
+        @Query("SELECT b.id, b.price FROM Book b WHERE b.id IN :ids")
+        List<Object[]> findPricesByIdIn(@Param("ids") Collection<Long> ids);
+
+        // Cho BestSellerService: [id, sellerId] và dữ liệu seed [id, sellerId, soldCount]
+        @Query("SELECT b.id, b.seller.id FROM Book b WHERE b.id IN :ids")
+        List<Object[]> findSellerIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+        @Query("SELECT b.id, b.seller.id, b.soldCount FROM Book b " +
+                "WHERE b.id > :afterId AND b.soldCount > 0 ORDER BY b.id")
+        List<Object[]> findSoldRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+        @Query("SELECT b.id FROM Book b WHERE b.seller.id = :sellerId")
+        List<Long> findIdsBySellerId(@Param("sellerId") Long sellerId);
 }
 
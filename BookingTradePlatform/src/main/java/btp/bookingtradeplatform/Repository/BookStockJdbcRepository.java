@@ -0,0 +1,59 @@
+package btp.bookingtradeplatform.Repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Giữ hàng cho cả đơn bằng một JDBC batch các UPDATE có điều kiện,
+ * để số round-trip khi tạo đơn không tăng theo số sách trong đơn.
+ */
+@Repository
+public class BookStockJdbcRepository {
+
+    private static final String RESERVE = "UPDATE book SET reserved = reserved + ?, version = version + 1, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE id = ? AND stock - reserved >= ? AND ? > 0";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookStockJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Các dòng được cập nhật theo thứ tự bookId tăng dần (khoá dòng cùng thứ tự với trừ kho).
+     *
+     * @return false nếu có sách không đủ hàng (hoặc số lượng không dương); khi đó caller phải rollback transaction
+     */
+    public boolean reserveAll(SortedMap<Long, Integer> quantities) {
+        if (quantities.isEmpty()) return true;
+
+        List<Map.Entry<Long, Integer>> rows = new ArrayList<>(quantities.entrySet());
+        int[] counts = jdbcTemplate.batchUpdate(RESERVE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> row = rows.get(i);
+                ps.setInt(1, row.getValue());
+                ps.setLong(2, row.getKey());
+                ps.setInt(3, row.getValue());
+                ps.setInt(4, row.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+        for (int count : counts) {
+            if (count == 0) return false;
+        }
+        return true;
+    }
+}
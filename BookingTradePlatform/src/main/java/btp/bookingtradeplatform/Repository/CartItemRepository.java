@@ -1,11 +1,24 @@
 package btp.bookingtradeplatform.Repository;
 
 import btp.bookingtradeplatform.Model.Entity.CartItem;
+import io.lettuce.core.dynamic.annotation.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByCartId(Long cartId);
     CartItem findByCartIdAndBookId(Long cartId, Long bookId);
+
+    // Checkout: xoá cả giỏ bằng một câu DELETE thay vì nạp rồi xoá từng item
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CartItem i WHERE i.cart.id = :cartId")
+    int deleteByCartId(@Param("cartId") Long cartId);
+
+    @Modifying
+    @Query("DELETE FROM CartItem i WHERE i.cart.id IN :cartIds")
+    int deleteByCartIdIn(@Param("cartIds") Collection<Long> cartIds);
 }
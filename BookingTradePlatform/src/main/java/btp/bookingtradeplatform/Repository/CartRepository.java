@@ -1,12 +1,52 @@
 package btp.bookingtradeplatform.Repository;
 
 import btp.bookingtradeplatform.Model.Entity.Cart;
+import io.lettuce.core.dynamic.annotation.Param;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
     // Custom query methods can be defined here if needed
     // For example, to find a cart by userId or sessionKey
     Optional<Cart> findByUserId(Long userId);
+
+    // Nạp giỏ vào CartStore: item kèm sách và seller trong một truy vấn
+    @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.cartItems i LEFT JOIN FETCH i.book b " +
+            "LEFT JOIN FETCH b.seller WHERE c.userId = :userId")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Long userId);
+
+    // Write-behind: khoá các giỏ của một lô theo thứ tự userId để các node không ghi chéo nhau
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.cartItems WHERE c.userId IN :userIds ORDER BY c.userId")
+    List<Cart> lockWithItemsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // Dọn giỏ bỏ quên: khoá một lô theo index updated_at, dòng node khác đang khoá thì bỏ qua (SKIP LOCKED).
+    // Mỗi dòng: id, userId, storeVersion
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT c.id, c.userId, c.storeVersion FROM Cart c WHERE c.updatedAt < :before ORDER BY c.updatedAt, c.id")
+    List<Object[]> lockAbandoned(@Param("before") LocalDateTime before, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Giỏ có từ trước khi thêm cột updated_at bắt đầu tính ngày từ lần dọn đầu tiên
+    @Query("SELECT c.id FROM Cart c WHERE c.updatedAt IS NULL ORDER BY c.id")
+    List<Long> findIdsWithoutUpdatedAt(Limit limit);
+
+    @Modifying
+    @Query("UPDATE Cart c SET c.updatedAt = :now WHERE c.id IN :ids AND c.updatedAt IS NULL")
+    int stampUpdatedAt(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
 }
@@ -1,11 +1,23 @@
 package btp.bookingtradeplatform.Repository;
 
 import btp.bookingtradeplatform.Model.Entity.Category;
+import io.lettuce.core.dynamic.annotation.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     boolean existsByName(String name);
 
+    // Cho ETag/Last-Modified: [version, updatedAt]
+    @Query("SELECT c.version, c.updatedAt FROM Category c WHERE c.id = :id")
+    List<Object[]> findVersionById(@Param("id") Long id);
+
+    // [số category, id lớn nhất, tổng version, updatedAt mới nhất]
+    @Query("SELECT COUNT(c), COALESCE(MAX(c.id), 0), COALESCE(SUM(c.version), 0), MAX(c.updatedAt) FROM Category c")
+    List<Object[]> findCatalogVersion();
+
     // Additional query methods can be defined here if needed
     // For example, to find categories by name:
     // List<Category> findByName(String name);
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,4 +28,6 @@ public interface DiscountCodeRepository extends JpaRepository<DiscountCode, Long
     );
 
     DiscountCode findByCode(String code);
+
+    List<DiscountCode> findByCodeIn(Collection<String> codes);
 }
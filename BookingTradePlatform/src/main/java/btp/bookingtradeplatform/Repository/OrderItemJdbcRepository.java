@@ -0,0 +1,68 @@
+package btp.bookingtradeplatform.Repository;
+
+import btp.bookingtradeplatform.Model.Entity.OrderItem;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Insert OrderItem bằng JDBC batch: Hibernate không batch được insert với id IDENTITY,
+ * mỗi dòng sẽ là một round-trip riêng. Id sinh ra được gán lại vào các OrderItem.
+ */
+@Repository
+public class OrderItemJdbcRepository {
+
+    private static final String INSERT = "INSERT INTO order_items (order_id, book_id, cover_image, seller_id, " +
+            "seller_name, book_title, book_price, quantity, discount_code, discount_amount, total_amount) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderItemJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertAll(Long orderId, List<OrderItem> items) {
+        if (items.isEmpty()) return;
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderItem item = items.get(i);
+                        ps.setLong(1, orderId);
+                        ps.setObject(2, item.getBookId());
+                        ps.setString(3, item.getCoverImage());
+                        ps.setObject(4, item.getSellerId());
+                        ps.setString(5, item.getSellerName());
+                        ps.setString(6, item.getBookTitle());
+                        ps.setBigDecimal(7, item.getBookPrice());
+                        ps.setInt(8, item.getQuantity());
+                        ps.setString(9, item.getDiscountCode());
+                        ps.setBigDecimal(10, item.getDiscountAmount());
+                        ps.setBigDecimal(11, item.getTotalAmount());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return items.size();
+                    }
+                },
+                keys);
+
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        for (int i = 0; i < items.size() && i < keyList.size(); i++) {
+            items.get(i).setId(((Number) keyList.get(i).values().iterator().next()).longValue());
+        }
+    }
+}
@@ -3,23 +3,75 @@ package btp.bookingtradeplatform.Repository;
 import btp.bookingtradeplatform.Model.Entity.Order;
 import btp.bookingtradeplatform.Model.Enum.OrderStatus;
 import io.lettuce.core.dynamic.annotation.Param;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByCustomerId(Long customerId) ;
     // Custom query methods can be defined here if needed
-    @Query("SELECT DISTINCT o FROM Order o " +
-            "JOIN o.orderItems oi " +
-            "WHERE oi.sellerId = :sellerId")
-    List<Order> findOrdersBySellerIdAndStatus(
-            @Param("sellerId") Long sellerId
-    );
-    
+
     Optional<Order> findByTransactionId(String transactionId);
 
+    // Lịch sử đơn theo keyset (orderDate, id) giảm dần, đi trên index (customer_id, order_date, id)
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer c WHERE c.id = :customerId " +
+            "AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findHistoryPage(@Param("customerId") Long customerId,
+                                @Param("beforeDate") LocalDateTime beforeDate,
+                                @Param("beforeId") Long beforeId,
+                                Limit limit);
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer c WHERE c.id = :customerId AND o.status IN :statuses " +
+            "AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findHistoryPageByStatusIn(@Param("customerId") Long customerId,
+                                          @Param("statuses") Collection<OrderStatus> statuses,
+                                          @Param("beforeDate") LocalDateTime beforeDate,
+                                          @Param("beforeId") Long beforeId,
+                                          Limit limit);
+
+    // Chốt hoặc nhả phần giữ hàng của đơn: chỉ một bên (thanh toán, huỷ, hết hạn) nhận được 1 dòng
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.reservedUntil = null WHERE o.id = :id AND o.reservedUntil IS NOT NULL")
+    int clearReservation(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.reservedUntil = null WHERE o.id = :id AND o.reservedUntil <= :now")
+    int clearExpiredReservation(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query("SELECT o.id, o.reservedUntil FROM Order o WHERE o.reservedUntil IS NOT NULL")
+    List<Object[]> findActiveReservations();
+
+    // Khoá đơn trước khi đổi trạng thái để hai lần huỷ song song không hoàn kho hai lần
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
+    // Khoá các đơn của seller trước khi chuyển trạng thái hàng loạt; khoá theo id tăng dần để không deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o.id, o.status, o.reservedUntil FROM Order o WHERE o.id IN :ids " +
+            "AND EXISTS (SELECT 1 FROM SellerOrder s WHERE s.orderId = o.id AND s.sellerId = :sellerId) " +
+            "ORDER BY o.id")
+    List<Object[]> lockStatusesForSeller(@Param("sellerId") Long sellerId, @Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :status WHERE o.id IN :ids")
+    int updateStatusByIdIn(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.reservedUntil = null WHERE o.id IN :ids AND o.reservedUntil IS NOT NULL")
+    int clearReservations(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer WHERE o.id IN :ids ORDER BY o.id")
+    List<Order> findWithCustomerByIdIn(@Param("ids") Collection<Long> ids);
 
 }
@@ -0,0 +1,48 @@
+package btp.bookingtradeplatform.Repository;
+
+import btp.bookingtradeplatform.Model.Entity.OutboxEvent;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Ghi nhiều sự kiện outbox bằng một JDBC batch (cập nhật trạng thái hàng loạt),
+ * cùng lý do với OrderItemJdbcRepository.
+ */
+@Repository
+public class OutboxEventJdbcRepository {
+
+    private static final String INSERT = "INSERT INTO outbox_event (order_id, event_type, payload, created_at) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxEventJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                OutboxEvent event = events.get(i);
+                ps.setLong(1, event.getOrderId());
+                ps.setString(2, event.getEventType().name());
+                ps.setString(3, event.getPayload());
+                ps.setTimestamp(4, Timestamp.valueOf(event.getCreatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
+}
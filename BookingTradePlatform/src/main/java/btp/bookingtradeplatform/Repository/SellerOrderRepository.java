@@ -0,0 +1,46 @@
+package btp.bookingtradeplatform.Repository;
+
+import btp.bookingtradeplatform.Model.Entity.SellerOrder;
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import io.lettuce.core.dynamic.annotation.Param;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface SellerOrderRepository extends JpaRepository<SellerOrder, Long> {
+
+    // Quét index (seller_id, order_date, order_id) theo keyset, mới nhất trước
+    @Query("SELECT s FROM SellerOrder s WHERE s.sellerId = :sellerId " +
+            "AND (s.orderDate < :beforeDate OR (s.orderDate = :beforeDate AND s.orderId < :beforeOrderId)) " +
+            "ORDER BY s.orderDate DESC, s.orderId DESC")
+    List<SellerOrder> findInboxPage(@Param("sellerId") Long sellerId,
+                                    @Param("beforeDate") LocalDateTime beforeDate,
+                                    @Param("beforeOrderId") Long beforeOrderId,
+                                    Limit limit);
+
+    // Quét index (seller_id, status, order_date, order_id); nhiều status là nhiều khoảng của cùng index
+    @Query("SELECT s FROM SellerOrder s WHERE s.sellerId = :sellerId AND s.status IN :statuses " +
+            "AND (s.orderDate < :beforeDate OR (s.orderDate = :beforeDate AND s.orderId < :beforeOrderId)) " +
+            "ORDER BY s.orderDate DESC, s.orderId DESC")
+    List<SellerOrder> findInboxPageByStatusIn(@Param("sellerId") Long sellerId,
+                                              @Param("statuses") Collection<OrderStatus> statuses,
+                                              @Param("beforeDate") LocalDateTime beforeDate,
+                                              @Param("beforeOrderId") Long beforeOrderId,
+                                              Limit limit);
+
+    @Query("SELECT s.orderId FROM SellerOrder s WHERE s.sellerId = :sellerId ORDER BY s.orderDate DESC, s.orderId DESC")
+    List<Long> findOrderIdsBySellerId(@Param("sellerId") Long sellerId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE SellerOrder s SET s.status = :status WHERE s.orderId = :orderId")
+    int updateStatusByOrderId(@Param("orderId") Long orderId, @Param("status") OrderStatus status);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE SellerOrder s SET s.status = :status WHERE s.orderId IN :orderIds")
+    int updateStatusByOrderIdIn(@Param("orderIds") Collection<Long> orderIds, @Param("status") OrderStatus status);
+}
@@ -1,9 +1,21 @@
 package btp.bookingtradeplatform.Repository;
 
 import btp.bookingtradeplatform.Model.Entity.Series;
+import io.lettuce.core.dynamic.annotation.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface SerieRepository extends JpaRepository<Series, Long> {
     boolean existsByName(String name);
+
+    // Cho ETag/Last-Modified: [version, updatedAt]
+    @Query("SELECT s.version, s.updatedAt FROM Series s WHERE s.id = :id")
+    List<Object[]> findVersionById(@Param("id") Long id);
+
+    // [số series, id lớn nhất, tổng version, updatedAt mới nhất]
+    @Query("SELECT COUNT(s), COALESCE(MAX(s.id), 0), COALESCE(SUM(s.version), 0), MAX(s.updatedAt) FROM Series s")
+    List<Object[]> findCatalogVersion();
     // Additional query methods can be defined here if needed
 }
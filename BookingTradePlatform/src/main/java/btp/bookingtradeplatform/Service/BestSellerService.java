@@ -0,0 +1,235 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.DTO.BestSellerDTO;
+import btp.bookingtradeplatform.Model.Event.BookSoldEvent;
+import btp.bookingtradeplatform.Model.Response.CursorPage;
+import btp.bookingtradeplatform.Model.Response.ResponseData;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Bảng xếp hạng sách bán chạy trên Redis sorted set, theo 3 phạm vi (toàn sàn, category, seller)
+ * và 2 cửa sổ (toàn thời gian, 7 ngày gần nhất).
+ * Được cộng dồn (ZINCRBY) sau mỗi lần trừ/hoàn kho nên đọc top-N chỉ là một ZREVRANGE, không chạm MySQL.
+ * Cửa sổ 7 ngày: mỗi ngày có một bucket riêng; khi một ngày rơi khỏi cửa sổ, bucket đó được trừ
+ * khỏi zset 7 ngày bằng ZUNIONSTORE với trọng số -1.
+ */
+@Slf4j
+@Service
+public class BestSellerService {
+
+    public static final String ALL_TIME = "all";
+    public static final String LAST_7_DAYS = "7d";
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+
+    private static final int WINDOW_DAYS = 7;
+    private static final String PREFIX = "bestseller:";
+    private static final String SEEDED = PREFIX + "seeded";
+    private static final String SEED_LOCK = PREFIX + "seeding";
+    private static final String SEED_CURSOR = PREFIX + "seed-cursor";
+    private static final Duration SEED_LOCK_TTL = Duration.ofMinutes(10);
+    private static final Duration DAY_TTL = Duration.ofDays(WINDOW_DAYS + 7);
+    private static final Duration ROLLED_TTL = Duration.ofDays(30);
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final BookRepository bookRepository;
+
+    public BestSellerService(RedisTemplate<String, String> redisTemplate, BookRepository bookRepository) {
+        this.redisTemplate = redisTemplate;
+        this.bookRepository = bookRepository;
+    }
+
+    public ResponseEntity<ResponseData<List<BestSellerDTO>>> getBestSellers(String scope, Long id,
+                                                                             String window, Integer limit) {
+        String key = (LAST_7_DAYS.equals(window) ? PREFIX + LAST_7_DAYS + ":" : PREFIX + ALL_TIME + ":")
+                + scopeKey(scope, id);
+        int max = CursorPage.clampSize(limit, DEFAULT_LIMIT, MAX_LIMIT);
+
+        Set<ZSetOperations.TypedTuple<String>> top = redisTemplate.opsForZSet().reverseRangeWithScores(key, 0, max - 1);
+        List<BestSellerDTO> result = new ArrayList<>();
+        if (top != null) {
+            int rank = 1;
+            for (ZSetOperations.TypedTuple<String> tuple : top) {
+                long sold = tuple.getScore() != null ? tuple.getScore().longValue() : 0;
+                if (sold <= 0) continue;
+                result.add(new BestSellerDTO(rank++, Long.valueOf(tuple.getValue()), sold));
+            }
+        }
+
+        return ResponseEntity
+                .status(AppException.SUCCESS.getHttpStatus())
+                .body(new ResponseData<>(
+                        AppException.SUCCESS.getCode(),
+                        AppException.SUCCESS.getMessage(),
+                        result
+                ));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookSold(BookSoldEvent event) {
+        if (event.getQuantities().isEmpty()) return;
+        try {
+            record(event.getQuantities(), event.getSaleDate());
+        } catch (Exception e) {
+            // Bảng xếp hạng là dữ liệu phái sinh, lỗi Redis không được làm hỏng luồng đặt hàng
+            log.warn("Could not update best-seller leaderboard: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Trừ các bucket ngày đã rơi khỏi cửa sổ 7 ngày. Mỗi ngày chỉ được trừ đúng một lần
+     * dù có nhiều instance cùng chạy (khoá SETNX theo ngày); quét lùi thêm vài ngày để bù khi bị down.
+     */
+    @Scheduled(cron = "5 0 0 * * *")
+    public void rollWindow() {
+        LocalDate today = LocalDate.now();
+        for (int back = WINDOW_DAYS * 2 - 1; back >= WINDOW_DAYS; back--) {
+            LocalDate day = today.minusDays(back);
+            Boolean first = redisTemplate.opsForValue().setIfAbsent(PREFIX + "rolled:" + day, "1", ROLLED_TTL);
+            if (!Boolean.TRUE.equals(first)) continue;
+
+            Set<String> scopes = redisTemplate.opsForSet().members(dayScopesKey(day));
+            if (scopes == null) continue;
+            for (String scope : scopes) {
+                String rolling = PREFIX + LAST_7_DAYS + ":" + scope;
+                redisTemplate.opsForZSet().unionAndStore(rolling, List.of(dayKey(day, scope)), rolling,
+                        Aggregate.SUM, Weights.of(1, -1));
+                redisTemplate.opsForZSet().removeRangeByScore(rolling, Double.NEGATIVE_INFINITY, 0);
+            }
+            log.info("Rolled best-seller day {} out of the 7-day window ({} scopes)", day, scopes.size());
+        }
+    }
+
+    /**
+     * Lần đầu chạy (Redis trống) nạp bảng toàn thời gian từ Book.soldCount.
+     * Cửa sổ 7 ngày bắt đầu đếm từ đây vì DB không lưu doanh số theo ngày.
+     * Chỉ một instance nạp nhờ khoá có TTL; dấu "seeded" chỉ được ghi khi nạp xong. Nạp lỗi thì nhả khoá,
+     * và con trỏ id lưu sau mỗi batch giúp lần khởi động sau nạp tiếp thay vì cộng lại từ đầu.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(SEEDED))) return;
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(SEED_LOCK, "1", SEED_LOCK_TTL))) return;
+        } catch (Exception e) {
+            log.warn("Could not seed best-seller leaderboard: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            String cursor = redisTemplate.opsForValue().get(SEED_CURSOR);
+            long afterId = cursor != null ? Long.parseLong(cursor) : 0L;
+            int seeded = 0;
+            List<Object[]> rows;
+            do {
+                rows = bookRepository.findSoldRowsAfter(afterId, Limit.of(SEED_BATCH_SIZE));
+                if (rows.isEmpty()) break;
+                Map<Long, Integer> sold = new HashMap<>();
+                for (Object[] row : rows) {
+                    sold.put((Long) row[0], ((Number) row[2]).intValue());
+                    afterId = (Long) row[0];
+                }
+                increment(sold, null);
+                redisTemplate.opsForValue().set(SEED_CURSOR, String.valueOf(afterId));
+                seeded += rows.size();
+            } while (rows.size() == SEED_BATCH_SIZE);
+
+            redisTemplate.opsForValue().set(SEEDED, "1");
+            redisTemplate.delete(List.of(SEED_CURSOR, SEED_LOCK));
+            log.info("Best-seller leaderboard seeded with {} books", seeded);
+        } catch (Exception e) {
+            log.warn("Could not seed best-seller leaderboard: {}", e.getMessage());
+            try {
+                redisTemplate.delete(SEED_LOCK);
+            } catch (Exception ignored) {
+                // Khoá tự hết hạn sau SEED_LOCK_TTL
+            }
+        }
+    }
+
+    private void record(Map<Long, Integer> quantities, LocalDate saleDate) {
+        LocalDate day = saleDate != null ? saleDate : LocalDate.now();
+        // Ngày đã rơi khỏi cửa sổ (vd. hoàn tiền đơn cũ) chỉ ảnh hưởng bảng toàn thời gian
+        boolean inWindow = day.isAfter(LocalDate.now().minusDays(WINDOW_DAYS));
+        increment(quantities, inWindow ? day : null);
+    }
+
+    // Một round-trip: ZINCRBY cho mọi (phạm vi, cửa sổ) mà mỗi cuốn sách thuộc về
+    private void increment(Map<Long, Integer> quantities, LocalDate day) {
+        Map<Long, List<String>> scopes = scopesOf(quantities.keySet());
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                Set<String> touched = new HashSet<>();
+                quantities.forEach((bookId, quantity) -> {
+                    for (String scope : scopes.getOrDefault(bookId, List.of("global"))) {
+                        String member = String.valueOf(bookId);
+                        ops.opsForZSet().incrementScore(PREFIX + ALL_TIME + ":" + scope, member, quantity);
+                        if (day != null) {
+                            ops.opsForZSet().incrementScore(PREFIX + LAST_7_DAYS + ":" + scope, member, quantity);
+                            ops.opsForZSet().incrementScore(dayKey(day, scope), member, quantity);
+                            touched.add(scope);
+                        }
+                    }
+                });
+                if (day != null && !touched.isEmpty()) {
+                    touched.forEach(scope -> ops.expire(dayKey(day, scope), DAY_TTL));
+                    ops.opsForSet().add(dayScopesKey(day), touched.toArray(new String[0]));
+                    ops.expire(dayScopesKey(day), DAY_TTL);
+                }
+                return null;
+            }
+        });
+    }
+
+    private Map<Long, List<String>> scopesOf(Collection<Long> bookIds) {
+        Map<Long, List<String>> scopes = new HashMap<>();
+        for (Long bookId : bookIds) {
+            scopes.put(bookId, new ArrayList<>(List.of("global")));
+        }
+        for (Object[] row : bookRepository.findSellerIdsByIdIn(bookIds)) {
+            if (row[1] != null) scopes.get((Long) row[0]).add("seller:" + row[1]);
+        }
+        for (Object[] row : bookRepository.findCategoryIdsByBookIdIn(bookIds)) {
+            scopes.get((Long) row[0]).add("category:" + row[1]);
+        }
+        return scopes;
+    }
+
+    private static String scopeKey(String scope, Long id) {
+        if (scope == null || scope.isBlank() || scope.equalsIgnoreCase("global")) return "global";
+        if (id == null) throw new BusinessException(AppException.BAD_REQUEST);
+        if (scope.equalsIgnoreCase("category")) return "category:" + id;
+        if (scope.equalsIgnoreCase("seller")) return "seller:" + id;
+        throw new BusinessException(AppException.BAD_REQUEST);
+    }
+
+    private static String dayKey(LocalDate day, String scope) {
+        return PREFIX + "day:" + day + ":" + scope;
+    }
+
+    private static String dayScopesKey(LocalDate day) {
+        return PREFIX + "day:" + day + ":scopes";
+    }
+}
@@ -0,0 +1,53 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Model.DTO.BookDTO;
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Chuyển một danh sách Book sang BookDTO với số truy vấn cố định:
+ * categories và additionalImages của cả danh sách được nạp bằng đúng một truy vấn mỗi loại,
+ * seller/series là LAZY nên chỉ đọc khoá ngoại, không phát sinh truy vấn.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookDTOAssembler {
+
+    private final BookRepository bookRepository;
+
+    public List<BookDTO> toDTOs(List<Book> books) {
+        if (books.isEmpty()) return List.of();
+
+        List<Long> ids = books.stream().map(Book::getId).toList();
+        Map<Long, List<Long>> categoryIds = new HashMap<>();
+        Map<Long, List<String>> categoryNames = new HashMap<>();
+        for (Object[] row : bookRepository.findCategoriesByBookIdIn(ids)) {
+            categoryIds.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+            categoryNames.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[2]);
+        }
+        Map<Long, List<String>> images = group(bookRepository.findAdditionalImagesByBookIdIn(ids));
+
+        List<BookDTO> dtos = new ArrayList<>(books.size());
+        for (Book book : books) {
+            dtos.add(BookDTO.fromEntity(
+                    book,
+                    categoryIds.getOrDefault(book.getId(), new ArrayList<>()),
+                    categoryNames.getOrDefault(book.getId(), new ArrayList<>()),
+                    images.getOrDefault(book.getId(), new ArrayList<>())
+            ));
+        }
+        return dtos;
+    }
+
+    private static Map<Long, List<String>> group(List<Object[]> rows) {
+        Map<Long, List<String>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return grouped;
+    }
+}
@@ -0,0 +1,164 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Model.DTO.BookDTO;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Cache 2 tầng cho trang chi tiết sách:
+ * tầng 1 là Caffeine trong từng instance (giới hạn số lượng + TTL),
+ * tầng 2 là Redis dùng chung. Khi sách thay đổi, key Redis bị xoá và id được
+ * broadcast qua kênh pub/sub để mọi instance xoá bản local của mình.
+ * Mỗi lần invalidate tăng epoch của id trên Redis; bản vừa nạp chỉ được ghi lên Redis nếu epoch
+ * không đổi trong lúc nạp, để loader đọc dòng trước khi update commit không ghi đè bản cũ lên key vừa xoá.
+ */
+@Slf4j
+@Component
+public class BookDetailCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "book:invalidate";
+    private static final String KEY_PREFIX = "book:dto:";
+    private static final String EPOCH_PREFIX = "book:epoch:";
+
+    // KEYS: dto, epoch; ARGV: json, ttl (giây), epoch đọc trước khi nạp
+    private static final RedisScript<Long> WRITE_IF_CURRENT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[3] then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) " +
+            "return 1", Long.class);
+
+    // KEYS: dto, epoch; ARGV: ttl của epoch (giây), phải dài hơn một lần nạp
+    private static final RedisScript<Long> INVALIDATE = new DefaultRedisScript<>(
+            "local epoch = redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return epoch", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, BookDTO> local;
+    private final Duration redisTtl;
+
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter invalidations;
+
+    public BookDetailCache(RedisTemplate<String, String> redisTemplate,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.cache.book.local-max-size:10000}") long localMaxSize,
+                           @Value("${app.cache.book.local-ttl-seconds:60}") long localTtlSeconds,
+                           @Value("${app.cache.book.redis-ttl-seconds:600}") long redisTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.redisTtl = Duration.ofSeconds(redisTtlSeconds);
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .recordStats()
+                .build();
+
+        // hits/misses/evictions của tầng local: cache.gets, cache.evictions{cache=book.detail}
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "book.detail");
+        this.redisHits = meterRegistry.counter("book.detail.redis", "result", "hit");
+        this.redisMisses = meterRegistry.counter("book.detail.redis", "result", "miss");
+        this.invalidations = meterRegistry.counter("book.detail.invalidations");
+    }
+
+    /**
+     * Đọc qua 2 tầng; loader chỉ chạy khi cả 2 tầng đều miss và
+     * chỉ một luồng nạp cho mỗi id tại một thời điểm.
+     */
+    public BookDTO get(Long bookId, Function<Long, BookDTO> loader) {
+        return local.get(bookId, id -> {
+            BookDTO cached = readRedis(id);
+            if (cached != null) {
+                redisHits.increment();
+                return cached;
+            }
+            redisMisses.increment();
+            String epoch = readEpoch(id);
+            BookDTO loaded = loader.apply(id);
+            if (epoch != null) writeRedis(id, loaded, epoch);
+            return loaded;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        for (Long bookId : event.getBookIds()) {
+            invalidate(bookId);
+        }
+    }
+
+    public void invalidate(Long bookId) {
+        invalidations.increment();
+        local.invalidate(bookId);
+        try {
+            redisTemplate.execute(INVALIDATE, List.of(KEY_PREFIX + bookId, EPOCH_PREFIX + bookId),
+                    String.valueOf(redisTtl.toSeconds()));
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.valueOf(bookId));
+        } catch (Exception e) {
+            // Redis lỗi thì các node khác chỉ còn dựa vào TTL local
+            log.warn("Could not broadcast book cache invalidation for {}: {}", bookId, e.getMessage());
+        }
+    }
+
+    // Nhận invalidation từ các instance khác (và của chính mình)
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            local.invalidate(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8).trim()));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed book invalidation message");
+        }
+    }
+
+    private BookDTO readRedis(Long bookId) {
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + bookId);
+            return json != null ? objectMapper.readValue(json, BookDTO.class) : null;
+        } catch (Exception e) {
+            log.warn("Redis read failed for book {}: {}", bookId, e.getMessage());
+            return null;
+        }
+    }
+
+    // null nếu không đọc được epoch: khi đó không ghi Redis, chỉ giữ bản local
+    private String readEpoch(Long bookId) {
+        try {
+            String epoch = redisTemplate.opsForValue().get(EPOCH_PREFIX + bookId);
+            return epoch != null ? epoch : "0";
+        } catch (Exception e) {
+            log.warn("Redis epoch read failed for book {}: {}", bookId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(Long bookId, BookDTO dto, String epoch) {
+        try {
+            redisTemplate.execute(WRITE_IF_CURRENT, List.of(KEY_PREFIX + bookId, EPOCH_PREFIX + bookId),
+                    objectMapper.writeValueAsString(dto), String.valueOf(redisTtl.toSeconds()), epoch);
+        } catch (Exception e) {
+            log.warn("Redis write failed for book {}: {}", bookId, e.getMessage());
+        }
+    }
+}
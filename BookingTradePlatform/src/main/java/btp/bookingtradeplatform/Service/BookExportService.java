@@ -0,0 +1,137 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.DTO.BookDTO;
+import btp.bookingtradeplatform.Model.Entity.Book;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Xuất toàn bộ catalog ra NDJSON hoặc CSV.
+ * Sách được đọc qua một Hibernate scroll FORWARD_ONLY và ghi thẳng ra response;
+ * cứ CHUNK_SIZE dòng thì nạp categories/ảnh theo lô, ghi, rồi clear persistence context
+ * nên bộ nhớ không phụ thuộc kích thước catalog.
+ * Trên MySQL, scroll chỉ stream thật khi bật useCursorFetch (xem application.properties).
+ */
+@Service
+public class BookExportService {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private static final int CHUNK_SIZE = 500;
+    private static final String CSV_HEADER = "id,title,description,author,language,pageCount,coverImage,additionalImages," +
+            "price,stock,sellerId,seriesId,format,categoryIds,isActive,soldCount";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookDTOAssembler bookDTOAssembler;
+
+    public ResponseEntity<StreamingResponseBody> exportBooks(String format) {
+        String type = format == null || format.isBlank() ? NDJSON : format.trim().toLowerCase();
+        if (!type.equals(NDJSON) && !type.equals(CSV)) {
+            throw new BusinessException(AppException.BAD_REQUEST);
+        }
+        boolean csv = type.equals(CSV);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        StreamingResponseBody body = out -> readOnly.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            try (ScrollableResults<Book> rows = session
+                    .createSelectionQuery("FROM Book b ORDER BY b.id", Book.class)
+                    .setReadOnly(true)
+                    .setCacheMode(CacheMode.IGNORE)
+                    .setFetchSize(CHUNK_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                if (csv) writer.write(CSV_HEADER + "\n");
+
+                List<Book> chunk = new ArrayList<>(CHUNK_SIZE);
+                while (rows.next()) {
+                    chunk.add(rows.get());
+                    if (chunk.size() == CHUNK_SIZE) writeChunk(session, chunk, writer, csv);
+                }
+                writeChunk(session, chunk, writer, csv);
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books." + type + "\"")
+                .body(body);
+    }
+
+    private void writeChunk(Session session, List<Book> chunk, Writer writer, boolean csv) throws IOException {
+        if (chunk.isEmpty()) return;
+        for (BookDTO dto : bookDTOAssembler.toDTOs(chunk)) {
+            writer.write(csv ? toCsvLine(dto) : objectMapper.writeValueAsString(dto));
+            writer.write('\n');
+        }
+        writer.flush();
+        chunk.clear();
+        // Bỏ các entity đã ghi khỏi persistence context để bộ nhớ không tăng theo số dòng
+        session.clear();
+    }
+
+    private static String toCsvLine(BookDTO b) {
+        return String.join(",",
+                String.valueOf(b.getId()),
+                csv(b.getTitle()),
+                csv(b.getDescription()),
+                csv(b.getAuthor()),
+                csv(b.getLanguage()),
+                String.valueOf(b.getPageCount()),
+                csv(b.getCoverImage()),
+                csv(String.join(";", b.getAdditionalImages())),
+                b.getPrice() != null ? b.getPrice().toPlainString() : "",
+                String.valueOf(b.getStock()),
+                b.getSellerId() != null ? String.valueOf(b.getSellerId()) : "",
+                b.getSeriesId() != null ? String.valueOf(b.getSeriesId()) : "",
+                b.getFormat() != null ? b.getFormat().name() : "",
+                b.getCategoryIds().stream().map(String::valueOf).collect(Collectors.joining(";")),
+                String.valueOf(b.isActive()),
+                String.valueOf(b.getSoldCount()));
+    }
+
+    // Escape theo RFC 4180, cùng định dạng mà /books/import đọc được
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
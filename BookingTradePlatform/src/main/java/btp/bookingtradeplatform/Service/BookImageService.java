@@ -2,12 +2,14 @@ package btp.bookingtradeplatform.Service;
 
 import btp.bookingtradeplatform.Model.Entity.Book;
 import btp.bookingtradeplatform.Model.Entity.User;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
 import btp.bookingtradeplatform.Repository.BookRepository;
 import btp.bookingtradeplatform.Repository.UserRepository;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -25,6 +27,7 @@ public class BookImageService {
 
     private final Cloudinary cloudinary;
     private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     private UserRepository userRepository;
@@ -65,7 +68,9 @@ public class BookImageService {
             book.setAdditionalImages(urls);
         }
 
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.upsert(bookId));
+        return saved;
     }
 
     public User updateAvatar(Long userId, MultipartFile avatarFile) throws IOException {
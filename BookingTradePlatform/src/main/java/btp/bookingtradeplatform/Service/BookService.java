@@ -4,26 +4,49 @@ import btp.bookingtradeplatform.Exception.AppException;
 import btp.bookingtradeplatform.Exception.BusinessException;
 import btp.bookingtradeplatform.Model.DTO.BookDTO;
 import btp.bookingtradeplatform.Model.DTO.BookSummaryDTO;
+import btp.bookingtradeplatform.Model.DTO.FacetedBooksDTO;
+import btp.bookingtradeplatform.Model.DTO.SuggestionDTO;
 import btp.bookingtradeplatform.Model.Entity.Book;
 import btp.bookingtradeplatform.Model.Entity.Category;
 import btp.bookingtradeplatform.Model.Entity.Seller;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import btp.bookingtradeplatform.Model.Event.BookPriceChangedEvent;
+import btp.bookingtradeplatform.Model.Request.BrowseBooksRequest;
 import btp.bookingtradeplatform.Model.Request.CreateBookRequest;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdateBookForm;
+import btp.bookingtradeplatform.Model.Response.CacheValidators;
+import btp.bookingtradeplatform.Model.Response.CursorPage;
 import btp.bookingtradeplatform.Model.Response.ResponseData;
 import btp.bookingtradeplatform.Repository.BookRepository;
 import btp.bookingtradeplatform.Repository.CategoryRepository;
 import btp.bookingtradeplatform.Repository.SellerRepository;
+import btp.bookingtradeplatform.Service.Search.BookFacetIndex;
+import btp.bookingtradeplatform.Service.Search.BookSearchIndex;
+import btp.bookingtradeplatform.Service.Search.BookSuggestIndex;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
 @Transactional
 @Service
 public class BookService {
@@ -40,30 +63,113 @@ public class BookService {
     @Autowired
     private JavaMailSender emailSender;
 
-    public ResponseEntity<ResponseData<List<BookDTO>>> getAllBooks() {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookSuggestIndex bookSuggestIndex;
+
+    @Autowired
+    private BookFacetIndex bookFacetIndex;
+
+    @Autowired
+    private BookDTOAssembler bookDTOAssembler;
+
+    @Autowired
+    private BookDetailCache bookDetailCache;
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int FLUSH_EVERY = 20;
+
+    /**
+     * Nạp toàn bộ bảng book vào bộ nhớ, chỉ nên dùng cho catalog nhỏ.
+     * Danh sách lớn dùng {@link #streamBookPage(String, Integer)}.
+     */
+    public ResponseEntity<ResponseData<List<BookDTO>>> getAllBooks(HttpHeaders requestHeaders) {
+        CacheValidators validators = CacheValidators.ofCollection("books",
+                concat(bookRepository.findCatalogVersion(), categoryRepository.findCatalogVersion()));
+        if (validators.isNotModified(requestHeaders)) return validators.notModified();
+
         List<Book> books = bookRepository.findAll();
-        List<BookDTO> bookDTOs = books.stream().map(BookDTO::fromEntity).toList();
+        return validators.ok(bookDTOAssembler.toDTOs(books));
+    }
+
+    /**
+     * Phân trang keyset theo id tăng dần. Cursor và size được kiểm tra ngay tại đây
+     * để lỗi trả về qua GlobalHandleException; phần thân được ghi dần ra output stream
+     * theo cùng cấu trúc ResponseData&lt;CursorPage&lt;BookDTO&gt;&gt;.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<StreamingResponseBody> streamBookPage(String cursor, Integer size) {
+        long afterId = (cursor == null || cursor.isBlank()) ? 0L : CursorPage.decodeIdCursor(cursor);
+        int pageSize = CursorPage.clampSize(size, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        StreamingResponseBody body = out -> readOnly.executeWithoutResult(status -> {
+            // Lấy dư 1 bản ghi để biết còn trang sau hay không
+            List<Book> books = bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1));
+            boolean hasMore = books.size() > pageSize;
+            List<Book> page = hasMore ? books.subList(0, pageSize) : books;
+
+            try (JsonGenerator gen = objectMapper.createGenerator(out, JsonEncoding.UTF8)) {
+                gen.writeStartObject();
+                gen.writeStringField("statusCode", AppException.SUCCESS.getCode());
+                gen.writeStringField("message", AppException.SUCCESS.getMessage());
+                gen.writeObjectFieldStart("data");
+                gen.writeArrayFieldStart("items");
+                int written = 0;
+                for (BookDTO dto : bookDTOAssembler.toDTOs(page)) {
+                    gen.writeObject(dto);
+                    if (++written % FLUSH_EVERY == 0) gen.flush();
+                }
+                gen.writeEndArray();
+                if (hasMore) {
+                    gen.writeStringField("nextCursor", CursorPage.encodeCursor(page.get(page.size() - 1).getId()));
+                } else {
+                    gen.writeNullField("nextCursor");
+                }
+                gen.writeBooleanField("hasMore", hasMore);
+                gen.writeEndObject();
+                gen.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
-                .body(new ResponseData<>(
-                        AppException.SUCCESS.getCode(),
-                        AppException.SUCCESS.getMessage(),
-                        bookDTOs
-                ));
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
-    public ResponseEntity<ResponseData<BookDTO>> getBookById(Long id) {
+    // SUPPORTS: cache hit không mở transaction / không mượn connection.
+    // ETag lấy từ version của DTO trong cache (cache bị xoá khi sách/category/series đổi)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ResponseEntity<ResponseData<BookDTO>> getBookById(Long id, HttpHeaders requestHeaders) {
+        BookDTO dto = bookDetailCache.get(id, this::loadBookDTO);
+
+        CacheValidators validators = CacheValidators.of("book:" + id, List.<Object[]>of(
+                new Object[]{dto.getVersion(), dto.getUpdatedAt(), dto.getSeriesId(), dto.getCategoryNames()}));
+        if (validators.isNotModified(requestHeaders)) return validators.notModified();
+        return validators.ok(dto);
+    }
+
+    private BookDTO loadBookDTO(Long id) {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new BusinessException(AppException.BOOK_NOT_FOUND));
-
-        return ResponseEntity
-                .status(AppException.SUCCESS.getHttpStatus())
-                .body(new ResponseData<>(
-                        AppException.SUCCESS.getCode(),
-                        AppException.SUCCESS.getMessage(),
-                        BookDTO.fromEntity(book)
-                ));
+        return bookDTOAssembler.toDTOs(List.of(book)).get(0);
     }
 
 
@@ -89,6 +195,7 @@ public class BookService {
         book.setCategories(categories);
 
         Book saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.upsert(saved.getId()));
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
@@ -110,8 +217,17 @@ public class BookService {
         if (request.getPageCount() != null) book.setPageCount(request.getPageCount());
         if (request.getCoverImage() != null) book.setCoverImage(request.getCoverImage());
         if (request.getAdditionalImages() != null) book.setAdditionalImages(request.getAdditionalImages());
+        boolean priceChanged = request.getPrice() != null
+                && (book.getPrice() == null || book.getPrice().compareTo(request.getPrice()) != 0);
         if (request.getPrice() != null) book.setPrice(request.getPrice());
-        if (request.getStock() != null) book.setStock(request.getStock());
+        if (request.getStock() != null) {
+            // Không được hạ kho xuống dưới phần đang giữ cho đơn chờ thanh toán. Giữ/chốt hàng đều tăng
+            // version nên nếu có đơn giữ thêm sau lần đọc này, UPDATE theo @Version sẽ thất bại
+            if (request.getStock() < book.getReserved()) {
+                throw new BusinessException(AppException.BAD_REQUEST);
+            }
+            book.setStock(request.getStock());
+        }
         if (request.getFormat() != null) book.setFormat(request.getFormat());
 
         if (request.getCategoryIds() != null) {
@@ -120,6 +236,10 @@ public class BookService {
         }
 
         Book updated = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.upsert(updated.getId()));
+        if (priceChanged) {
+            eventPublisher.publishEvent(new BookPriceChangedEvent(List.of(updated.getId())));
+        }
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
@@ -135,16 +255,35 @@ public class BookService {
                 .orElseThrow(() -> new BusinessException(AppException.BOOK_NOT_FOUND));
 
         bookRepository.delete(book);
+        eventPublisher.publishEvent(BookChangedEvent.delete(id));
 
         return ResponseEntity.ok("Deleted successfully.");
     }
 
-    public ResponseEntity<ResponseData<List<BookDTO>>> searchBooks(String keyword) {
-        List<Book> search = bookRepository.searchByKeyword(keyword);
-        List<BookDTO> bookDTOs = search.stream().map(BookDTO::fromEntity).toList();
+    /**
+     * Tìm kiếm qua BookSearchIndex, kết quả đã xếp hạng và phân trang (page bắt đầu từ 0).
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<ResponseData<List<BookDTO>>> searchBooks(String keyword, Integer page, Integer size) {
+        int pageSize = CursorPage.clampSize(size, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+        int pageIndex = (page == null || page < 0) ? 0 : page;
+
+        BookSearchIndex.Hits hits = bookSearchIndex.search(keyword, pageIndex * pageSize, pageSize);
+
+        // findAllById không giữ thứ tự, sắp lại theo thứ hạng
+        Map<Long, Book> byId = new HashMap<>();
+        for (Book book : bookRepository.findAllById(hits.getBookIds())) {
+            byId.put(book.getId(), book);
+        }
+        List<Book> ranked = hits.getBookIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+        List<BookDTO> bookDTOs = bookDTOAssembler.toDTOs(ranked);
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
+                .header("X-Total-Count", String.valueOf(hits.getTotal()))
                 .body(new ResponseData<>(
                         AppException.SUCCESS.getCode(),
                         AppException.SUCCESS.getMessage(),
@@ -152,19 +291,115 @@ public class BookService {
                 ));
     }
 
-    public ResponseEntity<ResponseData<List<BookDTO>>> getBooksbySeller(Long sellerId) {
-        List<Book> search = bookRepository.findBySellerId(sellerId);
-        List<BookDTO> bookDTOs = search.stream().map(BookDTO::fromEntity).toList();
+    /**
+     * Lọc theo facet và đếm số sách cho từng giá trị facet bằng BookFacetIndex;
+     * DB chỉ dùng để nạp đúng một trang sách và tên category, không GROUP BY theo từng facet.
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<ResponseData<FacetedBooksDTO>> browseBooks(BrowseBooksRequest request) {
+        Long afterId = (request.getCursor() == null || request.getCursor().isBlank())
+                ? null : CursorPage.decodeIdCursor(request.getCursor());
+        int pageSize = CursorPage.clampSize(request.getSize(), DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+
+        Map<String, Set<String>> selected = new HashMap<>();
+        selected.put(BookFacetIndex.CATEGORY, asStrings(request.getCategoryIds()));
+        selected.put(BookFacetIndex.FORMAT, asStrings(request.getFormats()));
+        selected.put(BookFacetIndex.LANGUAGE, asStrings(request.getLanguages() == null ? null
+                : request.getLanguages().stream().map(l -> l.trim().toLowerCase(Locale.ROOT)).toList()));
+        selected.put(BookFacetIndex.PRICE, asStrings(request.getPriceRanges()));
+        selected.put(BookFacetIndex.SELLER, asStrings(request.getSellerIds()));
+
+        BookFacetIndex.Result result = bookFacetIndex.browse(selected, afterId, pageSize);
+
+        Map<Long, Book> byId = new HashMap<>();
+        for (Book book : bookRepository.findAllById(result.getBookIds())) {
+            byId.put(book.getId(), book);
+        }
+        List<Book> page = result.getBookIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        String nextCursor = result.isHasMore() && !result.getBookIds().isEmpty()
+                ? CursorPage.encodeCursor(result.getBookIds().get(result.getBookIds().size() - 1))
+                : null;
+
+        FacetedBooksDTO dto = new FacetedBooksDTO(
+                bookDTOAssembler.toDTOs(page),
+                nextCursor,
+                result.isHasMore(),
+                result.getTotal(),
+                toFacetValues(result.getFacets())
+        );
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
                 .body(new ResponseData<>(
                         AppException.SUCCESS.getCode(),
                         AppException.SUCCESS.getMessage(),
-                        bookDTOs
+                        dto
                 ));
     }
 
+    private Map<String, List<FacetedBooksDTO.FacetValue>> toFacetValues(
+            Map<String, List<BookFacetIndex.FacetCount>> counts) {
+        List<Long> categoryIds = counts.getOrDefault(BookFacetIndex.CATEGORY, List.of()).stream()
+                .map(c -> Long.valueOf(c.getValue()))
+                .toList();
+        Map<String, String> categoryNames = new HashMap<>();
+        for (Category category : categoryRepository.findAllById(categoryIds)) {
+            categoryNames.put(String.valueOf(category.getId()), category.getName());
+        }
+
+        Map<String, List<FacetedBooksDTO.FacetValue>> facets = new LinkedHashMap<>();
+        counts.forEach((facet, values) -> facets.put(facet, values.stream()
+                .map(c -> new FacetedBooksDTO.FacetValue(
+                        c.getValue(),
+                        BookFacetIndex.CATEGORY.equals(facet) ? categoryNames.get(c.getValue()) : null,
+                        c.getCount()))
+                .toList()));
+        return facets;
+    }
+
+    private static Set<String> asStrings(Collection<?> values) {
+        if (values == null) return Set.of();
+        Set<String> result = new HashSet<>();
+        for (Object value : values) {
+            if (value != null) result.add(value.toString());
+        }
+        return result;
+    }
+
+    // Chỉ đọc từ BookSuggestIndex trong bộ nhớ, không chạm DB
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<ResponseData<List<SuggestionDTO>>> suggest(String prefix, Integer limit) {
+        int max = CursorPage.clampSize(limit, BookSuggestIndex.MAX_SUGGESTIONS, BookSuggestIndex.MAX_SUGGESTIONS);
+        List<SuggestionDTO> suggestions = bookSuggestIndex.suggest(prefix, max);
+
+        return ResponseEntity
+                .status(AppException.SUCCESS.getHttpStatus())
+                .body(new ResponseData<>(
+                        AppException.SUCCESS.getCode(),
+                        AppException.SUCCESS.getMessage(),
+                        suggestions
+                ));
+    }
+
+    public ResponseEntity<ResponseData<List<BookDTO>>> getBooksbySeller(Long sellerId, HttpHeaders requestHeaders) {
+        CacheValidators validators = CacheValidators.ofCollection("books:seller:" + sellerId,
+                concat(bookRepository.findCatalogVersionBySellerId(sellerId), categoryRepository.findCatalogVersion()));
+        if (validators.isNotModified(requestHeaders)) return validators.notModified();
+
+        List<Book> search = bookRepository.findBySellerId(sellerId);
+        return validators.ok(bookDTOAssembler.toDTOs(search));
+    }
+
+    private static List<Object[]> concat(List<Object[]> first, List<Object[]> second) {
+        List<Object[]> rows = new ArrayList<>(first);
+        rows.addAll(second);
+        return rows;
+    }
+
     public List<BookSummaryDTO> getAllBookSummaries() {
         List<Book> books = bookRepository.findAll();
 
@@ -0,0 +1,102 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.DTO.OrderDTO;
+import btp.bookingtradeplatform.Model.Event.CartCheckedOutEvent;
+import btp.bookingtradeplatform.Model.Request.CheckoutRequest;
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Model.Response.ResponseData;
+import btp.bookingtradeplatform.Repository.CartItemRepository;
+import btp.bookingtradeplatform.Service.CartService;
+import btp.bookingtradeplatform.Service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * Đặt hàng thẳng từ giỏ trong một transaction: đọc giỏ từ CartStore rồi giành giỏ trước bằng
+ * CartStore.takeIfVersion (trừ đúng số lượng sẽ đặt, chỉ khi version giỏ chưa đổi). Giỏ bị sửa hoặc được
+ * checkout song song sau lúc đọc thì request này nhận CART_CHANGED thay vì đặt trùng hoặc đặt theo giỏ cũ.
+ * Sau đó tạo đơn qua OrderService.placeOrder (sách, seller và mã giảm giá được nạp một lượt, giá chụp vào
+ * OrderItem) và xoá CartItem bằng một câu DELETE. Phần đã trừ trong store được trả lại nếu transaction rollback;
+ * sách khách thêm vào giỏ sau khi giành vẫn được giữ lại.
+ */
+@Slf4j
+@Service
+public class CartCheckoutService {
+
+    private final CartService cartService;
+    private final CartStore cartStore;
+    private final OrderService orderService;
+    private final CartItemRepository cartItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CartCheckoutService(CartService cartService, CartStore cartStore, OrderService orderService,
+                               CartItemRepository cartItemRepository, ApplicationEventPublisher eventPublisher) {
+        this.cartService = cartService;
+        this.cartStore = cartStore;
+        this.orderService = orderService;
+        this.cartItemRepository = cartItemRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public ResponseEntity<ResponseData<OrderDTO>> checkout(CheckoutRequest request) {
+        Long userId = request.getCustomerId();
+        CartSnapshot cart = cartService.currentCart(userId);
+        if (cart.lines().isEmpty()) {
+            throw new BusinessException(AppException.CART_EMPTY);
+        }
+
+        Map<Long, String> discountCodes = request.getDiscountCodes() != null ? request.getDiscountCodes() : Map.of();
+        List<CreateOrderRequest.OrderItemRequest> items = new ArrayList<>();
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (CartLine line : cart.lines()) {
+            items.add(new CreateOrderRequest.OrderItemRequest(line.bookId(), line.quantity(),
+                    discountCodes.get(line.bookId())));
+            deltas.put(line.bookId(), -line.quantity());
+        }
+        // Giành giỏ trước khi tạo đơn: hai checkout cùng đọc một version thì chỉ một bên trừ được
+        if (!cartStore.takeIfVersion(userId, cart.version(), deltas).orElse(false)) {
+            throw new BusinessException(AppException.CART_CHANGED);
+        }
+        // Từ đây mọi lỗi (hết hàng, mã giảm giá sai, commit thất bại) đều trả lại phần đã trừ
+        eventPublisher.publishEvent(new CartCheckedOutEvent(userId, cart.lines()));
+
+        OrderDTO dto = orderService.placeOrder(userId, items);
+
+        // Giỏ chưa từng được ghi xuống DB thì không có CartItem để xoá; CartWriteBehind sẽ ghi lại tổng giỏ theo store
+        if (cart.cartId() != null) {
+            cartItemRepository.deleteByCartId(cart.cartId());
+        }
+
+        return ResponseEntity.ok(new ResponseData<>(
+                AppException.SUCCESS.getCode(),
+                "Order created successfully",
+                dto
+        ));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onRolledBack(CartCheckedOutEvent event) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        Map<Long, CartLine> lines = new HashMap<>();
+        for (CartLine line : event.getLines()) {
+            deltas.put(line.bookId(), line.quantity());
+            lines.put(line.bookId(), line);
+        }
+        try {
+            // Giỏ đã hết hạn khỏi store thì lần nạp sau đọc lại CartItem chưa bị xoá trong DB
+            cartStore.apply(event.getUserId(), deltas, lines);
+        } catch (RuntimeException e) {
+            log.error("Could not restore cart of user {} after failed checkout: {}", event.getUserId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Service.Pricing.PricingEngine;
+
+/**
+ * Một dòng giỏ trong CartStore: số lượng kèm giá (đồng) và thông tin hiển thị chụp lại từ Book
+ * khi dòng được thêm, để đọc giỏ không phải nạp Book/Seller.
+ */
+public record CartLine(Long bookId, int quantity, long unitPrice, String title, String coverImage,
+                       Long sellerId, String sellerName, String storeName) {
+
+    // book phải nạp sẵn seller (vd. findAllWithSellerByIdIn)
+    public static CartLine of(Book book, int quantity) {
+        return new CartLine(book.getId(), quantity, PricingEngine.toMinor(book.getPrice()), book.getTitle(),
+                book.getCoverImage(), book.getSeller().getId(), book.getSeller().getFullName(),
+                book.getSeller().getStoreName());
+    }
+
+    public CartLine withQuantity(int quantity) {
+        return new CartLine(bookId, quantity, unitPrice, title, coverImage, sellerId, sellerName, storeName);
+    }
+
+    public CartLine withUnitPrice(long unitPrice) {
+        return new CartLine(bookId, quantity, unitPrice, title, coverImage, sellerId, sellerName, storeName);
+    }
+
+    public long subtotal() {
+        return PricingEngine.lineSubtotal(unitPrice, quantity);
+    }
+}
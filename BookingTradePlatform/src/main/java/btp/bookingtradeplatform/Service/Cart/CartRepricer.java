@@ -0,0 +1,100 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import btp.bookingtradeplatform.Model.Event.BookPriceChangedEvent;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import btp.bookingtradeplatform.Service.Pricing.PricingEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Cập nhật giá trong các giỏ khi giá sách thay đổi, thay vì để tổng giỏ cũ đến lần khách sửa giỏ kế tiếp.
+ * Sau commit, sách đổi giá được đưa vào hàng đợi trong CartStore; job định kỳ lấy theo lô, đọc giá hiện tại
+ * (một truy vấn cho cả lô, nên nhiều lần đổi giá liền nhau chỉ xử lý một lần) rồi duyệt index ngược
+ * bookId -> giỏ theo từng lô CART_BATCH_SIZE giỏ. Giỏ đổi giá được đánh dấu dirty để CartWriteBehind ghi xuống DB.
+ * Giỏ không còn trong store không cần xử lý: lần nạp lại từ DB sẽ lấy giá hiện tại của sách.
+ */
+@Slf4j
+@Component
+public class CartRepricer {
+
+    private static final int BOOK_BATCH_SIZE = 100;
+    private static final int CART_BATCH_SIZE = 500;
+    private static final int MAX_BATCHES_PER_RUN = 10;
+
+    private final CartStore cartStore;
+    private final BookRepository bookRepository;
+
+    public CartRepricer(CartStore cartStore, BookRepository bookRepository) {
+        this.cartStore = cartStore;
+        this.bookRepository = bookRepository;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceChanged(BookPriceChangedEvent event) {
+        if (event.getBookIds().isEmpty()) return;
+        try {
+            cartStore.markRepricing(event.getBookIds());
+        } catch (Exception e) {
+            // Giỏ vẫn đúng giá ở lần nạp lại; chỉ tổng đang hiển thị bị cũ
+            log.warn("Could not queue cart repricing for books {}: {}", event.getBookIds(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.reprice-interval-ms:1000}")
+    public synchronized void reprice() {
+        try {
+            repricePending();
+        } catch (Exception e) {
+            log.warn("Cart repricing failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Đổi giá ngay cho các sách đang chờ (tối đa MAX_BATCHES_PER_RUN lô sách).
+     *
+     * @return số giỏ đã đổi giá
+     */
+    public int repricePending() {
+        int total = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            List<Long> bookIds = cartStore.pollRepricing(BOOK_BATCH_SIZE);
+            if (bookIds.isEmpty()) break;
+            total += repriceBatch(bookIds);
+            if (bookIds.size() < BOOK_BATCH_SIZE) break;
+        }
+        return total;
+    }
+
+    private int repriceBatch(List<Long> bookIds) {
+        Map<Long, Long> prices = new HashMap<>();
+        Deque<Long> pending = new ArrayDeque<>(bookIds);
+        try {
+            for (Object[] row : bookRepository.findPricesByIdIn(bookIds)) {
+                prices.put((Long) row[0], PricingEngine.toMinor((BigDecimal) row[1]));
+            }
+            int repriced = 0;
+            while (!pending.isEmpty()) {
+                Long bookId = pending.peek();
+                // Sách đã bị xoá: giữ giá cũ trong giỏ, checkout sẽ báo lỗi
+                Long price = prices.get(bookId);
+                if (price != null) {
+                    int[] changed = {0};
+                    cartStore.scanUsersWithBook(bookId, CART_BATCH_SIZE,
+                            userIds -> changed[0] += cartStore.reprice(bookId, price, userIds));
+                    repriced += changed[0];
+                }
+                pending.poll();
+            }
+            return repriced;
+        } catch (RuntimeException e) {
+            // Đổi giá là idempotent nên chạy lại cả sách đang dở là an toàn
+            cartStore.markRepricing(pending);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import java.util.List;
+
+/**
+ * Trạng thái giỏ đọc từ CartStore.
+ *
+ * @param cartId  id dòng Cart trong DB; null khi giỏ chưa được ghi xuống lần nào
+ * @param version tăng sau mỗi lần sửa giỏ, dùng để bỏ qua bản ghi cũ hơn bản đã lưu DB
+ * @param total   tổng tiền (đồng), được store cộng/trừ theo từng dòng thay đổi chứ không tính lại cả giỏ
+ */
+public record CartSnapshot(Long cartId, long version, long total, List<CartLine> lines) {
+
+    // Tính tổng một lần khi nạp giỏ từ DB
+    public static CartSnapshot of(Long cartId, long version, List<CartLine> lines) {
+        long total = 0;
+        for (CartLine line : lines) {
+            total = Math.addExact(total, line.subtotal());
+        }
+        return new CartSnapshot(cartId, version, total, lines);
+    }
+}
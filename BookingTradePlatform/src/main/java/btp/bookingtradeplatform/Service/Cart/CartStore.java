@@ -0,0 +1,69 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Nơi giữ giỏ hàng đang dùng: Redis khi chạy thật, bộ nhớ khi test (app.cart.store).
+ * Mỗi thao tác sửa giỏ là nguyên tử, tăng version và đánh dấu giỏ "dirty";
+ * CartWriteBehind gom các giỏ dirty và ghi xuống bảng Cart/CartItem theo lô.
+ * Giỏ chưa có trong store (lần đầu, hoặc đã hết hạn) phải được nạp từ DB bằng load trước khi sửa.
+ * Giỏ được giữ theo bookId và tổng tiền được cộng/trừ theo phần chênh lệch, nên apply/remove
+ * chỉ tốn chi phí theo số sách thay đổi, không theo kích thước giỏ.
+ */
+public interface CartStore {
+
+    Optional<CartSnapshot> get(Long userId);
+
+    // Đọc nhiều giỏ một lượt; giỏ không còn trong store bị bỏ qua
+    Map<Long, CartSnapshot> getAll(Collection<Long> userIds);
+
+    // Nạp giỏ từ DB; không làm gì nếu giỏ đã có trong store (request khác vừa nạp/sửa)
+    void load(Long userId, CartSnapshot snapshot);
+
+    /**
+     * Cộng số lượng theo từng sách, dòng về <= 0 bị xoá. Sách chưa có trong giỏ cần thông tin dòng trong newLines.
+     * Tất cả hoặc không áp dụng gì.
+     *
+     * @return Optional.empty() nếu giỏ chưa nạp; ngược lại các sách cần thông tin dòng mà newLines thiếu
+     * (khi đó chưa có gì được áp dụng)
+     */
+    Optional<List<Long>> apply(Long userId, Map<Long, Integer> deltas, Map<Long, CartLine> newLines);
+
+    /**
+     * Trừ số lượng các dòng đang có trong giỏ, chỉ khi version của giỏ vẫn là expectedVersion
+     * (so sánh và trừ trong một thao tác nguyên tử). Dòng về <= 0 bị xoá.
+     *
+     * @return Optional.empty() nếu giỏ chưa nạp; false nếu giỏ đã đổi version (không có gì được áp dụng)
+     */
+    Optional<Boolean> takeIfVersion(Long userId, long expectedVersion, Map<Long, Integer> deltas);
+
+    // Xoá một dòng; Optional.empty() nếu giỏ chưa nạp, false nếu giỏ không có sách đó
+    Optional<Boolean> remove(Long userId, Long bookId);
+
+    // Ghi lại id Cart sau khi giỏ được tạo trong DB
+    void assignCartId(Long userId, Long cartId);
+
+    // Lấy ra (và xoá khỏi tập dirty) tối đa max giỏ cần ghi xuống DB
+    List<Long> pollDirty(int max);
+
+    // Đánh dấu lại khi ghi DB thất bại
+    void markDirty(Collection<Long> userIds);
+
+    // Duyệt index ngược bookId -> userId theo từng lô, không nạp cả tập vào bộ nhớ
+    void scanUsersWithBook(Long bookId, int batchSize, Consumer<List<Long>> batch);
+
+    // Đặt giá mới của sách trong các giỏ đã cho và cộng phần chênh lệch vào tổng; trả về số giỏ đã đổi
+    int reprice(Long bookId, long unitPrice, Collection<Long> userIds);
+
+    // Bỏ các giỏ đã bị xoá khỏi DB (userId -> storeVersion đã ghi); giỏ có thay đổi mới hơn được giữ lại
+    void evict(Map<Long, Long> versions);
+
+    // Hàng đợi sách vừa đổi giá, dùng chung giữa các node
+    List<Long> pollRepricing(int max);
+
+    void markRepricing(Collection<Long> bookIds);
+}
@@ -0,0 +1,127 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import btp.bookingtradeplatform.Repository.CartItemRepository;
+import btp.bookingtradeplatform.Repository.CartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Xoá các giỏ không được sửa quá app.cart.abandoned-days ngày (theo Cart.updatedAt, có index).
+ * Mỗi lô CHUNK_SIZE giỏ là một transaction ngắn: khoá bằng SELECT ... FOR UPDATE SKIP LOCKED rồi xoá CartItem
+ * và Cart bằng hai câu DELETE ... WHERE IN, nên khoá chỉ giữ trong thời gian một lô. Các node chạy cùng lúc
+ * lấy các lô khác nhau thay vì chờ nhau; giỏ đang được write-behind ghi cũng bị bỏ qua và lần sau mới xét lại.
+ * Sau commit, bản trong CartStore bị bỏ nếu không có thay đổi mới hơn bản đã xoá.
+ * Số giỏ/item đã xoá và số lần lỗi được xuất qua Micrometer (cart.sweeper.*).
+ */
+@Slf4j
+@Component
+public class CartSweeper {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_CHUNKS_PER_RUN = 20;
+
+    // Kết quả một lô: userId -> storeVersion của các giỏ đã xoá và số CartItem đã xoá
+    private record Chunk(Map<Long, Long> versions, int items) {
+    }
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
+    private final TransactionTemplate transactionTemplate;
+    private final long abandonedDays;
+
+    private final Counter deletedCarts;
+    private final Counter deletedItems;
+    private final Counter failures;
+
+    public CartSweeper(CartRepository cartRepository, CartItemRepository cartItemRepository, CartStore cartStore,
+                       PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                       @Value("${app.cart.abandoned-days:30}") long abandonedDays) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.cartStore = cartStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.abandonedDays = abandonedDays;
+        this.deletedCarts = meterRegistry.counter("cart.sweeper.deleted.carts");
+        this.deletedItems = meterRegistry.counter("cart.sweeper.deleted.items");
+        this.failures = meterRegistry.counter("cart.sweeper.failures");
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.sweep-interval-ms:3600000}")
+    public synchronized void sweep() {
+        try {
+            int deleted = sweepPending();
+            if (deleted > 0) log.info("Swept {} abandoned carts", deleted);
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("Cart sweep failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Xoá ngay các giỏ bỏ quên (tối đa MAX_CHUNKS_PER_RUN lô).
+     *
+     * @return số giỏ đã xoá
+     */
+    public int sweepPending() {
+        stampLegacyCarts();
+        LocalDateTime before = LocalDateTime.now().minusDays(abandonedDays);
+        int total = 0;
+        for (int i = 0; i < MAX_CHUNKS_PER_RUN; i++) {
+            Chunk chunk = transactionTemplate.execute(status -> sweepChunk(before));
+            if (chunk == null || chunk.versions().isEmpty()) break;
+            // Chỉ đếm sau khi lô đã commit
+            deletedCarts.increment(chunk.versions().size());
+            deletedItems.increment(chunk.items());
+            evict(chunk.versions());
+            total += chunk.versions().size();
+            if (chunk.versions().size() < CHUNK_SIZE) break;
+        }
+        return total;
+    }
+
+    private Chunk sweepChunk(LocalDateTime before) {
+        List<Object[]> rows = cartRepository.lockAbandoned(before, Limit.of(CHUNK_SIZE));
+        if (rows.isEmpty()) return new Chunk(Map.of(), 0);
+
+        List<Long> cartIds = new ArrayList<>();
+        Map<Long, Long> versions = new HashMap<>();
+        for (Object[] row : rows) {
+            cartIds.add((Long) row[0]);
+            versions.put((Long) row[1], ((Number) row[2]).longValue());
+        }
+        int items = cartItemRepository.deleteByCartIdIn(cartIds);
+        cartRepository.deleteByIdIn(cartIds);
+        return new Chunk(versions, items);
+    }
+
+    private void evict(Map<Long, Long> versions) {
+        try {
+            cartStore.evict(versions);
+        } catch (RuntimeException e) {
+            // Bản trong store tự hết hạn; nếu khách sửa lại, write-behind tạo Cart mới
+            log.warn("Could not evict {} swept carts from the cart store: {}", versions.size(), e.getMessage());
+        }
+    }
+
+    private void stampLegacyCarts() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < MAX_CHUNKS_PER_RUN; i++) {
+            Integer stamped = transactionTemplate.execute(status -> {
+                List<Long> ids = cartRepository.findIdsWithoutUpdatedAt(Limit.of(CHUNK_SIZE));
+                return ids.isEmpty() ? 0 : cartRepository.stampUpdatedAt(ids, now);
+            });
+            if (stamped == null || stamped < CHUNK_SIZE) break;
+        }
+    }
+}
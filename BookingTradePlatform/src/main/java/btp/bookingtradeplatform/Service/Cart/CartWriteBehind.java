@@ -0,0 +1,126 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import btp.bookingtradeplatform.Model.Entity.Cart;
+import btp.bookingtradeplatform.Model.Entity.CartItem;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import btp.bookingtradeplatform.Repository.CartRepository;
+import btp.bookingtradeplatform.Service.Pricing.PricingEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Ghi các giỏ dirty từ CartStore xuống bảng Cart/CartItem theo lô.
+ * Nhiều lần sửa cùng một giỏ giữa hai lần chạy chỉ thành một lần ghi (giỏ nằm trong tập dirty một lần),
+ * và luôn ghi trạng thái mới nhất của store chứ không phát lại từng thao tác.
+ * Lô lỗi được đánh dấu dirty lại để lần sau ghi tiếp; Cart.storeVersion chặn bản cũ ghi đè bản mới
+ * khi hai node cùng xử lý một giỏ.
+ */
+@Slf4j
+@Component
+public class CartWriteBehind {
+
+    private static final int BATCH_SIZE = 200;
+    private static final int MAX_BATCHES_PER_RUN = 50;
+
+    private final CartStore cartStore;
+    private final CartRepository cartRepository;
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public CartWriteBehind(CartStore cartStore, CartRepository cartRepository, BookRepository bookRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.cartStore = cartStore;
+        this.cartRepository = cartRepository;
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        try {
+            flushPending();
+        } catch (Exception e) {
+            log.warn("Cart write-behind failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi ngay các giỏ đang chờ (tối đa MAX_BATCHES_PER_RUN lô).
+     *
+     * @return số giỏ đã ghi
+     */
+    public int flushPending() {
+        int total = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            List<Long> userIds = cartStore.pollDirty(BATCH_SIZE);
+            if (userIds.isEmpty()) break;
+            try {
+                total += flushBatch(userIds);
+            } catch (RuntimeException e) {
+                cartStore.markDirty(userIds);
+                throw e;
+            }
+            if (userIds.size() < BATCH_SIZE) break;
+        }
+        return total;
+    }
+
+    private int flushBatch(List<Long> userIds) {
+        // Giỏ đã hết hạn trong store không còn gì mới để ghi
+        Map<Long, CartSnapshot> snapshots = cartStore.getAll(userIds);
+        if (snapshots.isEmpty()) return 0;
+
+        Map<Long, Cart> created = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, Cart> carts = new HashMap<>();
+            for (Cart cart : cartRepository.lockWithItemsByUserIdIn(new TreeSet<>(snapshots.keySet()))) {
+                carts.put(cart.getUserId(), cart);
+            }
+            List<Cart> changed = new ArrayList<>();
+            snapshots.forEach((userId, snapshot) -> {
+                Cart cart = carts.get(userId);
+                if (cart == null) {
+                    cart = new Cart();
+                    cart.setUserId(userId);
+                    cart.setCartItems(new ArrayList<>());
+                    created.put(userId, cart);
+                } else if (cart.getStoreVersion() >= snapshot.version()) {
+                    return;
+                }
+                copy(snapshot, cart);
+                changed.add(cart);
+            });
+            cartRepository.saveAll(changed);
+        });
+
+        created.forEach((userId, cart) -> cartStore.assignCartId(userId, cart.getId()));
+        return snapshots.size();
+    }
+
+    private void copy(CartSnapshot snapshot, Cart cart) {
+        Map<Long, CartItem> items = new HashMap<>();
+        for (CartItem item : cart.getCartItems()) {
+            items.put(item.getBook().getId(), item);
+        }
+        Set<Long> kept = new HashSet<>();
+        for (CartLine line : snapshot.lines()) {
+            kept.add(line.bookId());
+            CartItem item = items.get(line.bookId());
+            if (item == null) {
+                item = new CartItem();
+                item.setCart(cart);
+                item.setBook(bookRepository.getReferenceById(line.bookId()));
+                cart.getCartItems().add(item);
+            }
+            item.setQuantity(line.quantity());
+        }
+        cart.getCartItems().removeIf(item -> !kept.contains(item.getBook().getId()));
+        cart.setTotalPrice(PricingEngine.toAmount(snapshot.total()));
+        cart.setStoreVersion(snapshot.version());
+    }
+}
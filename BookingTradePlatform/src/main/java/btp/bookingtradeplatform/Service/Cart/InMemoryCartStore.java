@@ -0,0 +1,216 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Giỏ hàng trong bộ nhớ, khoá theo từng giỏ; chỉ đúng khi chạy một instance,
+ * dùng cho test và chạy local không có Redis. Không hết hạn.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory")
+public class InMemoryCartStore implements CartStore {
+
+    private static final class Entry {
+        Long cartId;
+        long version;
+        long total;
+        final Map<Long, CartLine> lines = new HashMap<>();
+    }
+
+    private final Map<Long, Entry> carts = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<Long> repricing = ConcurrentHashMap.newKeySet();
+    // bookId -> userId, có thể còn phần tử cũ như bản Redis
+    private final Map<Long, Set<Long>> usersByBook = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<CartSnapshot> get(Long userId) {
+        Entry entry = carts.get(userId);
+        if (entry == null) return Optional.empty();
+        synchronized (entry) {
+            List<CartLine> lines = new ArrayList<>(entry.lines.values());
+            lines.sort(Comparator.comparing(CartLine::bookId));
+            return Optional.of(new CartSnapshot(entry.cartId, entry.version, entry.total, lines));
+        }
+    }
+
+    @Override
+    public Map<Long, CartSnapshot> getAll(Collection<Long> userIds) {
+        Map<Long, CartSnapshot> snapshots = new HashMap<>();
+        for (Long userId : userIds) {
+            get(userId).ifPresent(snapshot -> snapshots.put(userId, snapshot));
+        }
+        return snapshots;
+    }
+
+    @Override
+    public void load(Long userId, CartSnapshot snapshot) {
+        carts.computeIfAbsent(userId, id -> {
+            Entry entry = new Entry();
+            entry.cartId = snapshot.cartId();
+            entry.version = snapshot.version();
+            entry.total = snapshot.total();
+            snapshot.lines().forEach(line -> {
+                entry.lines.put(line.bookId(), line);
+                index(line.bookId()).add(userId);
+            });
+            return entry;
+        });
+    }
+
+    @Override
+    public Optional<List<Long>> apply(Long userId, Map<Long, Integer> deltas, Map<Long, CartLine> newLines) {
+        Entry entry = carts.get(userId);
+        if (entry == null) return Optional.empty();
+        synchronized (entry) {
+            List<Long> missing = new ArrayList<>();
+            deltas.forEach((bookId, delta) -> {
+                if (delta > 0 && !entry.lines.containsKey(bookId) && !newLines.containsKey(bookId)) missing.add(bookId);
+            });
+            if (!missing.isEmpty()) return Optional.of(missing);
+
+            deltas.forEach((bookId, delta) -> {
+                CartLine current = entry.lines.get(bookId);
+                int quantity = (current != null ? current.quantity() : 0) + delta;
+                long before = current != null ? current.subtotal() : 0;
+                if (quantity <= 0) {
+                    entry.lines.remove(bookId);
+                    entry.total -= before;
+                    index(bookId).remove(userId);
+                } else {
+                    CartLine line = (newLines.containsKey(bookId) ? newLines.get(bookId) : current).withQuantity(quantity);
+                    entry.lines.put(bookId, line);
+                    entry.total += line.subtotal() - before;
+                    index(bookId).add(userId);
+                }
+            });
+            entry.version++;
+            dirty.add(userId);
+            return Optional.of(missing);
+        }
+    }
+
+    @Override
+    public Optional<Boolean> takeIfVersion(Long userId, long expectedVersion, Map<Long, Integer> deltas) {
+        Entry entry = carts.get(userId);
+        if (entry == null) return Optional.empty();
+        synchronized (entry) {
+            if (entry.version != expectedVersion) return Optional.of(false);
+            apply(userId, deltas, Map.of());
+            return Optional.of(true);
+        }
+    }
+
+    @Override
+    public Optional<Boolean> remove(Long userId, Long bookId) {
+        Entry entry = carts.get(userId);
+        if (entry == null) return Optional.empty();
+        synchronized (entry) {
+            CartLine removed = entry.lines.remove(bookId);
+            if (removed == null) return Optional.of(false);
+            entry.total -= removed.subtotal();
+            index(bookId).remove(userId);
+            entry.version++;
+            dirty.add(userId);
+            return Optional.of(true);
+        }
+    }
+
+    @Override
+    public void assignCartId(Long userId, Long cartId) {
+        Entry entry = carts.get(userId);
+        if (entry == null) return;
+        synchronized (entry) {
+            entry.cartId = cartId;
+        }
+    }
+
+    @Override
+    public List<Long> pollDirty(int max) {
+        List<Long> userIds = new ArrayList<>();
+        Iterator<Long> it = dirty.iterator();
+        while (it.hasNext() && userIds.size() < max) {
+            Long userId = it.next();
+            if (dirty.remove(userId)) userIds.add(userId);
+        }
+        return userIds;
+    }
+
+    @Override
+    public void markDirty(Collection<Long> userIds) {
+        dirty.addAll(userIds);
+    }
+
+    @Override
+    public void scanUsersWithBook(Long bookId, int batchSize, Consumer<List<Long>> batch) {
+        List<Long> userIds = new ArrayList<>();
+        for (Long userId : index(bookId)) {
+            userIds.add(userId);
+            if (userIds.size() == batchSize) {
+                batch.accept(userIds);
+                userIds = new ArrayList<>();
+            }
+        }
+        if (!userIds.isEmpty()) batch.accept(userIds);
+    }
+
+    @Override
+    public int reprice(Long bookId, long unitPrice, Collection<Long> userIds) {
+        int changed = 0;
+        for (Long userId : userIds) {
+            Entry entry = carts.get(userId);
+            if (entry == null) {
+                index(bookId).remove(userId);
+                continue;
+            }
+            synchronized (entry) {
+                CartLine current = entry.lines.get(bookId);
+                if (current == null) {
+                    index(bookId).remove(userId);
+                } else if (current.unitPrice() != unitPrice) {
+                    CartLine line = current.withUnitPrice(unitPrice);
+                    entry.lines.put(bookId, line);
+                    entry.total += line.subtotal() - current.subtotal();
+                    entry.version++;
+                    dirty.add(userId);
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void evict(Map<Long, Long> versions) {
+        versions.forEach((userId, version) -> carts.computeIfPresent(userId, (id, entry) -> {
+            synchronized (entry) {
+                return entry.version <= version ? null : entry;
+            }
+        }));
+    }
+
+    @Override
+    public List<Long> pollRepricing(int max) {
+        List<Long> bookIds = new ArrayList<>();
+        Iterator<Long> it = repricing.iterator();
+        while (it.hasNext() && bookIds.size() < max) {
+            Long bookId = it.next();
+            if (repricing.remove(bookId)) bookIds.add(bookId);
+        }
+        return bookIds;
+    }
+
+    @Override
+    public void markRepricing(Collection<Long> bookIds) {
+        repricing.addAll(bookIds);
+    }
+
+    private Set<Long> index(Long bookId) {
+        return usersByBook.computeIfAbsent(bookId, id -> ConcurrentHashMap.newKeySet());
+    }
+}
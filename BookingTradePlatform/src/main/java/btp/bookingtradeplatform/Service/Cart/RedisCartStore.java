@@ -0,0 +1,395 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Giỏ hàng trên Redis: mỗi giỏ là một hash cart:{userId} gồm
+ * v (version, cũng là dấu hiệu giỏ đã nạp), id (id Cart trong DB, 0 nếu chưa có), t (tổng tiền),
+ * q:{bookId} (số lượng), p:{bookId} (giá đã cache, đồng) và l:{bookId} (thông tin hiển thị dạng JSON).
+ * Mọi thao tác sửa là một Lua script trên hash của giỏ, tập dirty và index ngược nên chạy nguyên tử, không cần khoá;
+ * script chỉ đọc/ghi các field của sách thay đổi và cộng phần chênh lệch vào t, không duyệt cả giỏ.
+ * Index ngược cart:book:{bookId} (set userId) được cập nhật cùng lúc để tìm các giỏ cần đổi giá;
+ * phần tử cũ (giỏ đã hết hạn) được dọn khi đổi giá gặp phải.
+ * Hash hết hạn sau app.cart.ttl-days kể từ lần sửa cuối; dữ liệu vẫn còn trong DB nhờ write-behind.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "redis", matchIfMissing = true)
+public class RedisCartStore implements CartStore {
+
+    private static final String PREFIX = "cart:";
+    private static final String DIRTY = PREFIX + "dirty";
+    private static final String REPRICE = PREFIX + "reprice";
+    private static final String VERSION = "v";
+    private static final String CART_ID = "id";
+    private static final String TOTAL = "t";
+    private static final String QUANTITY = "q:";
+    private static final String PRICE = "p:";
+    private static final String LINE = "l:";
+
+    // KEYS: giỏ rồi index ngược của từng dòng; ARGV: userId, ttl, version, cartId,
+    // rồi từng bộ bốn (bookId, quantity, price, line)
+    private static final RedisScript<Long> LOAD = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "local t = 0 " +
+            "for i = 5, #ARGV, 4 do " +
+            "  redis.call('HSET', KEYS[1], 'q:' .. ARGV[i], ARGV[i + 1], 'p:' .. ARGV[i], ARGV[i + 2], " +
+            "    'l:' .. ARGV[i], ARGV[i + 3]) " +
+            "  redis.call('SADD', KEYS[2 + (i - 5) / 4], ARGV[1]) " +
+            "  t = t + tonumber(ARGV[i + 1]) * tonumber(ARGV[i + 2]) " +
+            "end " +
+            "redis.call('HSET', KEYS[1], 'v', ARGV[3], 'id', ARGV[4], 't', string.format('%d', t)) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    // KEYS: giỏ, dirty, rồi index ngược của từng sách; ARGV: userId, ttl, rồi từng bộ bốn (bookId, delta, price, line; price/line = '' nếu không gửi kèm).
+    // Số tiền được ghi bằng string.format('%d') để không ra dạng số mũ
+    // Trả về {-1} nếu giỏ chưa nạp, danh sách bookId thiếu thông tin dòng, hoặc {} khi đã áp dụng
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> APPLY = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {-1} end " +
+            "local missing = {} " +
+            "for i = 3, #ARGV, 4 do " +
+            "  if ARGV[i + 3] == '' and redis.call('HEXISTS', KEYS[1], 'p:' .. ARGV[i]) == 0 " +
+            "      and tonumber(ARGV[i + 1]) > 0 then " +
+            "    missing[#missing + 1] = tonumber(ARGV[i]) " +
+            "  end " +
+            "end " +
+            "if #missing > 0 then return missing end " +
+            "local diff = 0 " +
+            "for i = 3, #ARGV, 4 do " +
+            "  local b = ARGV[i] " +
+            "  local index = KEYS[3 + (i - 3) / 4] " +
+            "  local oldQ = tonumber(redis.call('HGET', KEYS[1], 'q:' .. b) or '0') " +
+            "  local oldP = tonumber(redis.call('HGET', KEYS[1], 'p:' .. b) or '0') " +
+            "  local q = oldQ + tonumber(ARGV[i + 1]) " +
+            "  local p = oldP " +
+            "  if ARGV[i + 3] ~= '' then p = tonumber(ARGV[i + 2]) end " +
+            "  if q <= 0 then " +
+            "    redis.call('HDEL', KEYS[1], 'q:' .. b, 'p:' .. b, 'l:' .. b) " +
+            "    redis.call('SREM', index, ARGV[1]) " +
+            "    q = 0 " +
+            "  elseif ARGV[i + 3] ~= '' then " +
+            "    redis.call('HSET', KEYS[1], 'q:' .. b, q, 'p:' .. b, ARGV[i + 2], 'l:' .. b, ARGV[i + 3]) " +
+            "    redis.call('SADD', index, ARGV[1]) " +
+            "  else " +
+            "    redis.call('HSET', KEYS[1], 'q:' .. b, q) " +
+            "  end " +
+            "  diff = diff + q * p - oldQ * oldP " +
+            "end " +
+            "redis.call('HINCRBY', KEYS[1], 't', string.format('%d', diff)) " +
+            "redis.call('HINCRBY', KEYS[1], 'v', 1) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return {}", List.class);
+
+    // KEYS: giỏ, dirty, rồi index ngược của từng sách; ARGV: userId, ttl, version mong đợi, rồi từng cặp (bookId, delta).
+    // Trả về -1 nếu giỏ chưa nạp, 0 nếu version đã khác, 1 khi đã trừ
+    private static final RedisScript<Long> TAKE_IF_VERSION = new DefaultRedisScript<>(
+            "local v = redis.call('HGET', KEYS[1], 'v') " +
+            "if not v then return -1 end " +
+            "if tonumber(v) ~= tonumber(ARGV[3]) then return 0 end " +
+            "local diff = 0 " +
+            "for i = 4, #ARGV, 2 do " +
+            "  local b = ARGV[i] " +
+            "  local oldQ = tonumber(redis.call('HGET', KEYS[1], 'q:' .. b) or '0') " +
+            "  local p = tonumber(redis.call('HGET', KEYS[1], 'p:' .. b) or '0') " +
+            "  local q = oldQ + tonumber(ARGV[i + 1]) " +
+            "  if q <= 0 then " +
+            "    redis.call('HDEL', KEYS[1], 'q:' .. b, 'p:' .. b, 'l:' .. b) " +
+            "    redis.call('SREM', KEYS[3 + (i - 4) / 2], ARGV[1]) " +
+            "    q = 0 " +
+            "  else " +
+            "    redis.call('HSET', KEYS[1], 'q:' .. b, q) " +
+            "  end " +
+            "  diff = diff + (q - oldQ) * p " +
+            "end " +
+            "redis.call('HINCRBY', KEYS[1], 't', string.format('%d', diff)) " +
+            "redis.call('HINCRBY', KEYS[1], 'v', 1) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    // KEYS: giỏ, dirty, index ngược của sách; ARGV: userId, ttl, bookId
+    private static final RedisScript<Long> REMOVE = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "local q = redis.call('HGET', KEYS[1], 'q:' .. ARGV[3]) " +
+            "if not q then return 0 end " +
+            "local p = tonumber(redis.call('HGET', KEYS[1], 'p:' .. ARGV[3]) or '0') " +
+            "redis.call('HDEL', KEYS[1], 'q:' .. ARGV[3], 'p:' .. ARGV[3], 'l:' .. ARGV[3]) " +
+            "redis.call('SREM', KEYS[3], ARGV[1]) " +
+            "redis.call('HINCRBY', KEYS[1], 't', string.format('%d', -tonumber(q) * p)) " +
+            "redis.call('HINCRBY', KEYS[1], 'v', 1) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    // KEYS: index ngược của sách, dirty, rồi giỏ của từng userId; ARGV: bookId, giá mới, rồi các userId.
+    // Giỏ không còn sách (hoặc đã hết hạn) bị gỡ khỏi index; trả về số giỏ đã đổi giá
+    private static final RedisScript<Long> REPRICE_CARTS = new DefaultRedisScript<>(
+            "local changed = 0 " +
+            "local price = tonumber(ARGV[2]) " +
+            "for i = 3, #KEYS do " +
+            "  local q = redis.call('HGET', KEYS[i], 'q:' .. ARGV[1]) " +
+            "  if not q then " +
+            "    redis.call('SREM', KEYS[1], ARGV[i]) " +
+            "  else " +
+            "    local old = tonumber(redis.call('HGET', KEYS[i], 'p:' .. ARGV[1]) or '0') " +
+            "    if old ~= price then " +
+            "      redis.call('HSET', KEYS[i], 'p:' .. ARGV[1], ARGV[2]) " +
+            "      redis.call('HINCRBY', KEYS[i], 't', string.format('%d', tonumber(q) * (price - old))) " +
+            "      redis.call('HINCRBY', KEYS[i], 'v', 1) " +
+            "      redis.call('SADD', KEYS[2], ARGV[i]) " +
+            "      changed = changed + 1 " +
+            "    end " +
+            "  end " +
+            "end " +
+            "return changed", Long.class);
+
+    // KEYS: giỏ của từng userId; ARGV: version tương ứng. Phần tử cũ trong index ngược được dọn khi đổi giá
+    private static final RedisScript<Long> EVICT = new DefaultRedisScript<>(
+            "local evicted = 0 " +
+            "for i = 1, #KEYS do " +
+            "  local v = redis.call('HGET', KEYS[i], 'v') " +
+            "  if v and tonumber(v) <= tonumber(ARGV[i]) then " +
+            "    redis.call('DEL', KEYS[i]) " +
+            "    evicted = evicted + 1 " +
+            "  end " +
+            "end " +
+            "return evicted", Long.class);
+
+    // Chỉ ghi id khi giỏ còn trong store, không tạo hash thiếu version
+    private static final RedisScript<Long> ASSIGN_ID = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('HSET', KEYS[1], 'id', ARGV[1]) " +
+            "return 1", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String ttlSeconds;
+
+    public RedisCartStore(RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper,
+                          @Value("${app.cart.ttl-days:30}") long ttlDays) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlSeconds = String.valueOf(Duration.ofDays(ttlDays).toSeconds());
+    }
+
+    @Override
+    public Optional<CartSnapshot> get(Long userId) {
+        return Optional.ofNullable(parse(redisTemplate.<String, String>opsForHash().entries(key(userId))));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, CartSnapshot> getAll(Collection<Long> userIds) {
+        List<Long> ids = new ArrayList<>(userIds);
+        List<Object> hashes = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ids.forEach(userId -> ops.opsForHash().entries(key(userId)));
+                return null;
+            }
+        });
+        Map<Long, CartSnapshot> snapshots = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            CartSnapshot snapshot = parse((Map<String, String>) hashes.get(i));
+            if (snapshot != null) snapshots.put(ids.get(i), snapshot);
+        }
+        return snapshots;
+    }
+
+    @Override
+    public void load(Long userId, CartSnapshot snapshot) {
+        List<String> keys = new ArrayList<>(List.of(key(userId)));
+        List<String> args = new ArrayList<>(List.of(String.valueOf(userId), ttlSeconds,
+                String.valueOf(snapshot.version()), String.valueOf(snapshot.cartId() != null ? snapshot.cartId() : 0)));
+        for (CartLine line : snapshot.lines()) {
+            keys.add(indexKey(line.bookId()));
+            args.add(String.valueOf(line.bookId()));
+            args.add(String.valueOf(line.quantity()));
+            args.add(String.valueOf(line.unitPrice()));
+            args.add(write(line));
+        }
+        redisTemplate.execute(LOAD, keys, args.toArray());
+    }
+
+    @Override
+    public Optional<List<Long>> apply(Long userId, Map<Long, Integer> deltas, Map<Long, CartLine> newLines) {
+        List<String> keys = new ArrayList<>(List.of(key(userId), DIRTY));
+        List<String> args = new ArrayList<>(List.of(String.valueOf(userId), ttlSeconds));
+        deltas.forEach((bookId, delta) -> {
+            CartLine line = newLines.get(bookId);
+            keys.add(indexKey(bookId));
+            args.add(String.valueOf(bookId));
+            args.add(String.valueOf(delta));
+            args.add(line != null ? String.valueOf(line.unitPrice()) : "");
+            args.add(line != null ? write(line) : "");
+        });
+        List<?> result = redisTemplate.execute(APPLY, keys, args.toArray());
+        List<Long> missing = new ArrayList<>();
+        if (result != null) {
+            for (Object bookId : result) {
+                missing.add(((Number) bookId).longValue());
+            }
+        }
+        if (missing.size() == 1 && missing.get(0) < 0) return Optional.empty();
+        return Optional.of(missing);
+    }
+
+    @Override
+    public Optional<Boolean> takeIfVersion(Long userId, long expectedVersion, Map<Long, Integer> deltas) {
+        List<String> keys = new ArrayList<>(List.of(key(userId), DIRTY));
+        List<String> args = new ArrayList<>(List.of(String.valueOf(userId), ttlSeconds, String.valueOf(expectedVersion)));
+        deltas.forEach((bookId, delta) -> {
+            keys.add(indexKey(bookId));
+            args.add(String.valueOf(bookId));
+            args.add(String.valueOf(delta));
+        });
+        Long result = redisTemplate.execute(TAKE_IF_VERSION, keys, args.toArray());
+        if (result == null || result < 0) return Optional.empty();
+        return Optional.of(result == 1);
+    }
+
+    @Override
+    public Optional<Boolean> remove(Long userId, Long bookId) {
+        Long result = redisTemplate.execute(REMOVE, List.of(key(userId), DIRTY, indexKey(bookId)),
+                String.valueOf(userId), ttlSeconds, String.valueOf(bookId));
+        if (result == null || result < 0) return Optional.empty();
+        return Optional.of(result == 1);
+    }
+
+    @Override
+    public void assignCartId(Long userId, Long cartId) {
+        redisTemplate.execute(ASSIGN_ID, List.of(key(userId)), String.valueOf(cartId));
+    }
+
+    @Override
+    public List<Long> pollDirty(int max) {
+        List<String> members = redisTemplate.opsForSet().pop(DIRTY, max);
+        List<Long> userIds = new ArrayList<>();
+        if (members != null) {
+            members.forEach(member -> userIds.add(Long.valueOf(member)));
+        }
+        return userIds;
+    }
+
+    @Override
+    public void markDirty(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return;
+        redisTemplate.opsForSet().add(DIRTY, userIds.stream().map(String::valueOf).toArray(String[]::new));
+    }
+
+    @Override
+    public void scanUsersWithBook(Long bookId, int batchSize, Consumer<List<Long>> batch) {
+        ScanOptions options = ScanOptions.scanOptions().count(batchSize).build();
+        List<Long> userIds = new ArrayList<>();
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(indexKey(bookId), options)) {
+            while (cursor.hasNext()) {
+                userIds.add(Long.valueOf(cursor.next()));
+                if (userIds.size() == batchSize) {
+                    batch.accept(userIds);
+                    userIds = new ArrayList<>();
+                }
+            }
+        }
+        if (!userIds.isEmpty()) batch.accept(userIds);
+    }
+
+    @Override
+    public int reprice(Long bookId, long unitPrice, Collection<Long> userIds) {
+        if (userIds.isEmpty()) return 0;
+        List<String> keys = new ArrayList<>(List.of(indexKey(bookId), DIRTY));
+        List<String> args = new ArrayList<>(List.of(String.valueOf(bookId), String.valueOf(unitPrice)));
+        for (Long userId : userIds) {
+            keys.add(key(userId));
+            args.add(String.valueOf(userId));
+        }
+        Long changed = redisTemplate.execute(REPRICE_CARTS, keys, args.toArray());
+        return changed != null ? changed.intValue() : 0;
+    }
+
+    @Override
+    public void evict(Map<Long, Long> versions) {
+        if (versions.isEmpty()) return;
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        versions.forEach((userId, version) -> {
+            keys.add(key(userId));
+            args.add(String.valueOf(version));
+        });
+        redisTemplate.execute(EVICT, keys, args.toArray());
+    }
+
+    @Override
+    public List<Long> pollRepricing(int max) {
+        List<String> members = redisTemplate.opsForSet().pop(REPRICE, max);
+        List<Long> bookIds = new ArrayList<>();
+        if (members != null) {
+            members.forEach(member -> bookIds.add(Long.valueOf(member)));
+        }
+        return bookIds;
+    }
+
+    @Override
+    public void markRepricing(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) return;
+        redisTemplate.opsForSet().add(REPRICE, bookIds.stream().map(String::valueOf).toArray(String[]::new));
+    }
+
+    private CartSnapshot parse(Map<String, String> hash) {
+        if (hash == null || !hash.containsKey(VERSION)) return null;
+        List<CartLine> lines = new ArrayList<>();
+        hash.forEach((field, value) -> {
+            if (!field.startsWith(LINE)) return;
+            String bookId = field.substring(LINE.length());
+            String quantity = hash.get(QUANTITY + bookId);
+            String price = hash.get(PRICE + bookId);
+            if (quantity == null || price == null) return;
+            lines.add(read(value).withQuantity(Integer.parseInt(quantity)).withUnitPrice(Long.parseLong(price)));
+        });
+        lines.sort(Comparator.comparing(CartLine::bookId));
+        long cartId = Long.parseLong(hash.getOrDefault(CART_ID, "0"));
+        return new CartSnapshot(cartId > 0 ? cartId : null, Long.parseLong(hash.get(VERSION)),
+                Long.parseLong(hash.getOrDefault(TOTAL, "0")), lines);
+    }
+
+    private String write(CartLine line) {
+        try {
+            return objectMapper.writeValueAsString(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CartLine read(String json) {
+        try {
+            return objectMapper.readValue(json, CartLine.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String key(Long userId) {
+        return PREFIX + userId;
+    }
+
+    private static String indexKey(Long bookId) {
+        return PREFIX + "book:" + bookId;
+    }
+}
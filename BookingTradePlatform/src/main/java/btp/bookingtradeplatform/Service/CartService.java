@@ -1,37 +1,41 @@
 package btp.bookingtradeplatform.Service;
 
 import btp.bookingtradeplatform.Model.DTO.CartDTO;
+import btp.bookingtradeplatform.Model.DTO.CartItemDTO;
 import btp.bookingtradeplatform.Model.DeleteRequest.RemoveCartItemRequest;
 import btp.bookingtradeplatform.Model.Entity.Book;
 import btp.bookingtradeplatform.Model.Entity.Cart;
 import btp.bookingtradeplatform.Model.Entity.CartItem;
-import btp.bookingtradeplatform.Model.Entity.Customer;
 import btp.bookingtradeplatform.Model.Request.CreateCartRequest;
 import btp.bookingtradeplatform.Exception.AppException;
 import btp.bookingtradeplatform.Exception.BusinessException;
 import btp.bookingtradeplatform.Model.Response.ResponseData;
 import btp.bookingtradeplatform.Repository.BookRepository;
-import btp.bookingtradeplatform.Repository.CartItemRepository;
 import btp.bookingtradeplatform.Repository.CartRepository;
 import btp.bookingtradeplatform.Repository.CustomerRepository;
+import btp.bookingtradeplatform.Service.Cart.CartLine;
+import btp.bookingtradeplatform.Service.Cart.CartSnapshot;
+import btp.bookingtradeplatform.Service.Cart.CartStore;
+import btp.bookingtradeplatform.Service.Pricing.PricingEngine;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Optional;
-@Transactional
+import java.util.*;
+
+/**
+ * Giỏ hàng đang dùng nằm trong CartStore (Redis); đọc/sửa giỏ không chạm MySQL trừ lần nạp đầu
+ * và khi cần thông tin của sách mới thêm. CartWriteBehind ghi giỏ xuống bảng Cart/CartItem sau.
+ */
 @Service
 public class CartService {
 
-    @Autowired
-    private CartRepository cartRepository;
+    // Lần đầu có thể gặp giỏ chưa nạp hoặc sách mới chưa có thông tin dòng; mỗi trường hợp cần thêm một lượt
+    private static final int MAX_ATTEMPTS = 3;
 
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private CartRepository cartRepository;
 
     @Autowired
     private CustomerRepository customerRepository;
@@ -39,56 +43,29 @@ public class CartService {
     @Autowired
     private BookRepository bookRepository;
 
-    public ResponseEntity<ResponseData<Void>> addCartItem(CreateCartRequest request) {
-        Customer customer = customerRepository.findById(request.getUserId())
-                .orElseThrow(() -> new BusinessException(AppException.CUSTOMER_NOT_FOUND));
-
-        Optional<Cart> optionalCart = cartRepository.findByUserId(customer.getId());
-        Cart cart = optionalCart.orElseGet(() -> {
-            Cart newCart = new Cart();
-            newCart.setUserId(customer.getId());
-            newCart.setCartItems(new ArrayList<>());
-            newCart.setTotalPrice(BigDecimal.ZERO);
-            return newCart;
-        });
+    @Autowired
+    private CartStore cartStore;
 
+    public ResponseEntity<ResponseData<Void>> addCartItem(CreateCartRequest request) {
+        Long userId = request.getUserId();
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
         for (CreateCartRequest.CartItemRequest itemRequest : request.getCartItems()) {
-            Book book = bookRepository.findById(itemRequest.getBookId())
-                    .orElseThrow(() -> new BusinessException(AppException.BOOK_NOT_FOUND));
-
-            boolean found = false;
-
-            for (CartItem existingItem : cart.getCartItems()) {
-                if (existingItem.getBook().getId().equals(itemRequest.getBookId())) {
-                    int newQuantity = existingItem.getQuantity() + itemRequest.getQuantity();
-                    if (newQuantity <= 0) {
-                        cart.getCartItems().remove(existingItem);
-                    } else {
-                        existingItem.setQuantity(newQuantity);
-                    }
-
-                    found = true;
-                    break;
-                }
-            }
-
-            if (!found && itemRequest.getQuantity() > 0) {
-                CartItem newItem = new CartItem();
-                newItem.setBook(book);
-                newItem.setQuantity(itemRequest.getQuantity());
-                newItem.setCart(cart);
-                cart.getCartItems().add(newItem);
-            }
+            deltas.merge(itemRequest.getBookId(), itemRequest.getQuantity(), Integer::sum);
         }
 
-        BigDecimal totalPrice = BigDecimal.ZERO;
-        for (CartItem item : cart.getCartItems()) {
-            BigDecimal price = item.getBook().getPrice();
-            totalPrice = totalPrice.add(price.multiply(BigDecimal.valueOf(item.getQuantity())));
+        // Thử áp dụng thẳng: sách đã có trong giỏ dùng lại giá đã cache, chi phí chỉ theo số sách trong request.
+        // Store báo lại các sách mới, chúng được nạp trong một truy vấn rồi áp dụng lần nữa
+        Map<Long, CartLine> newLines = new HashMap<>();
+        for (int attempt = 1; ; attempt++) {
+            Optional<List<Long>> missing = cartStore.apply(userId, deltas, newLines);
+            if (missing.isPresent() && missing.get().isEmpty()) break;
+            if (attempt == MAX_ATTEMPTS) throw new BusinessException(AppException.INTERNAL_SERVER_ERROR);
+            if (missing.isEmpty()) {
+                load(userId);
+            } else {
+                newLines.putAll(linesOf(missing.get()));
+            }
         }
-        cart.setTotalPrice(totalPrice);
-
-        cartRepository.save(cart);
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
@@ -101,27 +78,17 @@ public class CartService {
 
 
     public ResponseEntity<ResponseData<Void>> removeCartItem(RemoveCartItemRequest request) {
-        Customer customer = customerRepository.findById(request.getUserId())
-                .orElseThrow(() -> new BusinessException(AppException.CUSTOMER_NOT_FOUND));
-
-        Cart cart = cartRepository.findByUserId(customer.getId())
-                .orElseThrow(() -> new BusinessException(AppException.NOT_FOUND));
+        Long userId = request.getUserId();
 
-        boolean removed = cart.getCartItems().removeIf(item ->
-                item.getBook().getId().equals(request.getBookId())
-        );
+        Optional<Boolean> removed = cartStore.remove(userId, request.getBookId());
+        for (int attempt = 1; removed.isEmpty() && attempt < MAX_ATTEMPTS; attempt++) {
+            load(userId);
+            removed = cartStore.remove(userId, request.getBookId());
+        }
 
-        if (!removed) {
+        if (!removed.orElse(false)) {
             throw new BusinessException(AppException.NOT_FOUND);
         }
-        BigDecimal totalPrice = BigDecimal.ZERO;
-        for (CartItem item : cart.getCartItems()) {
-            BigDecimal pricePerBook = item.getBook().getPrice();
-            totalPrice = totalPrice.add(pricePerBook.multiply(BigDecimal.valueOf(item.getQuantity())));
-        }
-
-        cart.setTotalPrice(totalPrice);
-        cartRepository.save(cart);
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
@@ -133,13 +100,10 @@ public class CartService {
     }
 
     public ResponseEntity<ResponseData<CartDTO>> getCartByUserId(Long userId) {
-        Customer customer = customerRepository.findById(userId)
-                .orElseThrow(() -> new BusinessException(AppException.CUSTOMER_NOT_FOUND));
+        CartSnapshot cart = cartOf(userId);
 
-        Cart cart = cartRepository.findByUserId(customer.getId())
-                .orElse(null);
-
-        CartDTO cartDTO = (cart != null) ? new CartDTO().fromEntity(cart) : null;
+        // Giữ hành vi cũ: khách chưa từng có giỏ nhận null
+        CartDTO cartDTO = (cart.cartId() != null || !cart.lines().isEmpty()) ? toDTO(userId, cart) : null;
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
@@ -150,5 +114,58 @@ public class CartService {
                 ));
     }
 
+    // Giỏ hiện tại của khách, nạp từ DB nếu chưa có trong store
+    public CartSnapshot currentCart(Long userId) {
+        return cartOf(userId);
+    }
 
+    private CartSnapshot cartOf(Long userId) {
+        return cartStore.get(userId).orElseGet(() -> load(userId));
+    }
+
+    // Nạp giỏ từ DB vào store (một truy vấn kèm sách và seller); giỏ đã có trong store thì giữ nguyên
+    private CartSnapshot load(Long userId) {
+        if (!customerRepository.existsById(userId)) {
+            throw new BusinessException(AppException.CUSTOMER_NOT_FOUND);
+        }
+        CartSnapshot snapshot = cartRepository.findWithItemsByUserId(userId)
+                .map(CartService::snapshotOf)
+                .orElseGet(() -> new CartSnapshot(null, 0, 0, List.of()));
+        cartStore.load(userId, snapshot);
+        return cartStore.get(userId).orElse(snapshot);
+    }
+
+    private Map<Long, CartLine> linesOf(Collection<Long> bookIds) {
+        Map<Long, CartLine> lines = new HashMap<>();
+        if (bookIds.isEmpty()) return lines;
+        for (Book book : bookRepository.findAllWithSellerByIdIn(bookIds)) {
+            lines.put(book.getId(), CartLine.of(book, 0));
+        }
+        if (lines.size() < new HashSet<>(bookIds).size()) {
+            throw new BusinessException(AppException.BOOK_NOT_FOUND);
+        }
+        return lines;
+    }
+
+    private static CartSnapshot snapshotOf(Cart cart) {
+        List<CartLine> lines = new ArrayList<>();
+        for (CartItem item : cart.getCartItems()) {
+            lines.add(CartLine.of(item.getBook(), item.getQuantity()));
+        }
+        return CartSnapshot.of(cart.getId(), cart.getStoreVersion(), lines);
+    }
+
+    private static CartDTO toDTO(Long userId, CartSnapshot cart) {
+        List<CartItemDTO> items = new ArrayList<>();
+        for (CartLine line : cart.lines()) {
+            items.add(new CartItemDTO(line.bookId(), line.coverImage(), line.sellerName(), line.sellerId(),
+                    line.storeName(), line.title(), line.quantity(), PricingEngine.toAmount(line.unitPrice())));
+        }
+        return CartDTO.builder()
+                .id(cart.cartId())
+                .userId(userId)
+                .cartItems(items)
+                .totalPrice(PricingEngine.toAmount(cart.total()))
+                .build();
+    }
 }
@@ -4,11 +4,16 @@ import btp.bookingtradeplatform.Exception.AppException;
 import btp.bookingtradeplatform.Exception.BusinessException;
 import btp.bookingtradeplatform.Model.DTO.CategoryDTO;
 import btp.bookingtradeplatform.Model.Entity.Category;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
 import btp.bookingtradeplatform.Model.Request.CreateCategoryRequest;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdateCategoryForm;
+import btp.bookingtradeplatform.Model.Response.CacheValidators;
 import btp.bookingtradeplatform.Model.Response.ResponseData;
+import btp.bookingtradeplatform.Repository.BookRepository;
 import btp.bookingtradeplatform.Repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,32 +26,36 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
-    public ResponseEntity<ResponseData<List<CategoryDTO>>> getAllCategories() {
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Transactional(readOnly = true)
+    public ResponseEntity<ResponseData<List<CategoryDTO>>> getAllCategories(HttpHeaders requestHeaders) {
+        CacheValidators validators = CacheValidators.ofCollection("categories", categoryRepository.findCatalogVersion());
+        if (validators.isNotModified(requestHeaders)) return validators.notModified();
+
         List<Category> categories = categoryRepository.findAll();
         List<CategoryDTO> dtos = categories.stream()
                 .map(CategoryDTO::fromEntity)
                 .toList();
 
-        return ResponseEntity
-                .status(AppException.SUCCESS.getHttpStatus())
-                .body(new ResponseData<>(
-                        AppException.SUCCESS.getCode(),
-                        AppException.SUCCESS.getMessage(),
-                        dtos
-                ));
+        return validators.ok(dtos);
     }
 
-    public ResponseEntity<ResponseData<CategoryDTO>> getCategoryById(Long id) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<ResponseData<CategoryDTO>> getCategoryById(Long id, HttpHeaders requestHeaders) {
+        List<Object[]> version = categoryRepository.findVersionById(id);
+        if (version.isEmpty()) throw new BusinessException(AppException.NOT_FOUND);
+
+        CacheValidators validators = CacheValidators.of("category:" + id, version);
+        if (validators.isNotModified(requestHeaders)) return validators.notModified();
+
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new BusinessException(AppException.NOT_FOUND));
-
-        return ResponseEntity
-                .status(AppException.SUCCESS.getHttpStatus())
-                .body(new ResponseData<>(
-                        AppException.SUCCESS.getCode(),
-                        AppException.SUCCESS.getMessage(),
-                        CategoryDTO.fromEntity(category)
-                ));
+        return validators.ok(CategoryDTO.fromEntity(category));
     }
 
     public ResponseEntity<ResponseData<CategoryDTO>> createCategory(CreateCategoryRequest request) {
@@ -77,6 +86,8 @@ public class CategoryService {
         }
 
         Category updated = categoryRepository.save(category);
+        // BookDTO mang tên category: làm mới cache/ETag của các sách thuộc category này
+        eventPublisher.publishEvent(BookChangedEvent.upsert(bookRepository.findIdsByCategoryId(id)));
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
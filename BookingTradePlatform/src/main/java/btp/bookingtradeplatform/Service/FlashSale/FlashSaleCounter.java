@@ -0,0 +1,44 @@
+package btp.bookingtradeplatform.Service.FlashSale;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Bộ đếm hàng flash sale nằm ngoài MySQL: Redis (Lua script) khi chạy thật, bộ nhớ khi test
+ * (app.flash-sale.counter). Mọi thao tác trên một sách là nguyên tử; sách không mở flash sale bị bỏ qua
+ * và caller tự xử lý phần đó trên DB.
+ */
+public interface FlashSaleCounter {
+
+    // Mở flash sale (hoặc cộng thêm hàng nếu đang mở), trả về số còn lại
+    int open(Long bookId, int quantity);
+
+    // Đóng flash sale, trả về số hàng chưa bán; null nếu sách không mở flash sale
+    Integer close(Long bookId);
+
+    Integer remaining(Long bookId);
+
+    Set<Long> activeBooks();
+
+    /**
+     * Lấy hàng cho mọi sách đang mở bán trong quantities, tất cả hoặc không lấy gì.
+     *
+     * @return các sách đã lấy được; Optional.empty() nếu có sách flash sale không đủ hàng
+     */
+    Optional<Set<Long>> acquire(Map<Long, Integer> quantities);
+
+    // Trả hàng về các sách còn mở bán, trả về các sách đã nhận lại
+    Set<Long> release(Map<Long, Integer> quantities);
+
+    // Cộng số đã bán chờ đồng bộ về DB cho các sách còn mở bán, trả về các sách đã cộng
+    Set<Long> recordSold(Map<Long, Integer> quantities);
+
+    // Lấy ra và xoá số đã bán chờ đồng bộ của một sách
+    int drainSold(Long bookId);
+
+    // Trả lại số đã lấy ra khi ghi DB thất bại
+    void restoreSold(Long bookId, int quantity);
+
+    int pendingSold(Long bookId);
+}
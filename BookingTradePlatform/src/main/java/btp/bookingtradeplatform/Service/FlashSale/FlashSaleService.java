@@ -0,0 +1,287 @@
+package btp.bookingtradeplatform.Service.FlashSale;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.DTO.FlashSaleDTO;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import btp.bookingtradeplatform.Model.Event.FlashSaleStockEvent;
+import btp.bookingtradeplatform.Model.Request.FlashSaleRequest;
+import btp.bookingtradeplatform.Model.Response.ResponseData;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import btp.bookingtradeplatform.Repository.BookStockJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Flash sale theo từng sách: một phần kho được tách ra (cộng vào Book.reserved nên luồng thường không bán được)
+ * và bán qua FlashSaleCounter, không UPDATE dòng book trong lúc đặt hàng/thanh toán.
+ * Số đã bán được cộng dồn trên bộ đếm và định kỳ đồng bộ về Book.stock/soldCount bằng một UPDATE mỗi sách.
+ * Mọi hàng flash sale đều nằm trong Book.reserved, nên khi bộ đếm lỗi hoặc sách vừa đóng flash sale,
+ * thao tác rơi về đường DB (giữ/nhả/chốt phần reserved) vẫn đúng và không thể bán quá kho.
+ */
+@Slf4j
+@Service
+public class FlashSaleService {
+
+    private final FlashSaleCounter counter;
+    private final BookRepository bookRepository;
+    private final BookStockJdbcRepository bookStockJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    // Sách đang mở flash sale theo lần đồng bộ gần nhất; sách không có ở đây đi thẳng đường DB
+    private volatile Set<Long> activeBooks = Set.of();
+
+    public FlashSaleService(FlashSaleCounter counter, BookRepository bookRepository,
+                            BookStockJdbcRepository bookStockJdbcRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager) {
+        this.counter = counter;
+        this.bookRepository = bookRepository;
+        this.bookStockJdbcRepository = bookStockJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        // Chạy cả sau khi transaction của đơn đã commit nên luôn mở transaction mới
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public ResponseEntity<ResponseData<FlashSaleDTO>> open(Long bookId, FlashSaleRequest request) {
+        if (request.getQuantity() == null || request.getQuantity() <= 0) {
+            throw new BusinessException(AppException.BAD_REQUEST);
+        }
+        int quantity = request.getQuantity();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!bookStockJdbcRepository.reserveAll(new TreeMap<>(Map.of(bookId, quantity)))) {
+                throw new BusinessException(bookRepository.existsById(bookId)
+                        ? AppException.OUT_OF_STOCK
+                        : AppException.BOOK_NOT_FOUND);
+            }
+        });
+        try {
+            counter.open(bookId, quantity);
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> bookRepository.releaseStock(bookId, quantity));
+            throw e;
+        }
+        addActive(bookId);
+        eventPublisher.publishEvent(BookChangedEvent.reservation(List.of(bookId)));
+
+        return ResponseEntity.ok(new ResponseData<>(
+                AppException.SUCCESS.getCode(),
+                "Flash sale opened successfully",
+                toDTO(bookId)
+        ));
+    }
+
+    /**
+     * Đóng flash sale: đồng bộ số đã bán rồi trả phần chưa bán về kho thường.
+     * Hàng của các đơn còn đang giữ vẫn nằm trong reserved và được chốt/nhả trên DB như đơn thường.
+     */
+    public ResponseEntity<ResponseData<FlashSaleDTO>> close(Long bookId) {
+        Integer remaining = counter.close(bookId);
+        if (remaining == null) throw new BusinessException(AppException.FLASH_SALE_NOT_FOUND);
+        removeActive(bookId);
+
+        reconcile(bookId);
+        if (remaining > 0) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> bookRepository.releaseStock(bookId, remaining));
+            } catch (RuntimeException e) {
+                // Mở lại để phần chưa bán không bị kẹt trong reserved; gọi đóng lại sau
+                counter.open(bookId, remaining);
+                addActive(bookId);
+                throw e;
+            }
+        }
+        eventPublisher.publishEvent(BookChangedEvent.reservation(List.of(bookId)));
+
+        return ResponseEntity.ok(new ResponseData<>(
+                AppException.SUCCESS.getCode(),
+                "Flash sale closed successfully",
+                new FlashSaleDTO(bookId, 0, counter.pendingSold(bookId))
+        ));
+    }
+
+    public ResponseEntity<ResponseData<FlashSaleDTO>> get(Long bookId) {
+        if (counter.remaining(bookId) == null) throw new BusinessException(AppException.FLASH_SALE_NOT_FOUND);
+        return ResponseEntity.ok(new ResponseData<>(
+                AppException.SUCCESS.getCode(),
+                AppException.SUCCESS.getMessage(),
+                toDTO(bookId)
+        ));
+    }
+
+    /**
+     * Lấy hàng từ bộ đếm cho các sách đang flash sale, gọi trong transaction tạo đơn.
+     *
+     * @return phần còn lại phải giữ trên DB
+     */
+    public Map<Long, Integer> acquire(Map<Long, Integer> quantities) {
+        Map<Long, Integer> candidates = onlyActive(quantities);
+        if (candidates.isEmpty()) return quantities;
+
+        Optional<Set<Long>> taken;
+        try {
+            taken = counter.acquire(candidates);
+        } catch (RuntimeException e) {
+            // Không có bộ đếm thì bán qua DB; phần flash sale nằm trong reserved nên không bị bán trùng
+            log.warn("Flash sale counter unavailable, falling back to DB stock: {}", e.getMessage());
+            return quantities;
+        }
+        if (taken.isEmpty()) throw new BusinessException(AppException.OUT_OF_STOCK);
+        if (taken.get().isEmpty()) return quantities;
+
+        eventPublisher.publishEvent(new FlashSaleStockEvent(only(quantities, taken.get()),
+                FlashSaleStockEvent.Type.ACQUIRED));
+        return without(quantities, taken.get());
+    }
+
+    // Nhả hàng của đơn huỷ/hết hạn; phần flash sale được trả về bộ đếm sau commit
+    public Map<Long, Integer> release(Map<Long, Integer> quantities) {
+        return defer(quantities, FlashSaleStockEvent.Type.RELEASED);
+    }
+
+    // Chốt hàng của đơn đã thanh toán; phần flash sale được cộng vào số đã bán sau commit
+    public Map<Long, Integer> commitSold(Map<Long, Integer> quantities) {
+        return defer(quantities, FlashSaleStockEvent.Type.SOLD);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onRolledBack(FlashSaleStockEvent event) {
+        if (event.getType() == FlashSaleStockEvent.Type.ACQUIRED) {
+            apply(event, () -> giveBack(event.getQuantities()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommitted(FlashSaleStockEvent event) {
+        if (event.getType() == FlashSaleStockEvent.Type.RELEASED) {
+            apply(event, () -> giveBack(event.getQuantities()));
+        } else if (event.getType() == FlashSaleStockEvent.Type.SOLD) {
+            apply(event, () -> markSold(event.getQuantities()));
+        }
+    }
+
+    private void apply(FlashSaleStockEvent event, Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.error("Could not apply flash sale {} for {}: {}", event.getType(), event.getQuantities(), e.getMessage());
+        }
+    }
+
+    // Đồng bộ số đã bán về DB, mỗi sách một UPDATE cho cả lô tích luỹ từ lần trước
+    @Scheduled(fixedDelayString = "${app.flash-sale.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        try {
+            activeBooks = Set.copyOf(counter.activeBooks());
+        } catch (RuntimeException e) {
+            log.warn("Could not reach flash sale counter: {}", e.getMessage());
+            return;
+        }
+        activeBooks.forEach(this::reconcile);
+    }
+
+    private void reconcile(Long bookId) {
+        int sold = counter.drainSold(bookId);
+        if (sold == 0) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (bookRepository.commitReservedStock(bookId, sold) == 0) {
+                    throw new IllegalStateException("Reserved stock of book " + bookId + " is below " + sold);
+                }
+            });
+        } catch (RuntimeException e) {
+            counter.restoreSold(bookId, sold);
+            log.error("Could not reconcile {} flash sale units of book {}: {}", sold, bookId, e.getMessage());
+            return;
+        }
+        eventPublisher.publishEvent(BookChangedEvent.stock(List.of(bookId)));
+    }
+
+    private Map<Long, Integer> defer(Map<Long, Integer> quantities, FlashSaleStockEvent.Type type) {
+        Map<Long, Integer> candidates = onlyActive(quantities);
+        if (candidates.isEmpty()) return quantities;
+        eventPublisher.publishEvent(new FlashSaleStockEvent(candidates, type));
+        return without(quantities, candidates.keySet());
+    }
+
+    // Sách đã đóng flash sale thì nhả phần reserved trên DB
+    private void giveBack(Map<Long, Integer> quantities) {
+        Map<Long, Integer> rest = without(quantities, applyOnCounter(() -> counter.release(quantities)));
+        if (rest.isEmpty()) return;
+        transactionTemplate.executeWithoutResult(status -> new TreeMap<>(rest).forEach(bookRepository::releaseStock));
+        eventPublisher.publishEvent(BookChangedEvent.reservation(rest.keySet()));
+    }
+
+    // Sách đã đóng flash sale thì chốt phần reserved trên DB ngay
+    private void markSold(Map<Long, Integer> quantities) {
+        Map<Long, Integer> rest = without(quantities, applyOnCounter(() -> counter.recordSold(quantities)));
+        if (rest.isEmpty()) return;
+        transactionTemplate.executeWithoutResult(status -> new TreeMap<>(rest).forEach((bookId, quantity) -> {
+            if (bookRepository.commitReservedStock(bookId, quantity) == 0) {
+                throw new IllegalStateException("Reserved stock of book " + bookId + " is below " + quantity);
+            }
+        }));
+        eventPublisher.publishEvent(BookChangedEvent.stock(rest.keySet()));
+    }
+
+    private Set<Long> applyOnCounter(Supplier<Set<Long>> operation) {
+        try {
+            return operation.get();
+        } catch (RuntimeException e) {
+            log.warn("Flash sale counter unavailable, applying on DB stock: {}", e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private Map<Long, Integer> onlyActive(Map<Long, Integer> quantities) {
+        Set<Long> active = activeBooks;
+        if (active.isEmpty()) return Map.of();
+        return only(quantities, active);
+    }
+
+    private FlashSaleDTO toDTO(Long bookId) {
+        Integer remaining = counter.remaining(bookId);
+        return new FlashSaleDTO(bookId, remaining != null ? remaining : 0, counter.pendingSold(bookId));
+    }
+
+    private synchronized void addActive(Long bookId) {
+        Set<Long> active = new HashSet<>(activeBooks);
+        active.add(bookId);
+        activeBooks = Set.copyOf(active);
+    }
+
+    private synchronized void removeActive(Long bookId) {
+        Set<Long> active = new HashSet<>(activeBooks);
+        active.remove(bookId);
+        activeBooks = Set.copyOf(active);
+    }
+
+    private static Map<Long, Integer> only(Map<Long, Integer> quantities, Set<Long> bookIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        quantities.forEach((bookId, quantity) -> {
+            if (bookIds.contains(bookId)) result.put(bookId, quantity);
+        });
+        return result;
+    }
+
+    private static Map<Long, Integer> without(Map<Long, Integer> quantities, Set<Long> bookIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        quantities.forEach((bookId, quantity) -> {
+            if (!bookIds.contains(bookId)) result.put(bookId, quantity);
+        });
+        return result;
+    }
+}
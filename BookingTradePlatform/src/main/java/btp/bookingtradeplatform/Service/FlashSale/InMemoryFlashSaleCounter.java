@@ -0,0 +1,132 @@
+package btp.bookingtradeplatform.Service.FlashSale;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bộ đếm flash sale trong bộ nhớ (CAS trên AtomicInteger từng sách), chỉ đúng khi chạy một instance;
+ * dùng cho test và chạy local không có Redis.
+ * Sách đã đóng bị đánh dấu CLOSED để các luồng còn giữ tham chiếu cũ không trừ/cộng nhầm vào nó.
+ */
+@Component
+@ConditionalOnProperty(name = "app.flash-sale.counter", havingValue = "memory")
+public class InMemoryFlashSaleCounter implements FlashSaleCounter {
+
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    private final Map<Long, AtomicInteger> stock = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> sold = new ConcurrentHashMap<>();
+
+    @Override
+    public int open(Long bookId, int quantity) {
+        while (true) {
+            AtomicInteger counter = stock.computeIfAbsent(bookId, id -> new AtomicInteger());
+            int current = counter.get();
+            if (current == CLOSED) {
+                stock.remove(bookId, counter);
+                continue;
+            }
+            if (counter.compareAndSet(current, current + quantity)) return current + quantity;
+        }
+    }
+
+    @Override
+    public Integer close(Long bookId) {
+        AtomicInteger counter = stock.remove(bookId);
+        if (counter == null) return null;
+        // Đồng bộ với recordSold để số bán không rơi vào sách vừa đóng
+        synchronized (counter) {
+            int remaining = counter.getAndSet(CLOSED);
+            return remaining == CLOSED ? null : remaining;
+        }
+    }
+
+    @Override
+    public Integer remaining(Long bookId) {
+        AtomicInteger counter = stock.get(bookId);
+        int current = counter != null ? counter.get() : CLOSED;
+        return current == CLOSED ? null : current;
+    }
+
+    @Override
+    public Set<Long> activeBooks() {
+        return new HashSet<>(stock.keySet());
+    }
+
+    @Override
+    public Optional<Set<Long>> acquire(Map<Long, Integer> quantities) {
+        Map<Long, Integer> taken = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            AtomicInteger counter = stock.get(entry.getKey());
+            if (counter == null) continue;
+            int quantity = entry.getValue();
+            while (true) {
+                int current = counter.get();
+                if (current == CLOSED) break;
+                if (current < quantity) {
+                    release(taken);
+                    return Optional.empty();
+                }
+                if (counter.compareAndSet(current, current - quantity)) {
+                    taken.put(entry.getKey(), quantity);
+                    break;
+                }
+            }
+        }
+        return Optional.of(taken.keySet());
+    }
+
+    @Override
+    public Set<Long> release(Map<Long, Integer> quantities) {
+        Set<Long> released = new HashSet<>();
+        quantities.forEach((bookId, quantity) -> {
+            AtomicInteger counter = stock.get(bookId);
+            if (counter == null) return;
+            while (true) {
+                int current = counter.get();
+                if (current == CLOSED) return;
+                if (counter.compareAndSet(current, current + quantity)) {
+                    released.add(bookId);
+                    return;
+                }
+            }
+        });
+        return released;
+    }
+
+    @Override
+    public Set<Long> recordSold(Map<Long, Integer> quantities) {
+        Set<Long> recorded = new HashSet<>();
+        quantities.forEach((bookId, quantity) -> {
+            AtomicInteger counter = stock.get(bookId);
+            if (counter == null) return;
+            synchronized (counter) {
+                if (counter.get() == CLOSED) return;
+                sold.computeIfAbsent(bookId, id -> new AtomicInteger()).addAndGet(quantity);
+                recorded.add(bookId);
+            }
+        });
+        return recorded;
+    }
+
+    @Override
+    public int drainSold(Long bookId) {
+        AtomicInteger counter = sold.get(bookId);
+        return counter != null ? counter.getAndSet(0) : 0;
+    }
+
+    @Override
+    public void restoreSold(Long bookId, int quantity) {
+        sold.computeIfAbsent(bookId, id -> new AtomicInteger()).addAndGet(quantity);
+    }
+
+    @Override
+    public int pendingSold(Long bookId) {
+        AtomicInteger counter = sold.get(bookId);
+        return counter != null ? counter.get() : 0;
+    }
+}
@@ -0,0 +1,182 @@
+package btp.bookingtradeplatform.Service.FlashSale;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Bộ đếm flash sale trên Redis. Mỗi thao tác là một Lua script nên chạy nguyên tử trên server,
+ * không cần khoá; một đơn nhiều sách được kiểm tra rồi trừ trong cùng một script.
+ * Các key của một đơn nằm trong một script nên chỉ dùng với Redis standalone (như cấu hình hiện tại).
+ */
+@Component
+@ConditionalOnProperty(name = "app.flash-sale.counter", havingValue = "redis", matchIfMissing = true)
+public class RedisFlashSaleCounter implements FlashSaleCounter {
+
+    private static final String PREFIX = "flashsale:";
+    private static final String ACTIVE = PREFIX + "active";
+
+    private static final RedisScript<Long> OPEN = new DefaultRedisScript<>(
+            "local v = redis.call('INCRBY', KEYS[1], ARGV[1]) " +
+            "redis.call('SADD', KEYS[2], ARGV[2]) " +
+            "return v", Long.class);
+
+    private static final RedisScript<Long> CLOSE = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if not v then return -1 end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('SREM', KEYS[2], ARGV[1]) " +
+            "return tonumber(v)", Long.class);
+
+    // Kiểm tra đủ hàng ở mọi sách đang mở rồi mới trừ; trả về vị trí các key đã trừ, {-1} nếu thiếu hàng
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ACQUIRE = new DefaultRedisScript<>(
+            "for i = 1, #KEYS do " +
+            "  local v = redis.call('GET', KEYS[i]) " +
+            "  if v and tonumber(v) < tonumber(ARGV[i]) then return {-1} end " +
+            "end " +
+            "local taken = {} " +
+            "for i = 1, #KEYS do " +
+            "  if redis.call('EXISTS', KEYS[i]) == 1 then " +
+            "    redis.call('DECRBY', KEYS[i], ARGV[i]) " +
+            "    taken[#taken + 1] = i " +
+            "  end " +
+            "end " +
+            "return taken", List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RELEASE = new DefaultRedisScript<>(
+            "local done = {} " +
+            "for i = 1, #KEYS do " +
+            "  if redis.call('EXISTS', KEYS[i]) == 1 then " +
+            "    redis.call('INCRBY', KEYS[i], ARGV[i]) " +
+            "    done[#done + 1] = i " +
+            "  end " +
+            "end " +
+            "return done", List.class);
+
+    // KEYS: n key stock rồi n key sold; chỉ cộng khi flash sale của sách còn mở
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RECORD_SOLD = new DefaultRedisScript<>(
+            "local done = {} " +
+            "for i = 1, #ARGV do " +
+            "  if redis.call('EXISTS', KEYS[i]) == 1 then " +
+            "    redis.call('INCRBY', KEYS[#ARGV + i], ARGV[i]) " +
+            "    done[#done + 1] = i " +
+            "  end " +
+            "end " +
+            "return done", List.class);
+
+    private static final RedisScript<Long> DRAIN = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if not v then return 0 end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return tonumber(v)", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisFlashSaleCounter(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public int open(Long bookId, int quantity) {
+        Long remaining = redisTemplate.execute(OPEN, List.of(stockKey(bookId), ACTIVE),
+                String.valueOf(quantity), String.valueOf(bookId));
+        return remaining != null ? remaining.intValue() : 0;
+    }
+
+    @Override
+    public Integer close(Long bookId) {
+        Long remaining = redisTemplate.execute(CLOSE, List.of(stockKey(bookId), ACTIVE), String.valueOf(bookId));
+        return remaining == null || remaining < 0 ? null : remaining.intValue();
+    }
+
+    @Override
+    public Integer remaining(Long bookId) {
+        String value = redisTemplate.opsForValue().get(stockKey(bookId));
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    @Override
+    public Set<Long> activeBooks() {
+        Set<String> members = redisTemplate.opsForSet().members(ACTIVE);
+        Set<Long> books = new HashSet<>();
+        if (members != null) {
+            members.forEach(member -> books.add(Long.valueOf(member)));
+        }
+        return books;
+    }
+
+    @Override
+    public Optional<Set<Long>> acquire(Map<Long, Integer> quantities) {
+        List<Long> bookIds = new ArrayList<>(quantities.keySet());
+        List<?> taken = redisTemplate.execute(ACQUIRE, stockKeys(bookIds), args(bookIds, quantities));
+        if (taken != null && taken.size() == 1 && ((Number) taken.get(0)).intValue() < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(booksAt(bookIds, taken));
+    }
+
+    @Override
+    public Set<Long> release(Map<Long, Integer> quantities) {
+        List<Long> bookIds = new ArrayList<>(quantities.keySet());
+        return booksAt(bookIds, redisTemplate.execute(RELEASE, stockKeys(bookIds), args(bookIds, quantities)));
+    }
+
+    @Override
+    public Set<Long> recordSold(Map<Long, Integer> quantities) {
+        List<Long> bookIds = new ArrayList<>(quantities.keySet());
+        List<String> keys = new ArrayList<>(stockKeys(bookIds));
+        bookIds.forEach(bookId -> keys.add(soldKey(bookId)));
+        return booksAt(bookIds, redisTemplate.execute(RECORD_SOLD, keys, args(bookIds, quantities)));
+    }
+
+    @Override
+    public int drainSold(Long bookId) {
+        Long sold = redisTemplate.execute(DRAIN, List.of(soldKey(bookId)));
+        return sold != null ? sold.intValue() : 0;
+    }
+
+    @Override
+    public void restoreSold(Long bookId, int quantity) {
+        redisTemplate.opsForValue().increment(soldKey(bookId), quantity);
+    }
+
+    @Override
+    public int pendingSold(Long bookId) {
+        String value = redisTemplate.opsForValue().get(soldKey(bookId));
+        return value != null ? Integer.parseInt(value) : 0;
+    }
+
+    private static List<String> stockKeys(List<Long> bookIds) {
+        return bookIds.stream().map(RedisFlashSaleCounter::stockKey).toList();
+    }
+
+    private static Object[] args(List<Long> bookIds, Map<Long, Integer> quantities) {
+        return bookIds.stream().map(bookId -> String.valueOf(quantities.get(bookId))).toArray();
+    }
+
+    // Lua trả về vị trí (bắt đầu từ 1) của các sách đã xử lý
+    private static Set<Long> booksAt(List<Long> bookIds, List<?> positions) {
+        Set<Long> books = new HashSet<>();
+        if (positions != null) {
+            for (Object position : positions) {
+                books.add(bookIds.get(((Number) position).intValue() - 1));
+            }
+        }
+        return books;
+    }
+
+    private static String stockKey(Long bookId) {
+        return PREFIX + "stock:" + bookId;
+    }
+
+    private static String soldKey(Long bookId) {
+        return PREFIX + "sold:" + bookId;
+    }
+}
@@ -0,0 +1,203 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.Response.ResponseData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Xử lý header Idempotency-Key cho các API tạo mới (đơn hàng, thanh toán).
+ * Lần gọi đầu giữ một khoá "đang xử lý" trên Redis (SET NX), chạy nghiệp vụ rồi ghi đè khoá bằng response với TTL.
+ * Request trùng đến trong lúc đang xử lý sẽ chờ response đó thay vì chạy lại;
+ * request trùng đến sau được trả thẳng từ Redis, không chạm MySQL.
+ * Cùng key nhưng body khác thì bị từ chối (IDEMPOTENCY_KEY_REUSED).
+ * Khoá mang token riêng của request giữ nó; nhả khoá và ghi response đều so token bằng Lua, nên request
+ * chạy quá thời hạn khoá không xoá hay ghi đè khoá mà request khác đã lấy sau đó.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final String PREFIX = "idempotency:";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_MILLIS = 50;
+
+    // Chỉ xoá khi giá trị vẫn là khoá "đang xử lý" của chính request này
+    static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    // Ghi response đè lên khoá với cùng điều kiện như RELEASE; ARGV[3] là TTL (ms)
+    static final RedisScript<Long> COMPLETE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+            "  return 1 " +
+            "end " +
+            "return 0", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lockTtl;
+
+    public IdempotencyService(RedisTemplate<String, String> redisTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${app.idempotency.lock-seconds:30}") long lockSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lockTtl = Duration.ofSeconds(lockSeconds);
+    }
+
+    // status = 0 nghĩa là request đầu tiên vẫn đang chạy; token chỉ có ở khoá đang xử lý
+    private record Entry(String fingerprint, String token, int status, String body) {
+    }
+
+    /**
+     * @param scope    tên API, vd. "orders:create"; key của client chỉ có nghĩa trong scope và user hiện tại
+     * @param key      giá trị header Idempotency-Key; null/rỗng = chạy bình thường
+     * @param request  body của request, dùng để phát hiện dùng lại key cho yêu cầu khác
+     * @param dataType kiểu của ResponseData.data để đọc lại response đã lưu
+     */
+    public <T> ResponseEntity<ResponseData<T>> execute(String scope, String key, Object request, Class<T> dataType,
+                                                       Supplier<ResponseEntity<ResponseData<T>>> action) {
+        if (key == null || key.isBlank()) return action.get();
+        if (key.length() > MAX_KEY_LENGTH) throw new BusinessException(AppException.BAD_REQUEST);
+
+        String redisKey = PREFIX + scope + ":" + principal() + ":" + key;
+        String fingerprint = fingerprint(request);
+        JavaType type = objectMapper.getTypeFactory().constructParametricType(ResponseData.class, dataType);
+
+        String pending = write(new Entry(fingerprint, UUID.randomUUID().toString(), 0, null));
+        Boolean acquired;
+        try {
+            acquired = redisTemplate.opsForValue().setIfAbsent(redisKey, pending, lockTtl);
+        } catch (Exception e) {
+            // Redis lỗi: vẫn phục vụ request, chỉ mất khả năng chống trùng trong lúc đó
+            log.warn("Idempotency store unavailable, executing {} without it: {}", scope, e.getMessage());
+            return action.get();
+        }
+        if (!Boolean.TRUE.equals(acquired)) return replay(redisKey, fingerprint, type);
+
+        ResponseEntity<ResponseData<T>> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            // Lỗi thì không lưu: client được phép thử lại với cùng key
+            release(redisKey, pending);
+            throw e;
+        }
+        try {
+            if (response.getStatusCode().is2xxSuccessful()) {
+                String completed = write(new Entry(fingerprint, null, response.getStatusCode().value(),
+                        write(response.getBody())));
+                Long stored = redisTemplate.execute(COMPLETE, List.of(redisKey), pending, completed,
+                        String.valueOf(ttl.toMillis()));
+                if (!Long.valueOf(1).equals(stored)) {
+                    log.warn("Idempotency lock for {} expired before the response was stored", scope);
+                }
+            } else {
+                release(redisKey, pending);
+            }
+        } catch (Exception e) {
+            log.warn("Could not store idempotent response for {}: {}", scope, e.getMessage());
+        }
+        return response;
+    }
+
+    // Chờ request đầu tiên xong (tối đa bằng thời hạn khoá) rồi trả lại đúng response của nó
+    private <T> ResponseEntity<ResponseData<T>> replay(String redisKey, String fingerprint, JavaType type) {
+        long deadline = System.currentTimeMillis() + lockTtl.toMillis();
+        while (true) {
+            String raw = redisTemplate.opsForValue().get(redisKey);
+            if (raw == null) {
+                // Request đầu thất bại và đã nhả khoá
+                throw new BusinessException(AppException.IDEMPOTENCY_IN_PROGRESS);
+            }
+            Entry entry = read(raw);
+            if (!entry.fingerprint().equals(fingerprint)) {
+                throw new BusinessException(AppException.IDEMPOTENCY_KEY_REUSED);
+            }
+            if (entry.status() != 0) {
+                try {
+                    ResponseData<T> body = objectMapper.readValue(entry.body(), type);
+                    return ResponseEntity.status(entry.status()).header(REPLAYED_HEADER, "true").body(body);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new BusinessException(AppException.IDEMPOTENCY_IN_PROGRESS);
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException(AppException.IDEMPOTENCY_IN_PROGRESS);
+            }
+        }
+    }
+
+    private void release(String redisKey, String pending) {
+        try {
+            redisTemplate.execute(RELEASE, List.of(redisKey), pending);
+        } catch (Exception e) {
+            log.warn("Could not release idempotency lock {}: {}", redisKey, e.getMessage());
+        }
+    }
+
+    private static String principal() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() ? auth.getName() : "anonymous";
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Entry read(String raw) {
+        try {
+            return objectMapper.readValue(raw, Entry.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
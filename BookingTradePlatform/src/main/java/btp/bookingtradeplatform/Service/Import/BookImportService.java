@@ -0,0 +1,312 @@
+package btp.bookingtradeplatform.Service.Import;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.DTO.BookImportReportDTO;
+import btp.bookingtradeplatform.Model.Entity.Category;
+import btp.bookingtradeplatform.Model.Entity.Series;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import btp.bookingtradeplatform.Model.Request.CreateBookRequest;
+import btp.bookingtradeplatform.Model.Response.ResponseData;
+import btp.bookingtradeplatform.Repository.CategoryRepository;
+import btp.bookingtradeplatform.Repository.SellerRepository;
+import btp.bookingtradeplatform.Repository.SerieRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Nhập sách hàng loạt cho một seller từ CSV hoặc NDJSON.
+ * Body được đọc dần từng dòng; cứ BATCH_SIZE dòng hợp lệ thì category/series được
+ * kiểm tra bằng một truy vấn và sách được insert bằng JDBC batch trong một transaction.
+ * Nếu batch lỗi (vd. dữ liệu quá dài), các dòng của batch đó được insert lại từng dòng
+ * để báo đúng dòng hỏng.
+ * Với MySQL nên thêm rewriteBatchedStatements=true vào MYSQL_URL để batch được gộp thành multi-row INSERT.
+ */
+@Slf4j
+@Service
+public class BookImportService {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String LIST_SEPARATOR = ";";
+
+    private static final String INSERT_BOOK = "INSERT INTO book (title, description, author, language, page_count, " +
+            "cover_image, price, stock, seller_id, series_id, format, is_active, sold_count, version, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, TRUE, 0, 0, CURRENT_TIMESTAMP)";
+    private static final String INSERT_CATEGORY = "INSERT INTO book_category (book_id, category_id) VALUES (?, ?)";
+    private static final String INSERT_IMAGE = "INSERT INTO book_additional_images (book_id, additional_images) VALUES (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SerieRepository serieRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private record Row(long line, CreateBookRequest book) {
+    }
+
+    public ResponseEntity<ResponseData<BookImportReportDTO>> importBooks(Long sellerId, String contentType,
+                                                                         InputStream body) throws IOException {
+        if (sellerId == null || !sellerRepository.existsById(sellerId)) {
+            throw new BusinessException(AppException.SELLER_NOT_FOUND);
+        }
+        MediaType type = contentType != null ? MediaType.parseMediaType(contentType) : null;
+        boolean csv = type != null && type.isCompatibleWith(MediaType.parseMediaType(CSV));
+        if (!csv && (type == null || !type.isCompatibleWith(MediaType.parseMediaType(NDJSON)))) {
+            throw new BusinessException(AppException.BAD_REQUEST);
+        }
+
+        BookImportReportDTO report = new BookImportReportDTO();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Row> batch = new ArrayList<>(BATCH_SIZE);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (csv) {
+            readCsv(reader, sellerId, batch, report, tx);
+        } else {
+            readNdjson(reader, sellerId, batch, report, tx);
+        }
+        flush(batch, sellerId, report, tx);
+
+        log.info("Imported {}/{} books for seller {}", report.getImported(), report.getTotalRows(), sellerId);
+        return ResponseEntity
+                .status(AppException.SUCCESS.getHttpStatus())
+                .body(new ResponseData<>(
+                        AppException.SUCCESS.getCode(),
+                        AppException.SUCCESS.getMessage(),
+                        report
+                ));
+    }
+
+    private void readNdjson(BufferedReader reader, Long sellerId, List<Row> batch,
+                            BookImportReportDTO report, TransactionTemplate tx) throws IOException {
+        String text;
+        long line = 0;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) continue;
+            report.setTotalRows(report.getTotalRows() + 1);
+            try {
+                accept(new Row(line, objectMapper.readValue(text, CreateBookRequest.class)), batch, sellerId, report, tx);
+            } catch (JsonProcessingException e) {
+                fail(report, line, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private void readCsv(BufferedReader reader, Long sellerId, List<Row> batch,
+                         BookImportReportDTO report, TransactionTemplate tx) throws IOException {
+        CsvRowReader csv = new CsvRowReader(reader);
+        try {
+            readCsvRows(csv, sellerId, batch, report, tx);
+        } catch (CsvRowReader.MalformedCsvException e) {
+            // Không đọc tiếp được sau ngoặc kép không đóng: ghi lỗi cho bản ghi cuối, các dòng trước vẫn được import
+            report.setTotalRows(report.getTotalRows() + 1);
+            fail(report, e.getLine(), e.getMessage());
+        }
+    }
+
+    private void readCsvRows(CsvRowReader csv, Long sellerId, List<Row> batch,
+                             BookImportReportDTO report, TransactionTemplate tx) throws IOException {
+        List<String> header = csv.next();
+        if (header == null) return;
+        header = header.stream().map(String::trim).toList();
+
+        List<String> fields;
+        while ((fields = csv.next()) != null) {
+            report.setTotalRows(report.getTotalRows() + 1);
+            long line = csv.getRecordLine();
+            if (fields.size() != header.size()) {
+                fail(report, line, "Expected " + header.size() + " columns but got " + fields.size());
+                continue;
+            }
+            Map<String, Object> values = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                String name = header.get(i);
+                String value = fields.get(i).trim();
+                if (value.isEmpty()) continue;
+                if (name.equals("categoryIds") || name.equals("additionalImages")) {
+                    values.put(name, Arrays.stream(value.split(LIST_SEPARATOR)).map(String::trim)
+                            .filter(s -> !s.isEmpty()).toList());
+                } else {
+                    values.put(name, value);
+                }
+            }
+            try {
+                accept(new Row(line, objectMapper.convertValue(values, CreateBookRequest.class)), batch, sellerId, report, tx);
+            } catch (IllegalArgumentException e) {
+                fail(report, line, "Invalid value: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept(Row row, List<Row> batch, Long sellerId, BookImportReportDTO report, TransactionTemplate tx) {
+        String error = validate(row.book());
+        if (error != null) {
+            fail(report, row.line(), error);
+            return;
+        }
+        batch.add(row);
+        if (batch.size() >= BATCH_SIZE) flush(batch, sellerId, report, tx);
+    }
+
+    private static String validate(CreateBookRequest book) {
+        if (book.getTitle() == null || book.getTitle().isBlank()) return "title is required";
+        if (book.getPrice() == null || book.getPrice().compareTo(BigDecimal.ZERO) < 0) return "price must be >= 0";
+        if (book.getStock() < 0) return "stock must be >= 0";
+        if (book.getPageCount() < 0) return "pageCount must be >= 0";
+        return null;
+    }
+
+    private void flush(List<Row> batch, Long sellerId, BookImportReportDTO report, TransactionTemplate tx) {
+        if (batch.isEmpty()) return;
+
+        // Kiểm tra category/series một lần cho cả batch
+        Set<Long> categoryIds = new HashSet<>();
+        Set<Long> seriesIds = new HashSet<>();
+        for (Row row : batch) {
+            if (row.book().getCategoryIds() != null) categoryIds.addAll(row.book().getCategoryIds());
+            if (row.book().getSeriesId() != null) seriesIds.add(row.book().getSeriesId());
+        }
+        Set<Long> knownCategories = new HashSet<>();
+        for (Category category : categoryRepository.findAllById(categoryIds)) knownCategories.add(category.getId());
+        Set<Long> knownSeries = new HashSet<>();
+        for (Series series : serieRepository.findAllById(seriesIds)) knownSeries.add(series.getId());
+
+        List<Row> valid = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            List<Long> rowCategories = row.book().getCategoryIds() != null ? row.book().getCategoryIds() : List.of();
+            Optional<Long> missing = rowCategories.stream().filter(id -> !knownCategories.contains(id)).findFirst();
+            if (missing.isPresent()) {
+                fail(report, row.line(), "Unknown categoryId " + missing.get());
+            } else if (row.book().getSeriesId() != null && !knownSeries.contains(row.book().getSeriesId())) {
+                fail(report, row.line(), "Unknown seriesId " + row.book().getSeriesId());
+            } else {
+                valid.add(row);
+            }
+        }
+        batch.clear();
+
+        try {
+            tx.executeWithoutResult(status -> insert(valid, sellerId));
+            report.setImported(report.getImported() + valid.size());
+        } catch (DataAccessException batchError) {
+            // Cả batch đã rollback, thử lại từng dòng để biết dòng nào lỗi
+            for (Row row : valid) {
+                try {
+                    tx.executeWithoutResult(status -> insert(List.of(row), sellerId));
+                    report.setImported(report.getImported() + 1);
+                } catch (DataAccessException e) {
+                    String message = String.valueOf(e.getMostSpecificCause().getMessage());
+                    fail(report, row.line(), message.lines().findFirst().orElse(message));
+                }
+            }
+        }
+    }
+
+    private void insert(List<Row> rows, Long sellerId) {
+        if (rows.isEmpty()) return;
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_BOOK, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        CreateBookRequest b = rows.get(i).book();
+                        ps.setString(1, b.getTitle().trim());
+                        ps.setString(2, b.getDescription());
+                        ps.setString(3, b.getAuthor());
+                        ps.setString(4, b.getLanguage());
+                        ps.setInt(5, b.getPageCount());
+                        ps.setString(6, b.getCoverImage());
+                        ps.setBigDecimal(7, b.getPrice());
+                        ps.setInt(8, b.getStock());
+                        ps.setLong(9, sellerId);
+                        if (b.getSeriesId() != null) ps.setLong(10, b.getSeriesId());
+                        else ps.setNull(10, Types.BIGINT);
+                        ps.setString(11, b.getFormat() != null ? b.getFormat().name() : null);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keys);
+
+        List<Long> bookIds = new ArrayList<>(rows.size());
+        for (Map<String, Object> key : keys.getKeyList()) {
+            bookIds.add(((Number) key.values().iterator().next()).longValue());
+        }
+        if (bookIds.size() != rows.size()) {
+            throw new IllegalStateException("Driver returned " + bookIds.size() + " keys for " + rows.size() + " rows");
+        }
+
+        List<Object[]> categoryLinks = new ArrayList<>();
+        List<Object[]> images = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            CreateBookRequest b = rows.get(i).book();
+            Long bookId = bookIds.get(i);
+            if (b.getCategoryIds() != null) {
+                for (Long categoryId : new LinkedHashSet<>(b.getCategoryIds())) categoryLinks.add(new Object[]{bookId, categoryId});
+            }
+            if (b.getAdditionalImages() != null) {
+                for (String image : b.getAdditionalImages()) images.add(new Object[]{bookId, image});
+            }
+        }
+        if (!categoryLinks.isEmpty()) jdbcTemplate.batchUpdate(INSERT_CATEGORY, categoryLinks);
+        if (!images.isEmpty()) jdbcTemplate.batchUpdate(INSERT_IMAGE, images);
+
+        eventPublisher.publishEvent(BookChangedEvent.upsert(bookIds));
+    }
+
+    private static void fail(BookImportReportDTO report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new BookImportReportDTO.RowError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+}
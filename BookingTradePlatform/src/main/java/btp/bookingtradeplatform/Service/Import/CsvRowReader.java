@@ -0,0 +1,110 @@
+package btp.bookingtradeplatform.Service.Import;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đọc CSV (RFC 4180) từng dòng một từ Reader, không nạp cả file vào bộ nhớ.
+ * Hỗ trợ trường trong ngoặc kép, "" để escape và xuống dòng bên trong ngoặc kép.
+ */
+public class CsvRowReader {
+
+    private final Reader reader;
+    private int peeked = -2;
+    private long line = 1;
+    private long recordLine;
+
+    /**
+     * Dữ liệu CSV sai cú pháp (ngoặc kép không đóng). Không đọc tiếp được sau lỗi này.
+     */
+    public static class MalformedCsvException extends IOException {
+        private final long line;
+
+        public MalformedCsvException(String message, long line) {
+            super(message);
+            this.line = line;
+        }
+
+        // Dòng bắt đầu của bản ghi lỗi
+        public long getLine() {
+            return line;
+        }
+    }
+
+    public CsvRowReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return các trường của bản ghi kế tiếp, null khi hết dữ liệu
+     * @throws MalformedCsvException khi gặp hết dữ liệu bên trong ngoặc kép
+     */
+    public List<String> next() throws IOException {
+        int c = read();
+        // bỏ qua dòng trống
+        while (c == '\r' || c == '\n') {
+            if (c == '\r' && peek() == '\n') read();
+            line++;
+            c = read();
+        }
+        if (c == -1) return null;
+
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new MalformedCsvException("Unterminated quoted field starting at line " + recordLine
+                            + " (input ended at line " + line + ")", recordLine);
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r' && peek() == '\n') read();
+                if (c != -1) line++;
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    // Dòng bắt đầu của bản ghi vừa đọc, dùng cho báo lỗi
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) peeked = reader.read();
+        return peeked;
+    }
+}
@@ -2,8 +2,10 @@ package btp.bookingtradeplatform.Service;
 
 import btp.bookingtradeplatform.Exception.AppException;
 import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.DTO.PaymentDTO;
 import btp.bookingtradeplatform.Model.Entity.Order;
 import btp.bookingtradeplatform.Model.Entity.Payment;
+import btp.bookingtradeplatform.Model.Enum.OrderEventType;
 import btp.bookingtradeplatform.Model.Enum.OrderStatus;
 import btp.bookingtradeplatform.Model.Enum.PaymentMethod;
 import btp.bookingtradeplatform.Model.Enum.PaymentStatus;
@@ -11,6 +13,8 @@ import btp.bookingtradeplatform.Model.Request.MomoPaymentRequest;
 import btp.bookingtradeplatform.Model.Response.MomoPaymentResponse;
 import btp.bookingtradeplatform.Repository.OrderRepository;
 import btp.bookingtradeplatform.Repository.PaymentRepository;
+import btp.bookingtradeplatform.Service.Outbox.OutboxService;
+import btp.bookingtradeplatform.Service.Pricing.PricingEngine;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,11 +22,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -39,6 +43,12 @@ public class MomoPaymentService {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Value("${momo.partnerCode}")
     private String partnerCode;
 
@@ -62,10 +72,8 @@ public class MomoPaymentService {
 
         Order order = orderRepository.findById(request.getOrderId())
                 .orElseThrow(() -> new BusinessException(AppException.NOT_FOUND));
-        BigDecimal totalPrice = order.getTotalPrice()
-                .subtract(request.getDiscount());
         String orderId = order.getTransactionId();
-        long amount = totalPrice.longValue();
+        long amount = PricingEngine.payable(order.getTotalPrice(), request.getDiscount());
 
         // 🔹 Chuỗi ký chuẩn MoMo
         String rawSignature = String.format(
@@ -111,13 +119,16 @@ public class MomoPaymentService {
         // ✅ Lưu Payment vào DB
         assert order != null;
         Payment payment = Payment.builder()
-                .amount(order.getTotalPrice())
+                .amount(PricingEngine.toAmount(amount))
                 .order(order)
                 .method(PaymentMethod.MOMO)
                 .status(PaymentStatus.PENDING)
                 .paymentDate(LocalDateTime.now())
                 .build();
-        paymentRepository.save(payment);
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentRepository.save(payment);
+            outboxService.recordPayment(OrderEventType.PAYMENT_CREATED, PaymentDTO.fromEntity(payment));
+        });
 
         return momoResponse;
     }
@@ -142,22 +153,28 @@ public class MomoPaymentService {
             String resultCode = String.valueOf(data.get("resultCode"));
             Long orderId = Long.parseLong(String.valueOf(data.get("orderId")));
 
-            Payment payment = paymentRepository.findByOrderId(orderId);
-            if (payment == null) return "Payment not found for orderId: " + orderId;
-
-            if ("0".equals(resultCode)) {
-                payment.setStatus(PaymentStatus.SUCCESS);
-                payment.getOrder().setStatus(OrderStatus.CONFIRMED);
-                orderService.decreaseStockForOrder(payment.getOrder());
-                payment.setAccepted(true);
-            } else {
-                payment.setStatus(PaymentStatus.FAILED);
-                payment.getOrder().setStatus(OrderStatus.CANCELLED);
-                orderService.reverseStockForOrder(payment.getOrder());
-            }
-
-            paymentRepository.save(payment);
-            return "Callback processed for orderId: " + orderId + ", resultCode=" + resultCode;
+            // Trạng thái thanh toán, kho và sự kiện outbox cùng commit hoặc cùng rollback
+            return transactionTemplate.execute(status -> {
+                Payment payment = paymentRepository.findByOrderId(orderId);
+                if (payment == null) return "Payment not found for orderId: " + orderId;
+
+                if ("0".equals(resultCode)) {
+                    payment.setStatus(PaymentStatus.SUCCESS);
+                    orderService.changeStatus(payment.getOrder(), OrderStatus.CONFIRMED);
+                    orderService.decreaseStockForOrder(payment.getOrder());
+                    payment.setAccepted(true);
+                } else {
+                    payment.setStatus(PaymentStatus.FAILED);
+                    orderService.changeStatus(payment.getOrder(), OrderStatus.CANCELLED);
+                    orderService.releaseReservation(payment.getOrder());
+                }
+
+                paymentRepository.save(payment);
+                outboxService.recordPayment("0".equals(resultCode)
+                        ? OrderEventType.PAYMENT_SUCCEEDED
+                        : OrderEventType.PAYMENT_FAILED, PaymentDTO.fromEntity(payment));
+                return "Callback processed for orderId: " + orderId + ", resultCode=" + resultCode;
+            });
 
         } catch (Exception e) {
             log.error("Callback error: {}", e.getMessage());
@@ -2,28 +2,73 @@ package btp.bookingtradeplatform.Service;
 
 import btp.bookingtradeplatform.Exception.AppException;
 import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.DTO.BulkOrderStatusDTO;
 import btp.bookingtradeplatform.Model.DTO.OrderDTO;
+import btp.bookingtradeplatform.Model.DTO.OrderTransitionDTO;
 import btp.bookingtradeplatform.Model.DTO.PaymentDTO;
+import btp.bookingtradeplatform.Model.DTO.SellerOrderDTO;
 import btp.bookingtradeplatform.Model.Entity.*;
+import btp.bookingtradeplatform.Model.Enum.OrderEventType;
 import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import btp.bookingtradeplatform.Model.Enum.TransitionOutcome;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import btp.bookingtradeplatform.Model.Event.BookSoldEvent;
+import btp.bookingtradeplatform.Model.Event.StockReservedEvent;
 import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Model.Request.OrderHistoryRequest;
+import btp.bookingtradeplatform.Model.Request.SellerInboxRequest;
+import btp.bookingtradeplatform.Model.Response.CursorPage;
 import btp.bookingtradeplatform.Model.Response.ResponseData;
+import btp.bookingtradeplatform.Model.UpdateRequest.BulkUpdateOrderStatus;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdateOrderStatus;
 import btp.bookingtradeplatform.Repository.*;
+import btp.bookingtradeplatform.Service.FlashSale.FlashSaleService;
+import btp.bookingtradeplatform.Service.Outbox.OutboxService;
+import btp.bookingtradeplatform.Service.Pricing.PricingEngine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
+@Slf4j
 @Transactional
 @Service
 public class OrderService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BULK_TRANSITIONS = 10_000;
+
+    // Số đơn mỗi lô khi chuyển trạng thái hàng loạt (giới hạn kích thước IN và số dòng bị khoá cùng lúc)
+    private static final int TRANSITION_CHUNK_SIZE = 500;
+
+    // Cursor trang đầu: mọi đơn đều đứng trước mốc này
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -39,6 +84,39 @@ public class OrderService {
     @Autowired
     private DiscountCodeRepository discountCodeRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderItemJdbcRepository orderItemJdbcRepository;
+
+    @Autowired
+    private BookStockJdbcRepository bookStockJdbcRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private SellerOrderRepository sellerOrderRepository;
+
+    @Autowired
+    private SellerOrderJdbcRepository sellerOrderJdbcRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.order.reservation-ttl-minutes:15}")
+    private long reservationTtlMinutes;
+
+    @Value("${app.seller-order.backfill-on-startup:false}")
+    private boolean backfillSellerOrdersOnStartup;
+
     public ResponseEntity<ResponseData<List<OrderDTO>>> getAllOrders() {
         List<Order> orders = orderRepository.findAll();
         List<OrderDTO> dto = orders.stream()
@@ -62,8 +140,24 @@ public class OrderService {
     }
 
     public ResponseEntity<ResponseData<OrderDTO>> createOrder(CreateOrderRequest request) {
+        OrderDTO dto = placeOrder(request.getCustomerId(), request.getItems());
+
+        return ResponseEntity.ok(
+                new ResponseData<>(
+                        AppException.SUCCESS.getCode(),
+                        "Order created successfully",
+                        dto
+                )
+        );
+    }
+
+    /**
+     * Tạo đơn, giữ hàng và ghi outbox trong transaction hiện tại; dùng chung cho tạo đơn trực tiếp và checkout giỏ.
+     * Giá, seller và tiêu đề được chụp lại vào OrderItem từ sách nạp một lượt, không lấy theo dữ liệu client gửi.
+     */
+    public OrderDTO placeOrder(Long customerId, List<CreateOrderRequest.OrderItemRequest> items) {
 
-        Customer customer = customerRepository.findById(request.getCustomerId())
+        Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new BusinessException(AppException.USER_NOT_FOUND));
 
         Order order = Order.builder()
@@ -73,41 +167,47 @@ public class OrderService {
                 .build();
 
         List<OrderItem> orderItems = new ArrayList<>();
-        BigDecimal totalOrder = BigDecimal.ZERO;
-
-        for (CreateOrderRequest.OrderItemRequest itemReq : request.getItems()) {
-
-            Book book = bookRepository.findById(itemReq.getBookId())
-                    .orElseThrow(() -> new BusinessException(AppException.BOOK_NOT_FOUND));
+        long totalOrder = 0;
 
-            BigDecimal bookPrice = book.getPrice();
-            int quantity = itemReq.getQuantity();
-            BigDecimal subtotal = bookPrice.multiply(BigDecimal.valueOf(quantity));
+        // Nạp trước toàn bộ sách (kèm seller) và mã giảm giá của đơn, mỗi loại một truy vấn
+        Map<Long, Book> books = new HashMap<>();
+        Set<String> codes = new HashSet<>();
+        if (items == null || items.isEmpty()) {
+            throw new BusinessException(AppException.BAD_REQUEST);
+        }
+        for (CreateOrderRequest.OrderItemRequest itemReq : items) {
+            // Số lượng âm sẽ nhả phần giữ hàng của đơn khác và cho ra tiền âm
+            if (itemReq.getQuantity() <= 0) {
+                throw new BusinessException(AppException.BAD_REQUEST);
+            }
+            books.put(itemReq.getBookId(), null);
+            if (itemReq.getDiscountCode() != null && !itemReq.getDiscountCode().isBlank()) {
+                codes.add(itemReq.getDiscountCode());
+            }
+        }
+        for (Book book : bookRepository.findAllWithSellerByIdIn(books.keySet())) {
+            books.put(book.getId(), book);
+        }
+        Map<String, PricingEngine.Discount> discounts = new HashMap<>();
+        if (!codes.isEmpty()) {
+            for (DiscountCode code : discountCodeRepository.findByCodeIn(codes)) {
+                discounts.putIfAbsent(code.getCode(), PricingEngine.Discount.of(code));
+            }
+        }
 
-            BigDecimal discountAmount = BigDecimal.ZERO;
-            BigDecimal totalAfterDiscount = subtotal;
+        for (CreateOrderRequest.OrderItemRequest itemReq : items) {
 
-            DiscountCode discountCode = null;
-            if (itemReq.getDiscountCode() != null && !itemReq.getDiscountCode().isBlank()) {
-                discountCode = discountCodeRepository.findByCode(itemReq.getDiscountCode());
-
-                if (discountCode != null) {
-                    if (discountCode.isPercentage()) {
-                        // Giảm theo %
-                        discountAmount = subtotal.multiply(discountCode.getDiscountAmount())
-                                .divide(BigDecimal.valueOf(100));
-                    } else {
-                        // Giảm theo số tiền cố định
-                        discountAmount = discountCode.getDiscountAmount();
-                    }
-
-                    totalAfterDiscount = subtotal.subtract(discountAmount);
-                    if (totalAfterDiscount.compareTo(BigDecimal.ZERO) < 0) {
-                        totalAfterDiscount = BigDecimal.ZERO;
-                    }
-                }
+            Book book = books.get(itemReq.getBookId());
+            if (book == null) {
+                throw new BusinessException(AppException.BOOK_NOT_FOUND);
             }
 
+            int quantity = itemReq.getQuantity();
+            long subtotal = PricingEngine.lineSubtotal(PricingEngine.toMinor(book.getPrice()), quantity);
+            long discountAmount = PricingEngine.discountOf(subtotal,
+                    discounts.getOrDefault(itemReq.getDiscountCode(), PricingEngine.Discount.NONE));
+            long totalAfterDiscount = subtotal - discountAmount;
+
             OrderItem orderItem = OrderItem.builder()
                     .order(order)
                     .bookId(book.getId())
@@ -115,82 +215,357 @@ public class OrderService {
                     .sellerName(book.getSeller().getStoreName())
                     .bookTitle(book.getTitle())
                     .coverImage(book.getCoverImage())
-                    .bookPrice(bookPrice)
+                    .bookPrice(book.getPrice())
                     .quantity(quantity)
                     .discountCode(itemReq.getDiscountCode())
-                    .discountAmount(discountAmount)
-                    .totalAmount(totalAfterDiscount)
+                    .discountAmount(PricingEngine.toAmount(discountAmount))
+                    .totalAmount(PricingEngine.toAmount(totalAfterDiscount))
                     .build();
 
             orderItems.add(orderItem);
 
-            totalOrder = totalOrder.add(totalAfterDiscount);
+            totalOrder = Math.addExact(totalOrder, totalAfterDiscount);
         }
 
-        order.setOrderItems(orderItems);
-        order.setTotalPrice(totalOrder);
+        // Giữ hàng ngay khi tạo đơn để khách không thanh toán cho sách đã hết
+        reserveStock(quantitiesOf(orderItems, 1));
+        order.setReservedUntil(LocalDateTime.now().plusMinutes(reservationTtlMinutes));
 
+        order.setTotalPrice(PricingEngine.toAmount(totalOrder));
+        order.setOrderItems(new ArrayList<>());
         Order saved = orderRepository.save(order);
-
-        return ResponseEntity.ok(
-                new ResponseData<>(
-                        AppException.SUCCESS.getCode(),
-                        "Order created successfully",
-                        OrderDTO.fromEntity(saved)
-                )
-        );
+        eventPublisher.publishEvent(new StockReservedEvent(saved.getId(), saved.getReservedUntil()));
+
+        // Item được ghi bằng JDBC batch nên tách order khỏi persistence context
+        // để Hibernate không cascade persist lại các item đã có id
+        entityManager.detach(saved);
+        orderItemJdbcRepository.insertAll(saved.getId(), orderItems);
+        sellerOrderJdbcRepository.insertAll(sellerOrdersOf(saved, orderItems));
+        saved.setOrderItems(orderItems);
+
+        OrderDTO dto = OrderDTO.fromEntity(saved);
+        outboxService.recordOrder(OrderEventType.ORDER_CREATED, dto);
+        return dto;
     }
 
 
 
+    /**
+     * Đổi trạng thái một đơn theo máy trạng thái của OrderStatus. Không nhận CONFIRMED (giống
+     * bulkUpdateOrderStatus). Huỷ đơn còn giữ hàng thì nhả phần giữ, huỷ đơn đã thanh toán thì hoàn kho.
+     */
     public ResponseEntity<ResponseData<OrderDTO>> updateOrderStatus(Long id, UpdateOrderStatus request) {
-        Order order = orderRepository.findById(id)
+        OrderStatus target = request.getStatus();
+        if (target == null || target == OrderStatus.CONFIRMED) {
+            throw new BusinessException(AppException.BAD_REQUEST);
+        }
+        Order order = orderRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new BusinessException(AppException.NOT_FOUND));
+        OrderStatus current = order.getStatus();
+        if (current == null || !current.canTransitionTo(target)) {
+            throw new BusinessException(AppException.INVALID_ORDER_TRANSITION);
+        }
 
-
-        order.setStatus(request.getStatus());
+        changeStatus(order, target);
         Order updated = orderRepository.save(order);
+        if (target == OrderStatus.CANCELLED) {
+            if (updated.getReservedUntil() != null) {
+                releaseReservation(updated);
+            } else if (current == OrderStatus.CONFIRMED) {
+                reverseStockForOrder(updated);
+            }
+        }
+        OrderDTO dto = OrderDTO.fromEntity(updated);
+        outboxService.recordOrder(OrderEventType.ORDER_STATUS_CHANGED, dto);
 
         return ResponseEntity.ok(new ResponseData<>(
                 AppException.SUCCESS.getCode(),
                 "Order status updated successfully",
-                OrderDTO.fromEntity(updated)
+                dto
         ));
     }
 
-    public void reverseStockForOrder(Order order) {
-        for (OrderItem item : order.getOrderItems()) {
-            // Lấy lại Book dựa trên snapshot bookId
-            Book book = bookRepository.findById(item.getBookId())
-                    .orElseThrow(() -> new BusinessException(AppException.BOOK_NOT_FOUND));
-            int quantity = item.getQuantity();
-            // Tăng lại kho
-            book.setStock(book.getStock() + quantity);
-            // Giảm số lượng đã bán
-            book.setSoldCount(book.getSoldCount() - quantity);
-            bookRepository.save(book);
+    /**
+     * Chuyển trạng thái hàng loạt cho các đơn của một seller, theo lô TRANSITION_CHUNK_SIZE đơn.
+     * Mỗi lô khoá và đọc trạng thái bằng một SELECT ... FOR UPDATE, kiểm tra theo máy trạng thái của
+     * OrderStatus rồi đổi bằng UPDATE ... WHERE id IN trên orders và seller_order; số truy vấn không
+     * tăng theo số đơn. Đơn sai trạng thái chỉ bị bỏ qua và báo lại trong kết quả.
+     * Không nhận CONFIRMED: xác nhận đi qua thanh toán để chốt phần giữ hàng.
+     */
+    public ResponseEntity<ResponseData<BulkOrderStatusDTO>> bulkUpdateOrderStatus(Long sellerId,
+                                                                                BulkUpdateOrderStatus request) {
+        OrderStatus target = request.getStatus();
+        if (target == null || target == OrderStatus.CONFIRMED
+                || request.getOrderIds() == null || request.getOrderIds().isEmpty()
+                || request.getOrderIds().size() > MAX_BULK_TRANSITIONS) {
+            throw new BusinessException(AppException.BAD_REQUEST);
         }
+        List<Long> orderIds = request.getOrderIds().stream().filter(Objects::nonNull).distinct().toList();
+
+        Map<Long, OrderTransitionDTO> outcomes = new HashMap<>();
+        for (int from = 0; from < orderIds.size(); from += TRANSITION_CHUNK_SIZE) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + TRANSITION_CHUNK_SIZE, orderIds.size()));
+            outcomes.putAll(transitionChunk(sellerId, chunk, target));
+        }
+
+        List<OrderTransitionDTO> results = orderIds.stream()
+                .map(id -> outcomes.getOrDefault(id, new OrderTransitionDTO(id, null, TransitionOutcome.NOT_FOUND)))
+                .toList();
+        int applied = (int) results.stream().filter(r -> r.getOutcome() == TransitionOutcome.APPLIED).count();
+        int rejected = (int) results.stream()
+                .filter(r -> r.getOutcome() == TransitionOutcome.NOT_FOUND
+                        || r.getOutcome() == TransitionOutcome.INVALID_TRANSITION)
+                .count();
+
+        return ResponseEntity.ok(new ResponseData<>(
+                AppException.SUCCESS.getCode(),
+                "Order statuses updated successfully",
+                new BulkOrderStatusDTO(target, applied, rejected, results)
+        ));
     }
 
+    private Map<Long, OrderTransitionDTO> transitionChunk(Long sellerId, List<Long> ids, OrderStatus target) {
+        Map<Long, OrderTransitionDTO> outcomes = new HashMap<>();
+        List<Long> applied = new ArrayList<>();
+        List<Long> held = new ArrayList<>();
+        List<Long> paid = new ArrayList<>();
+        for (Object[] row : orderRepository.lockStatusesForSeller(sellerId, ids)) {
+            Long id = (Long) row[0];
+            OrderStatus current = (OrderStatus) row[1];
+            TransitionOutcome outcome = current == target ? TransitionOutcome.UNCHANGED
+                    : current != null && current.canTransitionTo(target) ? TransitionOutcome.APPLIED
+                    : TransitionOutcome.INVALID_TRANSITION;
+            outcomes.put(id, new OrderTransitionDTO(id, current, outcome));
+            if (outcome != TransitionOutcome.APPLIED) continue;
+            applied.add(id);
+            if (row[2] != null) held.add(id);
+            else if (current == OrderStatus.CONFIRMED) paid.add(id);
+        }
+        if (applied.isEmpty()) return outcomes;
 
+        orderRepository.updateStatusByIdIn(applied, target);
+        sellerOrderRepository.updateStatusByOrderIdIn(applied, target);
+
+        List<Order> orders = orderRepository.findWithCustomerByIdIn(applied);
+        Map<Long, List<OrderItem>> items = itemsByOrderId(applied);
+
+        // Đơn huỷ còn giữ hàng: các dòng đang bị khoá nên chắc chắn chốt được cả lô
+        if (target == OrderStatus.CANCELLED && !held.isEmpty()) {
+            orderRepository.clearReservations(held);
+            Map<Long, Integer> released = new HashMap<>();
+            for (Long id : held) {
+                quantitiesOf(items.getOrDefault(id, List.of()), 1).forEach((bookId, quantity) ->
+                        released.merge(bookId, quantity, Integer::sum));
+            }
+            releaseStock(released);
+            eventPublisher.publishEvent(BookChangedEvent.reservation(released.keySet()));
+        }
+
+        // Đơn đã thanh toán bị huỷ: hoàn kho gộp theo sách, trừ doanh số theo ngày đặt của từng đơn
+        if (target == OrderStatus.CANCELLED && !paid.isEmpty()) {
+            Set<Long> paidIds = new HashSet<>(paid);
+            Map<Long, Integer> restocked = new HashMap<>();
+            Map<LocalDate, Map<Long, Integer>> unsold = new HashMap<>();
+            for (Order order : orders) {
+                if (!paidIds.contains(order.getId())) continue;
+                quantitiesOf(items.getOrDefault(order.getId(), List.of()), 1).forEach((bookId, quantity) -> {
+                    restocked.merge(bookId, quantity, Integer::sum);
+                    unsold.computeIfAbsent(saleDateOf(order), d -> new HashMap<>()).merge(bookId, -quantity, Integer::sum);
+                });
+            }
+            increaseStock(restocked);
+            eventPublisher.publishEvent(BookChangedEvent.stock(restocked.keySet()));
+            unsold.forEach((date, quantities) -> eventPublisher.publishEvent(new BookSoldEvent(quantities, date)));
+        }
+
+        List<OrderDTO> dtos = orders.stream()
+                .map(order -> OrderDTO.fromEntity(order, items.getOrDefault(order.getId(), List.of())))
+                .toList();
+        outboxService.recordOrders(target == OrderStatus.CANCELLED
+                ? OrderEventType.ORDER_CANCELLED
+                : OrderEventType.ORDER_STATUS_CHANGED, dtos);
+
+        // Không giữ cả nghìn đơn trong persistence context giữa các lô
+        entityManager.clear();
+        return outcomes;
+    }
+
+    /**
+     * Bổ sung seller_order cho các đơn tạo trước khi có bảng. Là migration một lần: chỉ chạy khi bật
+     * app.seller-order.backfill-on-startup cho lần triển khai đó, mỗi khoảng đơn commit riêng,
+     * và lỗi không chặn việc khởi động (chạy lại lần sau chỉ bổ sung phần còn thiếu).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void backfillSellerOrders() {
+        if (!backfillSellerOrdersOnStartup) return;
+        try {
+            int inserted = sellerOrderJdbcRepository.backfill();
+            log.info("Backfilled {} seller order rows", inserted);
+        } catch (DataAccessException e) {
+            log.error("Seller order backfill failed: {}", e.getMessage());
+        }
+    }
+
+    // Đổi status của đơn và các dòng seller_order tương ứng trong cùng transaction
+    public void changeStatus(Order order, OrderStatus status) {
+        order.setStatus(status);
+        sellerOrderRepository.updateStatusByOrderId(order.getId(), status);
+    }
+
+    public void reverseStockForOrder(Order order) {
+        increaseStock(quantitiesOf(order, 1));
+        eventPublisher.publishEvent(BookChangedEvent.stock(bookIdsOf(order)));
+        eventPublisher.publishEvent(new BookSoldEvent(quantitiesOf(order, -1), saleDateOf(order)));
+    }
+
+
+    /**
+     * Trừ kho cho cả đơn bằng các UPDATE có điều kiện, lần lượt theo bookId tăng dần
+     * để các đơn chạy song song luôn khoá dòng theo cùng một thứ tự (không deadlock).
+     * Nếu đơn còn đang giữ hàng thì chuyển phần giữ thành đã bán; nếu không (giữ đã hết hạn)
+     * thì chỉ trừ được từ phần còn bán được.
+     * Thiếu hàng ở bất kỳ sách nào thì ném OUT_OF_STOCK và cả transaction rollback,
+     * kể cả các sách đã trừ trước đó.
+     */
     public void decreaseStockForOrder(Order order) {
-        for (OrderItem item : order.getOrderItems()) {
-            // Lấy Book theo bookId snapshot
-            Book book = bookRepository.findById(item.getBookId())
-                    .orElseThrow(() -> new BusinessException(AppException.BOOK_NOT_FOUND));
-            int quantity = item.getQuantity();
-            // Kiểm tra đủ hàng
-            if (book.getStock() < quantity) {
-                throw new BusinessException(AppException.OUT_OF_STOCK);
+        boolean held = claimReservation(order);
+        // Phần giữ từ flash sale được cộng vào số đã bán trên bộ đếm, không chạm dòng book
+        Map<Long, Integer> quantities = held
+                ? flashSaleService.commitSold(quantitiesOf(order, 1))
+                : quantitiesOf(order, 1);
+        new TreeMap<>(quantities).forEach((bookId, quantity) -> {
+            int updated = held
+                    ? bookRepository.commitReservedStock(bookId, quantity)
+                    : bookRepository.decreaseStock(bookId, quantity);
+            if (updated == 0) {
+                throw new BusinessException(bookRepository.existsById(bookId)
+                        ? AppException.OUT_OF_STOCK
+                        : AppException.BOOK_NOT_FOUND);
+            }
+        });
+        eventPublisher.publishEvent(BookChangedEvent.stock(bookIdsOf(order)));
+        eventPublisher.publishEvent(new BookSoldEvent(quantitiesOf(order, 1), saleDateOf(order)));
+    }
+
+    /**
+     * Nhả phần giữ hàng khi đơn bị huỷ hoặc thanh toán thất bại. Không làm gì nếu đơn
+     * không còn giữ (đã thanh toán, đã nhả hoặc đã hết hạn).
+     */
+    public void releaseReservation(Order order) {
+        if (!claimReservation(order)) return;
+        releaseStock(quantitiesOf(order, 1));
+        eventPublisher.publishEvent(BookChangedEvent.reservation(bookIdsOf(order)));
+    }
+
+    // Gọi từ hàng đợi hết hạn, trong transaction riêng của mỗi đơn
+    public void expireReservation(Long orderId) {
+        if (orderRepository.clearExpiredReservation(orderId, LocalDateTime.now()) == 0) return;
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) return;
+        releaseStock(quantitiesOf(order, 1));
+        eventPublisher.publishEvent(BookChangedEvent.reservation(bookIdsOf(order)));
+        outboxService.recordOrder(OrderEventType.ORDER_RESERVATION_EXPIRED, OrderDTO.fromEntity(order));
+    }
+
+    // Giữ hàng cho mọi sách của đơn trong một batch (sách đang flash sale lấy từ bộ đếm); thiếu hàng thì cả đơn rollback
+    private void reserveStock(Map<Long, Integer> quantities) {
+        if (!bookStockJdbcRepository.reserveAll(new TreeMap<>(flashSaleService.acquire(quantities)))) {
+            throw new BusinessException(AppException.OUT_OF_STOCK);
+        }
+        eventPublisher.publishEvent(BookChangedEvent.reservation(quantities.keySet()));
+    }
+
+    // Cùng thứ tự bookId tăng dần như khi trừ kho để tránh deadlock
+    private void increaseStock(Map<Long, Integer> quantities) {
+        new TreeMap<>(quantities).forEach((bookId, quantity) -> {
+            if (bookRepository.increaseStock(bookId, quantity) == 0) {
+                throw new BusinessException(AppException.BOOK_NOT_FOUND);
+            }
+        });
+    }
+
+    private void releaseStock(Map<Long, Integer> quantities) {
+        new TreeMap<>(flashSaleService.release(quantities)).forEach(bookRepository::releaseStock);
+    }
+
+    private boolean claimReservation(Order order) {
+        if (order.getId() == null || order.getReservedUntil() == null) return false;
+        boolean claimed = orderRepository.clearReservation(order.getId()) == 1;
+        order.setReservedUntil(null);
+        return claimed;
+    }
+
+    // Khoá keyset (orderDate, id) của các danh sách đơn mới nhất trước
+    private record Keyset(LocalDateTime date, long id) {
+
+        static Keyset decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return new Keyset(HISTORY_START, Long.MAX_VALUE);
+            String[] keys = CursorPage.decodeCursor(cursor, 2);
+            try {
+                return new Keyset(LocalDateTime.parse(keys[0]), Long.parseLong(keys[1]));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new BusinessException(AppException.INVALID_CURSOR);
             }
-            // Trừ kho
-            book.setStock(book.getStock() - quantity);
-            // Tăng số lượng đã bán
-            book.setSoldCount(book.getSoldCount() + quantity);
-            bookRepository.save(book);
         }
     }
 
+    // Item của cả danh sách đơn trong một truy vấn
+    private List<OrderDTO> toDTOsWithItems(List<Order> orders) {
+        Map<Long, List<OrderItem>> items = itemsByOrderId(orders.stream().map(Order::getId).toList());
+        return orders.stream()
+                .map(order -> OrderDTO.fromEntity(order, items.getOrDefault(order.getId(), List.of())))
+                .toList();
+    }
+
+    private Map<Long, List<OrderItem>> itemsByOrderId(List<Long> orderIds) {
+        Map<Long, List<OrderItem>> items = new HashMap<>();
+        if (orderIds.isEmpty()) return items;
+        for (OrderItem item : orderItemRepository.findByOrderIdIn(orderIds)) {
+            items.computeIfAbsent(item.getOrder().getId(), id -> new ArrayList<>()).add(item);
+        }
+        return items;
+    }
+
+    // Phần của từng seller trong đơn mới tạo
+    private static List<SellerOrder> sellerOrdersOf(Order order, List<OrderItem> items) {
+        Map<Long, SellerOrder> bySeller = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            if (item.getSellerId() == null) continue;
+            SellerOrder row = bySeller.computeIfAbsent(item.getSellerId(), sellerId -> SellerOrder.builder()
+                    .sellerId(sellerId)
+                    .orderId(order.getId())
+                    .status(order.getStatus())
+                    .orderDate(order.getOrderDate())
+                    .subtotal(BigDecimal.ZERO)
+                    .build());
+            row.setItemCount(row.getItemCount() + item.getQuantity());
+            row.setSubtotal(row.getSubtotal().add(item.getTotalAmount()));
+        }
+        return new ArrayList<>(bySeller.values());
+    }
+
+    private static List<Long> bookIdsOf(Order order) {
+        return order.getOrderItems().stream().map(OrderItem::getBookId).distinct().toList();
+    }
+
+    private static Map<Long, Integer> quantitiesOf(Order order, int sign) {
+        return quantitiesOf(order.getOrderItems(), sign);
+    }
+
+    private static Map<Long, Integer> quantitiesOf(List<OrderItem> items, int sign) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getBookId(), sign * item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    // Doanh số tính theo ngày đặt hàng để lúc hoàn kho trừ đúng bucket ngày đó
+    private static LocalDate saleDateOf(Order order) {
+        return order.getOrderDate() != null ? order.getOrderDate().toLocalDate() : LocalDate.now();
+    }
+
 
     public ResponseEntity<ResponseData<Void>> CancelOrder(Long id) {
         Order order = orderRepository.findById(id)
@@ -198,8 +573,10 @@ public class OrderService {
         if (order.getStatus() == OrderStatus.CONFIRMED) {
             throw new BusinessException(AppException.CANNOT_CANCEL_ORDER);
         }
-        order.setStatus( OrderStatus.CANCELLED);
+        changeStatus(order, OrderStatus.CANCELLED);
         orderRepository.save(order);
+        releaseReservation(order);
+        outboxService.recordOrder(OrderEventType.ORDER_CANCELLED, OrderDTO.fromEntity(order));
         return ResponseEntity.ok(new ResponseData<>(
                 AppException.SUCCESS.getCode(),
                 "Order cancelled successfully",
@@ -210,10 +587,6 @@ public class OrderService {
     public ResponseEntity<ResponseData<List<OrderDTO>>> getOrdersByCustomerId(Long customerId) {
         List<Order> orders = orderRepository.findByCustomerId(customerId);
 
-        if (orders.isEmpty()) {
-            throw new BusinessException(AppException.NOT_FOUND);
-        }
-
         List<OrderDTO> dtos = orders.stream()
                 .map(OrderDTO::fromEntity)
                 .collect(Collectors.toList());
@@ -225,15 +598,74 @@ public class OrderService {
         ));
     }
 
+    /**
+     * Lịch sử đơn của khách, mới nhất trước, phân trang theo keyset (orderDate, id).
+     * Mỗi trang đúng 2 truy vấn: trang đơn (kèm customer) và toàn bộ item của trang đó.
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<ResponseData<CursorPage<OrderDTO>>> getOrderHistory(Long customerId,
+                                                                              OrderHistoryRequest request) {
+        Keyset before = Keyset.decode(request.getCursor());
+        int pageSize = CursorPage.clampSize(request.getSize(), DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+
+        // Lấy dư một dòng để biết còn trang sau hay không
+        Limit limit = Limit.of(pageSize + 1);
+        List<Order> orders = request.getStatuses() == null || request.getStatuses().isEmpty()
+                ? orderRepository.findHistoryPage(customerId, before.date(), before.id(), limit)
+                : orderRepository.findHistoryPageByStatusIn(customerId, request.getStatuses(), before.date(), before.id(), limit);
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) orders = orders.subList(0, pageSize);
+
+        List<OrderDTO> dtos = toDTOsWithItems(orders);
+
+        Order last = orders.isEmpty() ? null : orders.get(orders.size() - 1);
+        String nextCursor = hasMore ? CursorPage.encodeCursor(last.getOrderDate(), last.getId()) : null;
+
+        return ResponseEntity.ok(new ResponseData<>(
+                AppException.SUCCESS.getCode(),
+                "Fetched order history successfully",
+                new CursorPage<>(dtos, nextCursor, hasMore)
+        ));
+    }
+
+    /**
+     * Hộp đơn của seller đọc từ bảng seller_order: một lần quét index theo keyset (orderDate, orderId),
+     * không JOIN order_items. Mỗi dòng là phần của seller trong đơn (số lượng, thành tiền).
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<ResponseData<CursorPage<SellerOrderDTO>>> getSellerInbox(Long sellerId,
+                                                                                  SellerInboxRequest request) {
+        Keyset before = Keyset.decode(request.getCursor());
+        int pageSize = CursorPage.clampSize(request.getSize(), DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+
+        Limit limit = Limit.of(pageSize + 1);
+        List<SellerOrder> rows = request.getStatuses() == null || request.getStatuses().isEmpty()
+                ? sellerOrderRepository.findInboxPage(sellerId, before.date(), before.id(), limit)
+                : sellerOrderRepository.findInboxPageByStatusIn(sellerId, request.getStatuses(), before.date(), before.id(), limit);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) rows = rows.subList(0, pageSize);
+
+        SellerOrder last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        String nextCursor = hasMore ? CursorPage.encodeCursor(last.getOrderDate(), last.getOrderId()) : null;
+
+        return ResponseEntity.ok(new ResponseData<>(
+                AppException.SUCCESS.getCode(),
+                "Fetched seller inbox successfully",
+                new CursorPage<>(rows.stream().map(SellerOrderDTO::fromEntity).toList(), nextCursor, hasMore)
+        ));
+    }
+
+    // Danh sách đơn đầy đủ của seller; id lấy từ seller_order, đơn và item nạp theo lô
+    @Transactional(readOnly = true)
     public ResponseEntity<ResponseData<List<OrderDTO>>> getOrdersBySellerId(Long sellerId) {
-        List<Order> orders = orderRepository.findOrdersBySellerIdAndStatus(sellerId);
+        List<Long> orderIds = sellerOrderRepository.findOrderIdsBySellerId(sellerId);
+        Map<Long, Order> byId = new HashMap<>();
+        for (Order order : orderRepository.findAllById(orderIds)) {
+            byId.put(order.getId(), order);
+        }
+        List<Order> orders = orderIds.stream().map(byId::get).filter(Objects::nonNull).toList();
 
-//        if (orders.isEmpty()) {
-//            throw new BusinessException(AppException.NOT_FOUND);
-//        }
-        List<OrderDTO> dtos = orders.stream()
-                .map(OrderDTO::fromEntity)
-                .collect(Collectors.toList());
+        List<OrderDTO> dtos = toDTOsWithItems(orders);
         return ResponseEntity.ok(new ResponseData<>(
                 AppException.SUCCESS.getCode(),
                 "Fetched pending orders by seller successfully",
@@ -0,0 +1,42 @@
+package btp.bookingtradeplatform.Service.Outbox;
+
+import btp.bookingtradeplatform.Model.Entity.OutboxEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Broker giả giữ các sự kiện đã gửi trong bộ nhớ; dùng cho test và chạy local không có Kafka.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.broker", havingValue = "memory")
+public class InMemoryOutboxBroker implements OutboxBroker {
+
+    private final List<OutboxEvent> published = new CopyOnWriteArrayList<>();
+    private volatile boolean failing;
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        if (failing) throw new IllegalStateException("Broker unavailable");
+        published.addAll(events);
+    }
+
+    public List<OutboxEvent> getPublished() {
+        return new ArrayList<>(published);
+    }
+
+    public List<OutboxEvent> getPublished(Long orderId) {
+        return published.stream().filter(e -> e.getOrderId().equals(orderId)).toList();
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public void clear() {
+        published.clear();
+    }
+}
@@ -0,0 +1,52 @@
+package btp.bookingtradeplatform.Service.Outbox;
+
+import btp.bookingtradeplatform.Model.Entity.OutboxEvent;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gửi sự kiện outbox lên Kafka, key = orderId để các sự kiện của một đơn nằm cùng partition.
+ * Producer bật idempotence (application.properties) nên gửi lại không làm đảo thứ tự trong partition.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.broker", havingValue = "kafka", matchIfMissing = true)
+public class KafkaOutboxBroker implements OutboxBroker {
+
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String topic;
+
+    public KafkaOutboxBroker(KafkaTemplate<String, String> kafkaTemplate,
+                             @Value("${app.outbox.topic:btp.order-events}") String topic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) throws Exception {
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            ProducerRecord<String, String> record =
+                    new ProducerRecord<>(topic, String.valueOf(event.getOrderId()), event.getPayload());
+            // Consumer dùng eventId để bỏ qua bản trùng khi relay gửi lại
+            record.headers().add("eventId", String.valueOf(event.getId()).getBytes(StandardCharsets.UTF_8));
+            record.headers().add("eventType", event.getEventType().name().getBytes(StandardCharsets.UTF_8));
+            sends.add(kafkaTemplate.send(record));
+        }
+        kafkaTemplate.flush();
+        for (CompletableFuture<SendResult<String, String>> send : sends) {
+            send.get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package btp.bookingtradeplatform.Service.Outbox;
+
+import btp.bookingtradeplatform.Model.Entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Nơi OutboxRelay gửi sự kiện tới: Kafka khi chạy thật, bộ nhớ khi test (app.outbox.broker).
+ */
+public interface OutboxBroker {
+
+    /**
+     * Gửi cả lô theo đúng thứ tự và chỉ trả về khi broker đã xác nhận mọi message.
+     * Ném exception nếu có message không gửi được; relay sẽ gửi lại cả lô sau.
+     */
+    void publish(List<OutboxEvent> events) throws Exception;
+}
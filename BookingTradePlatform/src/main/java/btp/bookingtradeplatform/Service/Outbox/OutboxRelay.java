@@ -0,0 +1,94 @@
+package btp.bookingtradeplatform.Service.Outbox;
+
+import btp.bookingtradeplatform.Model.Entity.OutboxEvent;
+import btp.bookingtradeplatform.Repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Đọc bảng outbox theo lô (thứ tự id) và gửi ra broker; chỉ đánh dấu đã gửi sau khi broker xác nhận.
+ * Đảm bảo at-least-once: nếu instance chết giữa lúc gửi và commit, lô sẽ được gửi lại
+ * (consumer khử trùng theo header eventId).
+ * Broker lỗi thì lùi thời gian thử lại theo cấp số nhân, tối đa MAX_BACKOFF_MILLIS.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_BATCHES_PER_RUN = 50;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final int RETENTION_DAYS = 7;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxBroker broker;
+    private final TransactionTemplate transactionTemplate;
+
+    private int failures;
+    private long retryAt;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, OutboxBroker broker,
+                       PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.broker = broker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public synchronized void relay() {
+        if (System.currentTimeMillis() < retryAt) return;
+        try {
+            relayPending();
+            failures = 0;
+            retryAt = 0;
+        } catch (Exception e) {
+            failures++;
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, 500L << Math.min(failures, 10));
+            retryAt = System.currentTimeMillis() + backoff;
+            log.warn("Outbox relay failed (attempt {}), retrying in {} ms: {}", failures, backoff, e.getMessage());
+        }
+    }
+
+    /**
+     * Gửi ngay các sự kiện đang chờ (tối đa MAX_BATCHES_PER_RUN lô), bỏ qua backoff.
+     *
+     * @return số sự kiện đã gửi
+     */
+    public int relayPending() {
+        int total = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            Integer sent = transactionTemplate.execute(status -> relayBatch());
+            if (sent == null || sent == 0) break;
+            total += sent;
+            if (sent < BATCH_SIZE) break;
+        }
+        return total;
+    }
+
+    // Dọn các sự kiện đã gửi quá RETENTION_DAYS ngày
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purge() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusDays(RETENTION_DAYS)));
+        log.info("Purged {} published outbox events", deleted);
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.lockUnpublished(Limit.of(BATCH_SIZE));
+        if (batch.isEmpty()) return 0;
+        try {
+            broker.publish(batch);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        outboxEventRepository.markPublished(batch.stream().map(OutboxEvent::getId).toList(), LocalDateTime.now());
+        return batch.size();
+    }
+}
@@ -0,0 +1,71 @@
+package btp.bookingtradeplatform.Service.Outbox;
+
+import btp.bookingtradeplatform.Model.DTO.OrderDTO;
+import btp.bookingtradeplatform.Model.DTO.PaymentDTO;
+import btp.bookingtradeplatform.Model.Entity.OutboxEvent;
+import btp.bookingtradeplatform.Model.Enum.OrderEventType;
+import btp.bookingtradeplatform.Repository.OutboxEventJdbcRepository;
+import btp.bookingtradeplatform.Repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi sự kiện vào bảng outbox trong chính transaction của nghiệp vụ:
+ * sự kiện tồn tại khi và chỉ khi thay đổi trạng thái đã commit. OutboxRelay gửi chúng ra broker sau.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxEventJdbcRepository outboxEventJdbcRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void recordOrder(OrderEventType type, OrderDTO order) {
+        record(type, order.getId(), order);
+    }
+
+    // Một batch insert cho cả danh sách đơn
+    public void recordOrders(OrderEventType type, List<OrderDTO> orders) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>(orders.size());
+        for (OrderDTO order : orders) {
+            events.add(event(type, order.getId(), order, now));
+        }
+        outboxEventJdbcRepository.insertAll(events);
+    }
+
+    public void recordPayment(OrderEventType type, PaymentDTO payment) {
+        record(type, payment.getOrderId(), payment);
+    }
+
+    private void record(OrderEventType type, Long orderId, Object payload) {
+        outboxEventRepository.save(event(type, orderId, payload, LocalDateTime.now()));
+    }
+
+    private OutboxEvent event(OrderEventType type, Long orderId, Object payload, LocalDateTime createdAt) {
+        try {
+            return OutboxEvent.builder()
+                    .orderId(orderId)
+                    .eventType(type)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createdAt(createdAt)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
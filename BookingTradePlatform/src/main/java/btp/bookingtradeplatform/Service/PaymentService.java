@@ -7,6 +7,7 @@ import btp.bookingtradeplatform.Model.Entity.Book;
 import btp.bookingtradeplatform.Model.Entity.CartItem;
 import btp.bookingtradeplatform.Model.Entity.Order;
 import btp.bookingtradeplatform.Model.Entity.Payment;
+import btp.bookingtradeplatform.Model.Enum.OrderEventType;
 import btp.bookingtradeplatform.Model.Enum.OrderStatus;
 import btp.bookingtradeplatform.Model.Enum.PaymentMethod;
 import btp.bookingtradeplatform.Model.Enum.PaymentStatus;
@@ -16,12 +17,13 @@ import btp.bookingtradeplatform.Model.UpdateRequest.UpdatePaymentForm;
 import btp.bookingtradeplatform.Repository.BookRepository;
 import btp.bookingtradeplatform.Repository.OrderRepository;
 import btp.bookingtradeplatform.Repository.PaymentRepository;
+import btp.bookingtradeplatform.Service.Outbox.OutboxService;
+import btp.bookingtradeplatform.Service.Pricing.PricingEngine;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +44,9 @@ public class PaymentService {
     @Autowired
     private VnPayService vnPayService;
 
+    @Autowired
+    private OutboxService outboxService;
+
     public ResponseEntity<ResponseData<List<PaymentDTO>>> getAllPayments() {
         List<Payment> list = paymentRepository.findAll();
         List<PaymentDTO> dtoList = list.stream()
@@ -72,19 +77,19 @@ public class PaymentService {
         Payment payment = new Payment();
         payment.setOrder(order);
 
-        BigDecimal discount = request.getDiscount() != null ? request.getDiscount() : BigDecimal.ZERO;
-        BigDecimal totalAmount = order.getTotalPrice().subtract(discount);
-        payment.setAmount(totalAmount);
+        payment.setAmount(PricingEngine.toAmount(PricingEngine.payable(order.getTotalPrice(), request.getDiscount())));
         payment.setMethod(request.getMethod());
         payment.setStatus(PaymentStatus.PENDING);
         payment.setPaymentDate(LocalDateTime.now());
 
         Payment savedPayment = paymentRepository.save(payment);
+        PaymentDTO dto = PaymentDTO.fromEntity(savedPayment);
+        outboxService.recordPayment(OrderEventType.PAYMENT_CREATED, dto);
 
         return ResponseEntity.ok(new ResponseData<>(
                 AppException.SUCCESS.getCode(),
                 "Payment created successfully",
-                PaymentDTO.fromEntity(savedPayment)
+                dto
         ));
     }
 
@@ -94,11 +99,13 @@ public class PaymentService {
         payment.setStatus(request.getStatus());
         payment.setMethod(request.getMethod() != null ? request.getMethod() : payment.getMethod());
         Payment updated = paymentRepository.save(payment);
+        PaymentDTO dto = PaymentDTO.fromEntity(updated);
+        outboxService.recordPayment(OrderEventType.PAYMENT_STATUS_CHANGED, dto);
 
         return ResponseEntity.ok(new ResponseData<>(
                 AppException.SUCCESS.getCode(),
                 "Payment status updated successfully",
-                PaymentDTO.fromEntity(updated)
+                dto
         ));
     }
 
@@ -110,6 +117,7 @@ public class PaymentService {
         paymentRepository.save(payment);
         order.setPaid(true);
         orderService.decreaseStockForOrder(order);
+        outboxService.recordPayment(OrderEventType.PAYMENT_SUCCEEDED, PaymentDTO.fromEntity(payment));
         return ResponseEntity.ok(new ResponseData<>(
                 AppException.SUCCESS.getCode(),
                 "Payment confirmed successfully",
@@ -132,10 +140,11 @@ public class PaymentService {
         payment.setMethod(PaymentMethod.VNPAY);
 
         paymentRepository.save(payment);
+        outboxService.recordPayment(OrderEventType.PAYMENT_CREATED, PaymentDTO.fromEntity(payment));
 
         String transactionId = order.getTransactionId();
         // Sinh URL thanh toán VNPay
-        String payUrl = vnPayService.createPaymentUrl(transactionId, order.getTotalPrice().longValue());
+        String payUrl = vnPayService.createPaymentUrl(transactionId, PricingEngine.toMinor(order.getTotalPrice()));
 
         return ResponseEntity.ok(new ResponseData<>(
                 AppException.SUCCESS.getCode(),
@@ -167,10 +176,18 @@ public class PaymentService {
             orderService.decreaseStockForOrder(order);
         } else {
             payment.setStatus(PaymentStatus.FAILED);
+            // Như callback MoMo: huỷ đơn chưa thanh toán và nhả phần giữ hàng ngay thay vì chờ hết hạn
+            if (order.getStatus() == OrderStatus.PENDING) {
+                orderService.changeStatus(order, OrderStatus.CANCELLED);
+            }
+            orderService.releaseReservation(order);
         }
 
         paymentRepository.save(payment);
         orderRepository.save(order);
+        outboxService.recordPayment(payment.getStatus() == PaymentStatus.SUCCESS
+                ? OrderEventType.PAYMENT_SUCCEEDED
+                : OrderEventType.PAYMENT_FAILED, PaymentDTO.fromEntity(payment));
 
         return ResponseEntity.ok(new ResponseData<>(
                 AppException.SUCCESS.getCode(),
@@ -0,0 +1,76 @@
+package btp.bookingtradeplatform.Service.Pricing;
+
+import btp.bookingtradeplatform.Model.Entity.DiscountCode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Tính tiền bằng long theo đơn vị nhỏ nhất (đồng; VND không có phần lẻ) thay cho chuỗi BigDecimal trung gian.
+ * BigDecimal chỉ còn ở biên (giá trong entity, số tiền lưu DB) và được đổi một lần qua toMinor/toAmount.
+ * Quy tắc làm tròn:
+ * - giá/số tiền đầu vào có phần lẻ được làm tròn HALF_UP về đồng;
+ * - giảm theo % tính chính xác trên số nguyên rồi làm tròn HALF_UP về đồng;
+ * - tiền giảm không vượt quá tạm tính, số phải trả không âm.
+ * Tràn số ném ArithmeticException thay vì cho ra số sai.
+ */
+public final class PricingEngine {
+
+    // % được lưu dạng basis point: 12.5% = 1250
+    private static final long FULL_PERCENT_BPS = 10_000;
+
+    private PricingEngine() {
+    }
+
+    /**
+     * Mã giảm giá đã đổi sẵn sang long, tạo một lần cho mỗi mã thay vì đổi lại ở từng dòng.
+     * value là basis point khi percentage, ngược lại là số đồng.
+     */
+    public record Discount(boolean percentage, long value) {
+
+        public static final Discount NONE = new Discount(false, 0);
+
+        public static Discount of(DiscountCode code) {
+            if (code == null || code.getDiscountAmount() == null) return NONE;
+            if (!code.isPercentage()) return new Discount(false, Math.max(0, toMinor(code.getDiscountAmount())));
+            long bps = code.getDiscountAmount().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            return new Discount(true, Math.min(FULL_PERCENT_BPS, Math.max(0, bps)));
+        }
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) return 0;
+        return amount.setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal toAmount(long minor) {
+        return BigDecimal.valueOf(minor);
+    }
+
+    public static long lineSubtotal(long unitPrice, int quantity) {
+        return Math.multiplyExact(unitPrice, (long) quantity);
+    }
+
+    // Tiền giảm của một dòng, không vượt quá tạm tính
+    public static long discountOf(long subtotal, Discount discount) {
+        if (subtotal <= 0 || discount.value() == 0) return 0;
+        if (!discount.percentage()) return Math.min(discount.value(), subtotal);
+        return percentOf(subtotal, discount.value());
+    }
+
+    // subtotal * bps / 10000 làm tròn HALF_UP, không qua số thực
+    static long percentOf(long amount, long bps) {
+        long product = Math.multiplyExact(amount, bps);
+        return (product + FULL_PERCENT_BPS / 2) / FULL_PERCENT_BPS;
+    }
+
+    // Số phải trả sau khi trừ giảm giá ở bước thanh toán, không âm
+    public static long payable(BigDecimal total, BigDecimal discount) {
+        return Math.max(0, Math.subtractExact(toMinor(total), toMinor(discount)));
+    }
+
+    // VNPay nhận số tiền nhân 100 (không có dấu thập phân)
+    public static long toVnPayAmount(long minor) {
+        return Math.multiplyExact(minor, 100L);
+    }
+}
@@ -0,0 +1,127 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đưa BookChangedEvent tới các index trong bộ nhớ của mọi instance.
+ * Sau commit, thay đổi được đưa vào hàng đợi áp dụng cho index local rồi phát lên kênh book:changed
+ * (cạnh kênh book:invalidate của BookDetailCache) dạng "nodeId|TYPE|id,id,..."; instance khác nhận và
+ * áp dụng, instance gửi bỏ qua tin của chính mình. Thay đổi chỉ về giữ hàng (RESERVATION) không index
+ * nào dùng nên không được áp dụng hay phát đi.
+ * Việc áp dụng chạy trên một luồng riêng để không giữ luồng vừa commit (checkout, thanh toán), và
+ * tuần tự theo thứ tự nhận nên lần đọc DB áp dụng sau cùng luôn là lần mới nhất.
+ */
+@Slf4j
+@Component
+public class BookChangeBroadcaster implements MessageListener {
+
+    public static final String CHANNEL = "book:changed";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RedisTemplate<String, String> redisTemplate;
+    private final List<BookIndexListener> listeners;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "book-change-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BookChangeBroadcaster(RedisTemplate<String, String> redisTemplate, List<BookIndexListener> listeners) {
+        this.redisTemplate = redisTemplate;
+        this.listeners = listeners;
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.getBookIds().isEmpty() || event.getType() == BookChangedEvent.Type.RESERVATION) return;
+        dispatch(event);
+        try {
+            redisTemplate.convertAndSend(CHANNEL, encode(event));
+        } catch (Exception e) {
+            // Instance khác chỉ thấy thay đổi ở lần rebuild kế tiếp
+            log.warn("Could not broadcast book change {} {}: {}", event.getType(), event.getBookIds(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || parts[0].equals(nodeId)) return;
+        try {
+            List<Long> bookIds = new ArrayList<>();
+            for (String id : parts[2].split(",")) {
+                if (!id.isBlank()) bookIds.add(Long.valueOf(id.trim()));
+            }
+            if (!bookIds.isEmpty()) {
+                dispatch(new BookChangedEvent(bookIds, BookChangedEvent.Type.valueOf(parts[1])));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed book change message");
+        }
+    }
+
+    /**
+     * Chờ các thay đổi đã nhận trước lời gọi này áp dụng xong (dùng trong test và khi cần đọc ngay
+     * sau khi ghi). Trả về false nếu hết thời gian chờ.
+     */
+    public boolean awaitDispatched(long timeout, TimeUnit unit) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            dispatcher.execute(done::countDown);
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+        return done.await(timeout, unit);
+    }
+
+    private void dispatch(BookChangedEvent event) {
+        try {
+            dispatcher.execute(() -> apply(event));
+        } catch (RejectedExecutionException e) {
+            // Đang tắt: lần rebuild khi khởi động lại sẽ bắt kịp
+            log.warn("Dropping book change {} {} during shutdown", event.getType(), event.getBookIds());
+        }
+    }
+
+    private void apply(BookChangedEvent event) {
+        for (BookIndexListener listener : listeners) {
+            try {
+                listener.onBookChanged(event);
+            } catch (Exception e) {
+                log.warn("{} could not apply book change {} {}: {}", listener.getClass().getSimpleName(),
+                        event.getType(), event.getBookIds(), e.getMessage());
+            }
+        }
+    }
+
+    private String encode(BookChangedEvent event) {
+        StringBuilder ids = new StringBuilder();
+        for (Long bookId : event.getBookIds()) {
+            if (!ids.isEmpty()) ids.append(',');
+            ids.append(bookId);
+        }
+        return nodeId + '|' + event.getType().name() + '|' + ids;
+    }
+}
@@ -0,0 +1,330 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lọc catalog theo facet bằng bitset trong bộ nhớ.
+ * Mỗi sách có một ordinal (tăng dần theo bookId), mỗi giá trị facet có một BitSet các ordinal.
+ * Lọc = AND giữa các facet, OR giữa các giá trị trong cùng facet; số đếm của một facet
+ * được tính trên kết quả lọc của các facet còn lại (multi-select facet).
+ * Thay đổi từ mọi instance đến qua BookChangeBroadcaster nên số đếm giống nhau giữa các instance.
+ * Ordinal của sách đã xoá được thu hồi ngay nếu nằm ở cuối, còn lại được dồn khi vượt COMPACT_RATIO.
+ */
+@Slf4j
+@Component
+public class BookFacetIndex implements BookIndexListener {
+
+    public static final String CATEGORY = "category";
+    public static final String FORMAT = "format";
+    public static final String LANGUAGE = "language";
+    public static final String PRICE = "price";
+    public static final String SELLER = "seller";
+    public static final List<String> FACETS = List.of(CATEGORY, FORMAT, LANGUAGE, PRICE, SELLER);
+
+    // Khoảng giá theo VND: [cận dưới, cận trên)
+    private static final long[] PRICE_BOUNDS = {50_000, 100_000, 200_000, 500_000};
+    private static final int MAX_VALUES_PER_FACET = 20;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    // Dồn lại ordinal khi số ordinal chết vượt tỉ lệ này (và tối thiểu COMPACT_MIN_DEAD)
+    private static final double COMPACT_RATIO = 0.25;
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    @Getter
+    @AllArgsConstructor
+    public static class FacetCount {
+        private final String value;
+        private final int count;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final List<Long> bookIds;
+        private final boolean hasMore;
+        private final int total;
+        private final Map<String, List<FacetCount>> facets;
+    }
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RebuildBuffer rebuildBuffer = new RebuildBuffer(lock);
+
+    private State state = new State();
+
+    public BookFacetIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    /**
+     * Dữ liệu của index; được dựng mới hoàn toàn khi rebuild rồi tráo vào.
+     */
+    private static final class State {
+        long[] bookIds = new long[1024];
+        // facet -> giá trị -> các ordinal thuộc giá trị đó; mỗi ordinal nhớ các giá trị của mình để gỡ
+        final Map<String, Map<String, BitSet>> bits = new HashMap<>();
+        final Map<Integer, List<String[]>> valuesOf = new HashMap<>();
+        final Map<Long, Integer> ordinals = new HashMap<>();
+        final BitSet live = new BitSet();
+        int size;
+        // số ordinal < size của sách đã xoá
+        int dead;
+
+        int append(long bookId) {
+            if (size == bookIds.length) bookIds = Arrays.copyOf(bookIds, size * 2);
+            bookIds[size] = bookId;
+            ordinals.put(bookId, size);
+            return size++;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        State next = new State();
+        rebuildBuffer.start();
+        try {
+            long afterId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = bookRepository.findFacetRowsAfter(afterId, Limit.of(REBUILD_BATCH_SIZE));
+                if (rows.isEmpty()) break;
+                List<Long> ids = rows.stream().map(row -> (Long) row[0]).toList();
+                Map<Long, List<Long>> categories = categoriesOf(ids);
+                for (Object[] row : rows) {
+                    Long bookId = (Long) row[0];
+                    index(next, next.append(bookId), row, categories.getOrDefault(bookId, List.of()));
+                    afterId = bookId;
+                }
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            rebuildBuffer.stop();
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            state = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        replayChangedDuringRebuild();
+        log.info("Book facet index rebuilt: {} books", next.live.cardinality());
+    }
+
+    @Override
+    public void onBookChanged(BookChangedEvent event) {
+        apply(event, false);
+    }
+
+    private void apply(BookChangedEvent event, boolean replay) {
+        if (event.getBookIds().isEmpty() || event.getType() == BookChangedEvent.Type.STOCK) return;
+
+        List<Object[]> rows = List.of();
+        Map<Long, List<Long>> categories = Map.of();
+        if (event.getType() == BookChangedEvent.Type.UPSERT) {
+            rows = bookRepository.findFacetRowsByIdIn(event.getBookIds());
+            categories = categoriesOf(event.getBookIds());
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!replay) rebuildBuffer.record(event.getBookIds());
+            State s = state;
+            for (Long bookId : event.getBookIds()) {
+                Integer ordinal = s.ordinals.get(bookId);
+                if (ordinal != null) unindex(s, ordinal);
+            }
+            Set<Long> present = new HashSet<>();
+            for (Object[] row : rows) {
+                present.add((Long) row[0]);
+            }
+            // Sách đã xoá (kể cả upsert đến sau khi dòng bị xoá) nhả ordinal
+            for (Long bookId : event.getBookIds()) {
+                if (!present.contains(bookId) && s.ordinals.remove(bookId) != null) s.dead++;
+            }
+            trimDeadTail(s);
+
+            boolean outOfOrder = false;
+            for (Object[] row : rows) {
+                Long bookId = (Long) row[0];
+                Integer ordinal = s.ordinals.get(bookId);
+                if (ordinal == null) {
+                    outOfOrder |= s.size > 0 && s.bookIds[s.size - 1] > bookId;
+                    ordinal = s.append(bookId);
+                }
+                index(s, ordinal, row, categories.getOrDefault(bookId, List.of()));
+            }
+            // Hai sách tạo đồng thời có thể commit ngược thứ tự id: đánh số lại để giữ ordinal tăng theo id
+            if (outOfOrder || (s.dead >= COMPACT_MIN_DEAD && s.dead > s.size * COMPACT_RATIO)) state = renumber(s);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Thay đổi đến trong lúc rebuild chỉ vào State cũ: đọc lại và áp vào State mới
+    private void replayChangedDuringRebuild() {
+        for (Set<Long> changed = rebuildBuffer.drain(); !changed.isEmpty(); changed = rebuildBuffer.drain()) {
+            apply(BookChangedEvent.upsert(changed), true);
+        }
+    }
+
+    /**
+     * @param selected   facet -> các giá trị được chọn (facet không có mặt = không lọc)
+     * @param afterBookId chỉ lấy sách có id lớn hơn (keyset), null = từ đầu
+     */
+    public Result browse(Map<String, Set<String>> selected, Long afterBookId, int limit) {
+        lock.readLock().lock();
+        try {
+            State s = state;
+            Map<String, BitSet> perFacet = new HashMap<>();
+            for (Map.Entry<String, Set<String>> e : selected.entrySet()) {
+                if (e.getValue() == null || e.getValue().isEmpty()) continue;
+                BitSet union = new BitSet();
+                Map<String, BitSet> values = s.bits.getOrDefault(e.getKey(), Map.of());
+                for (String value : e.getValue()) {
+                    BitSet b = values.get(value);
+                    if (b != null) union.or(b);
+                }
+                perFacet.put(e.getKey(), union);
+            }
+
+            BitSet matches = (BitSet) s.live.clone();
+            perFacet.values().forEach(matches::and);
+
+            int start = afterBookId == null ? 0 : firstOrdinalAfter(s, afterBookId);
+            List<Long> ids = new ArrayList<>(limit);
+            int ordinal = matches.nextSetBit(start);
+            while (ordinal >= 0 && ids.size() < limit) {
+                ids.add(s.bookIds[ordinal]);
+                ordinal = matches.nextSetBit(ordinal + 1);
+            }
+
+            Map<String, List<FacetCount>> counts = new LinkedHashMap<>();
+            for (String facet : FACETS) {
+                BitSet base = (BitSet) s.live.clone();
+                perFacet.forEach((other, bits) -> {
+                    if (!other.equals(facet)) base.and(bits);
+                });
+                counts.put(facet, countValues(s.bits.getOrDefault(facet, Map.of()), base));
+            }
+            return new Result(ids, ordinal >= 0, matches.cardinality(), counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static String priceBucket(BigDecimal price) {
+        if (price == null) return null;
+        long lower = 0;
+        for (long bound : PRICE_BOUNDS) {
+            if (price.compareTo(BigDecimal.valueOf(bound)) < 0) return lower + "-" + bound;
+            lower = bound;
+        }
+        return lower + "+";
+    }
+
+    private static List<FacetCount> countValues(Map<String, BitSet> values, BitSet base) {
+        List<FacetCount> result = new ArrayList<>();
+        for (Map.Entry<String, BitSet> e : values.entrySet()) {
+            BitSet b = (BitSet) e.getValue().clone();
+            b.and(base);
+            int count = b.cardinality();
+            if (count > 0) result.add(new FacetCount(e.getKey(), count));
+        }
+        result.sort(Comparator.comparingInt(FacetCount::getCount).reversed().thenComparing(FacetCount::getValue));
+        return result.size() > MAX_VALUES_PER_FACET ? result.subList(0, MAX_VALUES_PER_FACET) : result;
+    }
+
+    private static int firstOrdinalAfter(State s, long bookId) {
+        int lo = 0, hi = s.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (s.bookIds[mid] <= bookId) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static void index(State s, int ordinal, Object[] row, List<Long> categoryIds) {
+        List<String[]> values = new ArrayList<>();
+        for (Long categoryId : categoryIds) values.add(new String[]{CATEGORY, String.valueOf(categoryId)});
+        if (row[1] != null) values.add(new String[]{FORMAT, row[1].toString()});
+        if (row[2] != null && !((String) row[2]).isBlank()) {
+            values.add(new String[]{LANGUAGE, ((String) row[2]).trim().toLowerCase(Locale.ROOT)});
+        }
+        String bucket = priceBucket((BigDecimal) row[3]);
+        if (bucket != null) values.add(new String[]{PRICE, bucket});
+        if (row[4] != null) values.add(new String[]{SELLER, row[4].toString()});
+
+        for (String[] v : values) {
+            s.bits.computeIfAbsent(v[0], f -> new HashMap<>())
+                    .computeIfAbsent(v[1], k -> new BitSet())
+                    .set(ordinal);
+        }
+        s.valuesOf.put(ordinal, values);
+        s.live.set(ordinal);
+    }
+
+    private static void unindex(State s, int ordinal) {
+        List<String[]> values = s.valuesOf.remove(ordinal);
+        if (values != null) {
+            for (String[] v : values) {
+                Map<String, BitSet> facet = s.bits.get(v[0]);
+                BitSet b = facet.get(v[1]);
+                b.clear(ordinal);
+                if (b.isEmpty()) facet.remove(v[1]);
+            }
+        }
+        s.live.clear(ordinal);
+    }
+
+    // Ordinal chết ở cuối được thu hồi ngay, sách mới sẽ dùng lại chỗ đó. Ordinal chết là ordinal
+    // không còn sách nào trỏ tới (sách đang được index lại vẫn giữ ordinal của mình)
+    private static void trimDeadTail(State s) {
+        while (s.size > 0 && s.dead > 0 && !s.ordinals.containsKey(s.bookIds[s.size - 1])) {
+            s.size--;
+            s.dead--;
+        }
+    }
+
+    private static State renumber(State old) {
+        Integer[] order = new Integer[old.size];
+        for (int i = 0; i < old.size; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingLong(o -> old.bookIds[o]));
+
+        State next = new State();
+        for (Integer oldOrdinal : order) {
+            if (!old.live.get(oldOrdinal)) continue;
+            int ordinal = next.append(old.bookIds[oldOrdinal]);
+            List<String[]> values = old.valuesOf.get(oldOrdinal);
+            for (String[] v : values) {
+                next.bits.computeIfAbsent(v[0], f -> new HashMap<>())
+                        .computeIfAbsent(v[1], k -> new BitSet())
+                        .set(ordinal);
+            }
+            next.valuesOf.put(ordinal, values);
+            next.live.set(ordinal);
+        }
+        return next;
+    }
+
+    private Map<Long, List<Long>> categoriesOf(Collection<Long> bookIds) {
+        Map<Long, List<Long>> result = new HashMap<>();
+        for (Object[] row : bookRepository.findCategoryIdsByBookIdIn(bookIds)) {
+            result.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,13 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+
+/**
+ * Index sách trong bộ nhớ của từng instance. BookChangeBroadcaster gọi onBookChanged sau commit
+ * cho thay đổi ở instance này và khi nhận broadcast từ instance khác; index tự đọc lại dòng từ DB
+ * nên áp dụng lại hoặc nhận trễ vẫn cho kết quả đúng.
+ */
+public interface BookIndexListener {
+
+    void onBookChanged(BookChangedEvent event);
+}
@@ -0,0 +1,221 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index trong bộ nhớ trên title, author và storeName của người bán.
+ * Thay cho truy vấn LIKE '%kw%' (không dùng được index của MySQL).
+ *
+ * Điểm của một sách = tổng (trọng số field x idf) của các token truy vấn khớp.
+ * Mọi token phải khớp (AND); token cuối được phép khớp theo tiền tố để hỗ trợ gõ dở.
+ * Thay đổi từ mọi instance đến qua BookChangeBroadcaster.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndex implements BookIndexListener {
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float AUTHOR_WEIGHT = 2f;
+    private static final float STORE_WEIGHT = 1f;
+    private static final float PREFIX_PENALTY = 0.5f;
+    private static final int MAX_PREFIX_EXPANSION = 64;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final BookRepository bookRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RebuildBuffer rebuildBuffer = new RebuildBuffer(lock);
+    // token -> (bookId -> trọng số)
+    private TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // bookId -> các token đã index, dùng để gỡ khi cập nhật/xoá
+    private Map<Long, Set<String>> docTerms = new HashMap<>();
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hits {
+        private final List<Long> bookIds;
+        private final int total;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        TreeMap<String, Map<Long, Float>> newPostings = new TreeMap<>();
+        Map<Long, Set<String>> newDocTerms = new HashMap<>();
+
+        rebuildBuffer.start();
+        try {
+            long afterId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = bookRepository.findSearchRowsAfter(afterId, Limit.of(REBUILD_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    addDocument(newPostings, newDocTerms, row);
+                    afterId = (Long) row[0];
+                }
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            rebuildBuffer.stop();
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            docTerms = newDocTerms;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        replayChangedDuringRebuild();
+        log.info("Book search index rebuilt: {} books, {} terms", newDocTerms.size(), newPostings.size());
+    }
+
+    @Override
+    public void onBookChanged(BookChangedEvent event) {
+        apply(event, false);
+    }
+
+    // replay: đang áp dụng lại sau rebuild, không ghi lại vào RebuildBuffer
+    private void apply(BookChangedEvent event, boolean replay) {
+        if (event.getBookIds().isEmpty() || event.getType() == BookChangedEvent.Type.STOCK) return;
+        if (event.getType() == BookChangedEvent.Type.DELETE) {
+            lock.writeLock().lock();
+            try {
+                if (!replay) rebuildBuffer.record(event.getBookIds());
+                event.getBookIds().forEach(id -> removeDocument(postings, docTerms, id));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        List<Object[]> rows = bookRepository.findSearchRowsByIdIn(event.getBookIds());
+        lock.writeLock().lock();
+        try {
+            if (!replay) rebuildBuffer.record(event.getBookIds());
+            // Sách đã bị xoá trước khi tin đến nơi thì không còn dòng: gỡ luôn
+            event.getBookIds().forEach(id -> removeDocument(postings, docTerms, id));
+            for (Object[] row : rows) {
+                addDocument(postings, docTerms, row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Thay đổi đến trong lúc rebuild đã áp vào cấu trúc cũ: áp dụng lại trên cấu trúc mới
+    private void replayChangedDuringRebuild() {
+        for (Set<Long> changed = rebuildBuffer.drain(); !changed.isEmpty(); changed = rebuildBuffer.drain()) {
+            apply(BookChangedEvent.upsert(changed), true);
+        }
+    }
+
+    public Hits search(String query, int offset, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) return new Hits(List.of(), 0);
+
+        Map<Long, Float> scores = new HashMap<>();
+        Map<Long, Integer> matched = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            int totalDocs = Math.max(docTerms.size(), 1);
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                boolean last = i == tokens.size() - 1;
+                // Mỗi sách chỉ được tính một lần cho mỗi token truy vấn
+                Map<Long, Float> best = new HashMap<>();
+                collect(best, token, postings.get(token), totalDocs, 1f);
+                if (last) {
+                    int expanded = 0;
+                    for (Map.Entry<String, Map<Long, Float>> e : postings.tailMap(token, false).entrySet()) {
+                        if (!e.getKey().startsWith(token) || ++expanded > MAX_PREFIX_EXPANSION) break;
+                        collect(best, e.getKey(), e.getValue(), totalDocs, PREFIX_PENALTY);
+                    }
+                }
+                best.forEach((bookId, score) -> {
+                    scores.merge(bookId, score, Float::sum);
+                    matched.merge(bookId, 1, Integer::sum);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int required = tokens.size();
+        List<Map.Entry<Long, Float>> candidates = new ArrayList<>();
+        for (Map.Entry<Long, Float> e : scores.entrySet()) {
+            if (matched.get(e.getKey()) == required) candidates.add(e);
+        }
+
+        Comparator<Map.Entry<Long, Float>> byRank = Map.Entry.<Long, Float>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        int wanted = Math.min(offset + limit, candidates.size());
+        // Chỉ giữ top (offset + limit) bằng heap thay vì sắp xếp toàn bộ
+        PriorityQueue<Map.Entry<Long, Float>> top = new PriorityQueue<>(Math.max(wanted, 1), byRank.reversed());
+        for (Map.Entry<Long, Float> e : candidates) {
+            top.offer(e);
+            if (top.size() > wanted) top.poll();
+        }
+        List<Map.Entry<Long, Float>> ranked = new ArrayList<>(top);
+        ranked.sort(byRank);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return new Hits(ids, candidates.size());
+    }
+
+    private static void collect(Map<Long, Float> best, String term, Map<Long, Float> docs, int totalDocs, float factor) {
+        if (docs == null || docs.isEmpty()) return;
+        float idf = (float) Math.log(1 + (double) totalDocs / docs.size());
+        docs.forEach((bookId, weight) -> best.merge(bookId, weight * idf * factor, Math::max));
+    }
+
+    private static void addDocument(TreeMap<String, Map<Long, Float>> postings,
+                                    Map<Long, Set<String>> docTerms,
+                                    Object[] row) {
+        Long bookId = (Long) row[0];
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, (String) row[1], TITLE_WEIGHT);
+        addField(weights, (String) row[2], AUTHOR_WEIGHT);
+        addField(weights, (String) row[3], STORE_WEIGHT);
+
+        weights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(bookId, weight));
+        docTerms.put(bookId, weights.keySet());
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float fieldWeight) {
+        for (String token : TextNormalizer.tokenize(text)) {
+            weights.merge(token, fieldWeight, Float::sum);
+        }
+    }
+
+    private static void removeDocument(TreeMap<String, Map<Long, Float>> postings,
+                                       Map<Long, Set<String>> docTerms,
+                                       Long bookId) {
+        Set<String> terms = docTerms.remove(bookId);
+        if (terms == null) return;
+        for (String term : terms) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(bookId);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+    }
+}
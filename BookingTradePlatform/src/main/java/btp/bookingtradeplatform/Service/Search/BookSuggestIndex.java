@@ -0,0 +1,242 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import btp.bookingtradeplatform.Model.DTO.SuggestionDTO;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Gợi ý tự động hoàn thành cho ô tìm kiếm: tiêu đề, tác giả và tên cửa hàng,
+ * xếp theo tổng soldCount của các sách mang cụm đó.
+ * Mỗi cụm được chèn dưới các hậu tố theo từ nên gõ "potter" vẫn ra "Harry Potter".
+ * Thay đổi từ mọi instance đến qua BookChangeBroadcaster.
+ */
+@Slf4j
+@Component
+public class BookSuggestIndex implements BookIndexListener {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int MAX_SUFFIXES = 6;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final String TITLE = "TITLE";
+    private static final String AUTHOR = "AUTHOR";
+    private static final String STORE = "STORE";
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RebuildBuffer rebuildBuffer = new RebuildBuffer(lock);
+
+    private SuggestTrie trie = new SuggestTrie(MAX_SUGGESTIONS);
+    // kind + cụm đã chuẩn hoá -> entry
+    private Map<String, SuggestTrie.Entry> entries = new HashMap<>();
+    // bookId -> các entry mà sách đang đóng góp điểm
+    private Map<Long, List<SuggestTrie.Entry>> bookEntries = new HashMap<>();
+
+    public BookSuggestIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        SuggestTrie newTrie = new SuggestTrie(MAX_SUGGESTIONS);
+        Map<String, SuggestTrie.Entry> newEntries = new HashMap<>();
+        Map<Long, List<SuggestTrie.Entry>> newBookEntries = new HashMap<>();
+
+        rebuildBuffer.start();
+        try {
+            long afterId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = bookRepository.findSearchRowsAfter(afterId, Limit.of(REBUILD_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    addBook(newTrie, newEntries, newBookEntries, row);
+                    afterId = (Long) row[0];
+                }
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            rebuildBuffer.stop();
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            trie = newTrie;
+            entries = newEntries;
+            bookEntries = newBookEntries;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        replayChangedDuringRebuild();
+        log.info("Book suggest index rebuilt: {} suggestions", newEntries.size());
+    }
+
+    @Override
+    public void onBookChanged(BookChangedEvent event) {
+        apply(event, false);
+    }
+
+    private void apply(BookChangedEvent event, boolean replay) {
+        if (event.getBookIds().isEmpty() || event.getType() == BookChangedEvent.Type.RESERVATION) return;
+
+        List<Object[]> rows = event.getType() == BookChangedEvent.Type.DELETE
+                ? List.of()
+                : bookRepository.findSearchRowsByIdIn(event.getBookIds());
+        Collection<Long> bookIds = event.getBookIds();
+        if (event.getType() == BookChangedEvent.Type.STOCK) {
+            // Văn bản không đổi: chỉ dựng lại sách có soldCount khác với điểm đang tính
+            rows = soldCountChanged(rows);
+            if (rows.isEmpty()) return;
+            bookIds = rows.stream().map(row -> (Long) row[0]).toList();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!replay) rebuildBuffer.record(bookIds);
+            for (Long bookId : bookIds) {
+                removeBook(trie, entries, bookEntries, bookId);
+            }
+            for (Object[] row : rows) {
+                addBook(trie, entries, bookEntries, row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Thay đổi đến trong lúc rebuild chỉ vào trie cũ: đọc lại và áp vào trie mới
+    private void replayChangedDuringRebuild() {
+        for (Set<Long> changed = rebuildBuffer.drain(); !changed.isEmpty(); changed = rebuildBuffer.drain()) {
+            apply(BookChangedEvent.upsert(changed), true);
+        }
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            List<SuggestTrie.Entry> top = trie.topFor(key);
+            List<SuggestionDTO> result = new ArrayList<>(Math.min(limit, top.size()));
+            for (SuggestTrie.Entry e : top) {
+                if (result.size() == limit) break;
+                Long bookId = e.books.size() == 1 ? e.books.keySet().iterator().next() : null;
+                result.add(new SuggestionDTO(e.display, e.kind, e.score, bookId));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Object[]> soldCountChanged(List<Object[]> rows) {
+        lock.readLock().lock();
+        try {
+            List<Object[]> changed = new ArrayList<>();
+            for (Object[] row : rows) {
+                Long bookId = (Long) row[0];
+                List<SuggestTrie.Entry> contributed = bookEntries.get(bookId);
+                // Sách chưa có trong index thì thêm; sách không có cụm nào thì không có điểm để đổi
+                if (contributed == null) {
+                    changed.add(row);
+                } else if (!contributed.isEmpty()
+                        && !Objects.equals(contributed.get(0).books.get(bookId), soldCountOf(row))) {
+                    changed.add(row);
+                }
+            }
+            return changed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int soldCountOf(Object[] row) {
+        return row[4] != null ? ((Number) row[4]).intValue() : 0;
+    }
+
+    private static void addBook(SuggestTrie trie,
+                                Map<String, SuggestTrie.Entry> entries,
+                                Map<Long, List<SuggestTrie.Entry>> bookEntries,
+                                Object[] row) {
+        Long bookId = (Long) row[0];
+        int soldCount = soldCountOf(row);
+        List<SuggestTrie.Entry> contributed = new ArrayList<>(3);
+        addPhrase(trie, entries, contributed, TITLE, (String) row[1], bookId, soldCount);
+        addPhrase(trie, entries, contributed, AUTHOR, (String) row[2], bookId, soldCount);
+        addPhrase(trie, entries, contributed, STORE, (String) row[3], bookId, soldCount);
+        bookEntries.put(bookId, contributed);
+    }
+
+    private static void addPhrase(SuggestTrie trie,
+                                  Map<String, SuggestTrie.Entry> entries,
+                                  List<SuggestTrie.Entry> contributed,
+                                  String kind, String text, Long bookId, int soldCount) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        if (tokens.isEmpty()) return;
+
+        String id = kind + ':' + String.join(" ", tokens);
+        SuggestTrie.Entry entry = entries.get(id);
+        boolean created = entry == null;
+        if (created) {
+            entry = new SuggestTrie.Entry(kind, text.trim(), suffixKeys(tokens));
+            entries.put(id, entry);
+        }
+        if (entry.books.put(bookId, soldCount) != null) return;
+        entry.score += soldCount;
+        contributed.add(entry);
+
+        for (String key : entry.keys) {
+            if (created) trie.insert(key, entry);
+            else trie.refresh(key);
+        }
+    }
+
+    private static void removeBook(SuggestTrie trie,
+                                   Map<String, SuggestTrie.Entry> entries,
+                                   Map<Long, List<SuggestTrie.Entry>> bookEntries,
+                                   Long bookId) {
+        List<SuggestTrie.Entry> contributed = bookEntries.remove(bookId);
+        if (contributed == null) return;
+
+        for (SuggestTrie.Entry entry : contributed) {
+            Integer soldCount = entry.books.remove(bookId);
+            if (soldCount == null) continue;
+            entry.score -= soldCount;
+            boolean empty = entry.books.isEmpty();
+            if (empty) {
+                entries.remove(entry.kind + ':' + entry.keys.get(0));
+            }
+            for (String key : entry.keys) {
+                if (empty) trie.remove(key, entry);
+                else trie.refresh(key);
+            }
+        }
+    }
+
+    // Hậu tố theo ranh giới từ; keys[0] luôn là cả cụm
+    private static List<String> suffixKeys(List<String> tokens) {
+        List<String> keys = new ArrayList<>();
+        int n = Math.min(tokens.size(), MAX_SUFFIXES);
+        for (int i = 0; i < n; i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+        }
+        return keys;
+    }
+
+    private static String normalize(String prefix) {
+        String folded = TextNormalizer.fold(prefix).stripLeading();
+        // giữ dấu cách cuối để "harry " chỉ khớp cụm có từ tiếp theo
+        boolean trailingSpace = !folded.isEmpty() && Character.isWhitespace(folded.charAt(folded.length() - 1));
+        String joined = String.join(" ", TextNormalizer.tokenize(folded));
+        return trailingSpace && !joined.isEmpty() ? joined + " " : joined;
+    }
+}
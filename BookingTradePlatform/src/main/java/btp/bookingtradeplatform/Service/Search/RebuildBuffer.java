@@ -0,0 +1,69 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Ghi lại id sách thay đổi trong lúc index đang rebuild. Thay đổi đến giữa chừng chỉ được áp vào
+ * cấu trúc cũ và sẽ mất khi cấu trúc mới được tráo vào, nên sau khi tráo index áp dụng lại các id này
+ * (đọc lại từ DB) cho tới khi không còn thay đổi nào đến trong lúc áp dụng lại.
+ * Dùng chung write lock với index: record được gọi trong cùng đoạn khoá áp thay đổi vào cấu trúc hiện tại.
+ */
+final class RebuildBuffer {
+
+    private final ReadWriteLock lock;
+    private Set<Long> changed;
+
+    RebuildBuffer(ReadWriteLock lock) {
+        this.lock = lock;
+    }
+
+    void start() {
+        lock.writeLock().lock();
+        try {
+            changed = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Rebuild lỗi: cấu trúc cũ vẫn dùng tiếp và đã nhận đủ thay đổi
+    void stop() {
+        lock.writeLock().lock();
+        try {
+            changed = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void record(Collection<Long> bookIds) {
+        lock.writeLock().lock();
+        try {
+            if (changed != null) changed.addAll(bookIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lấy các id đã ghi và tiếp tục ghi lượt mới trong lúc chúng được áp dụng lại;
+     * không còn id nào thì dừng ghi và trả về tập rỗng.
+     */
+    Set<Long> drain() {
+        lock.writeLock().lock();
+        try {
+            Set<Long> drained = changed;
+            if (drained == null || drained.isEmpty()) {
+                changed = null;
+                return Set.of();
+            }
+            changed = new HashSet<>();
+            return drained;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
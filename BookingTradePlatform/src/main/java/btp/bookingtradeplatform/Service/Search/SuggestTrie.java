@@ -0,0 +1,169 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import java.util.*;
+
+/**
+ * Radix trie (trie nén cạnh) trả về top-K gợi ý cho một tiền tố.
+ * Mỗi node giữ sẵn top-K của cả cây con nên truy vấn chỉ tốn O(độ dài tiền tố).
+ * Khi chèn/xoá/đổi điểm, top-K được tính lại trên đường đi từ lá về gốc.
+ * Không thread-safe, lớp gọi tự đồng bộ.
+ */
+final class SuggestTrie {
+
+    /**
+     * Một gợi ý: có thể được chèn dưới nhiều key (các hậu tố theo từ của cụm).
+     */
+    static final class Entry {
+        final String kind;
+        final String display;
+        final Map<Long, Integer> books = new HashMap<>();
+        final List<String> keys;
+        long score;
+
+        Entry(String kind, String display, List<String> keys) {
+            this.kind = kind;
+            this.display = display;
+            this.keys = keys;
+        }
+    }
+
+    private static final class Node {
+        String edge;
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        final Set<Entry> terminals = new HashSet<>();
+        List<Entry> top = List.of();
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+    }
+
+    private static final Comparator<Entry> BY_RANK = Comparator.<Entry>comparingLong(e -> e.score).reversed()
+            .thenComparing(e -> e.display);
+
+    private final int topK;
+    private final Node root = new Node("");
+
+    SuggestTrie(int topK) {
+        this.topK = topK;
+    }
+
+    void insert(String key, Entry entry) {
+        insert(root, key, 0, entry);
+    }
+
+    void remove(String key, Entry entry) {
+        remove(root, key, 0, entry);
+    }
+
+    // Gọi sau khi điểm của entry thay đổi
+    void refresh(String key) {
+        refresh(root, key, 0);
+    }
+
+    List<Entry> topFor(String prefix) {
+        Node node = root;
+        int pos = 0;
+        while (pos < prefix.length()) {
+            Node child = node.children.get(prefix.charAt(pos));
+            if (child == null) return List.of();
+            int remaining = prefix.length() - pos;
+            if (remaining <= child.edge.length()) {
+                return child.edge.startsWith(prefix.substring(pos)) ? child.top : List.of();
+            }
+            if (!prefix.startsWith(child.edge, pos)) return List.of();
+            pos += child.edge.length();
+            node = child;
+        }
+        return node.top;
+    }
+
+    private void insert(Node node, String key, int pos, Entry entry) {
+        if (pos == key.length()) {
+            node.terminals.add(entry);
+            recompute(node);
+            return;
+        }
+        char c = key.charAt(pos);
+        Node child = node.children.get(c);
+        if (child == null) {
+            Node leaf = new Node(key.substring(pos));
+            leaf.terminals.add(entry);
+            recompute(leaf);
+            node.children.put(c, leaf);
+        } else {
+            int common = commonPrefix(child.edge, key, pos);
+            if (common < child.edge.length()) {
+                // Tách cạnh: node trung gian giữ phần chung
+                Node mid = new Node(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                mid.children.put(child.edge.charAt(0), child);
+                node.children.put(c, mid);
+                child = mid;
+            }
+            insert(child, key, pos + common, entry);
+        }
+        recompute(node);
+    }
+
+    private void remove(Node node, String key, int pos, Entry entry) {
+        if (pos == key.length()) {
+            node.terminals.remove(entry);
+            recompute(node);
+            return;
+        }
+        char c = key.charAt(pos);
+        Node child = node.children.get(c);
+        if (child == null || !key.startsWith(child.edge, pos)) return;
+        remove(child, key, pos + child.edge.length(), entry);
+
+        if (child.terminals.isEmpty() && child.children.isEmpty()) {
+            node.children.remove(c);
+        } else if (child.terminals.isEmpty() && child.children.size() == 1) {
+            // Gộp lại cạnh để cây luôn ở dạng nén
+            Node grandChild = child.children.firstEntry().getValue();
+            grandChild.edge = child.edge + grandChild.edge;
+            node.children.put(c, grandChild);
+        }
+        recompute(node);
+    }
+
+    private void refresh(Node node, String key, int pos) {
+        if (pos < key.length()) {
+            Node child = node.children.get(key.charAt(pos));
+            if (child == null || !key.startsWith(child.edge, pos)) return;
+            refresh(child, key, pos + child.edge.length());
+        }
+        recompute(node);
+    }
+
+    private void recompute(Node node) {
+        // Một entry có thể xuất hiện ở nhiều nhánh con (nhiều hậu tố), cần loại trùng
+        Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        PriorityQueue<Entry> best = new PriorityQueue<>(topK + 1, BY_RANK.reversed());
+        for (Entry e : node.terminals) {
+            offer(best, seen, e);
+        }
+        for (Node child : node.children.values()) {
+            for (Entry e : child.top) {
+                offer(best, seen, e);
+            }
+        }
+        List<Entry> top = new ArrayList<>(best);
+        top.sort(BY_RANK);
+        node.top = List.copyOf(top);
+    }
+
+    private void offer(PriorityQueue<Entry> best, Set<Entry> seen, Entry e) {
+        if (!seen.add(e)) return;
+        best.offer(e);
+        if (best.size() > topK) best.poll();
+    }
+
+    private static int commonPrefix(String edge, String key, int pos) {
+        int max = Math.min(edge.length(), key.length() - pos);
+        int i = 0;
+        while (i < max && edge.charAt(i) == key.charAt(pos + i)) i++;
+        return i;
+    }
+}
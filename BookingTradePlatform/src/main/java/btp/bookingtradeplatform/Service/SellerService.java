@@ -4,14 +4,17 @@ import btp.bookingtradeplatform.Exception.AppException;
 import btp.bookingtradeplatform.Exception.BusinessException;
 import btp.bookingtradeplatform.Model.DTO.SellerDTO;
 import btp.bookingtradeplatform.Model.Entity.Seller;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
 import btp.bookingtradeplatform.Model.Enum.Role;
 import btp.bookingtradeplatform.Model.Request.EmailRequest;
 import btp.bookingtradeplatform.Model.Request.RegisterSellerRequest;
 import btp.bookingtradeplatform.Model.Response.ResponseData;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdateSellerForm;
+import btp.bookingtradeplatform.Repository.BookRepository;
 import btp.bookingtradeplatform.Repository.SellerRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -25,6 +28,10 @@ public class SellerService {
     private SellerRepository sellerRepository;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     public ResponseEntity<ResponseData<List<SellerDTO>>> getAllSeller() {
         List<Seller> seller = sellerRepository.findAll();
@@ -107,7 +114,11 @@ public class SellerService {
         if (request.getFullName() != null) seller.setFullName(request.getFullName());
         if (request.getProfileImage() != null) seller.setProfileImage(request.getProfileImage());
         if (request.getPhone() != null) seller.setPhone(request.getPhone());
-        if (request.getStoreName() != null) seller.setStoreName(request.getStoreName());
+        if (request.getStoreName() != null && !request.getStoreName().equals(seller.getStoreName())) {
+            seller.setStoreName(request.getStoreName());
+            // storeName được index cùng sách, cần index lại sách của người bán
+            eventPublisher.publishEvent(BookChangedEvent.upsert(bookRepository.findIdsBySellerId(id)));
+        }
         if (request.getStoreAddress() != null) seller.setStoreAddress(request.getStoreAddress());
         if (request.getStoreDescription() != null) seller.setStoreDescription(request.getStoreDescription());
 
@@ -4,18 +4,26 @@ import btp.bookingtradeplatform.Exception.AppException;
 import btp.bookingtradeplatform.Exception.BusinessException;
 import btp.bookingtradeplatform.Model.Entity.Book;
 import btp.bookingtradeplatform.Model.Entity.Series;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
 import btp.bookingtradeplatform.Model.Request.CreateSeriesRequest;
+import btp.bookingtradeplatform.Model.Response.CacheValidators;
 import btp.bookingtradeplatform.Model.Response.ResponseData;
 import btp.bookingtradeplatform.Model.UpdateRequest.UpdateSeriesForm;
 import btp.bookingtradeplatform.Repository.BookRepository;
+import btp.bookingtradeplatform.Repository.CategoryRepository;
 import btp.bookingtradeplatform.Repository.SerieRepository;
 import btp.bookingtradeplatform.Model.DTO.SeriesDTO;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 @Transactional
 @Service
@@ -27,31 +35,38 @@ public class SeriesService {
     @Autowired
     private BookRepository bookRepository;
 
-    public ResponseEntity<ResponseData<List<SeriesDTO>>> getAllSeries() {
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // SeriesDTO nhúng cả BookDTO nên ETag gồm version của series, của các sách trong series và của category
+    public ResponseEntity<ResponseData<List<SeriesDTO>>> getAllSeries(HttpHeaders requestHeaders) {
+        List<Object[]> versions = new ArrayList<>(seriesRepository.findCatalogVersion());
+        versions.addAll(bookRepository.findCatalogVersionInSeries());
+        versions.addAll(categoryRepository.findCatalogVersion());
+        CacheValidators validators = CacheValidators.ofCollection("series", versions);
+        if (validators.isNotModified(requestHeaders)) return validators.notModified();
+
         List<SeriesDTO> seriesDTOList = seriesRepository.findAll().stream()
                 .map(SeriesDTO::fromEntity)
                 .collect(Collectors.toList());
 
-        return ResponseEntity
-                .status(AppException.SUCCESS.getHttpStatus())
-                .body(new ResponseData<>(
-                        AppException.SUCCESS.getCode(),
-                        AppException.SUCCESS.getMessage(),
-                        seriesDTOList
-                ));
+        return validators.ok(seriesDTOList);
     }
 
-    public ResponseEntity<ResponseData<SeriesDTO>> getSeriesById(Long id) {
+    public ResponseEntity<ResponseData<SeriesDTO>> getSeriesById(Long id, HttpHeaders requestHeaders) {
+        List<Object[]> versions = new ArrayList<>(seriesRepository.findVersionById(id));
+        if (versions.isEmpty()) throw new BusinessException(AppException.NOT_FOUND);
+        versions.addAll(bookRepository.findCatalogVersionBySeriesId(id));
+        versions.addAll(categoryRepository.findCatalogVersion());
+        CacheValidators validators = CacheValidators.ofCollection("series:" + id, versions);
+        if (validators.isNotModified(requestHeaders)) return validators.notModified();
+
         Series series = seriesRepository.findById(id)
                 .orElseThrow(() -> new BusinessException(AppException.NOT_FOUND));
-
-        return ResponseEntity
-                .status(AppException.SUCCESS.getHttpStatus())
-                .body(new ResponseData<>(
-                        AppException.SUCCESS.getCode(),
-                        AppException.SUCCESS.getMessage(),
-                        SeriesDTO.fromEntity(series)
-                ));
+        return validators.ok(SeriesDTO.fromEntity(series));
     }
 
     public ResponseEntity<ResponseData<SeriesDTO>> createSeries(CreateSeriesRequest request) {
@@ -70,6 +85,9 @@ public class SeriesService {
             series.setBooks(books);
         }
         Series saved = seriesRepository.save(series);
+        if (series.getBooks() != null && !series.getBooks().isEmpty()) {
+            eventPublisher.publishEvent(BookChangedEvent.upsert(series.getBooks().stream().map(Book::getId).toList()));
+        }
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
@@ -89,11 +107,13 @@ public class SeriesService {
         if (request.getName() != null) existing.setName(request.getName());
         if (request.getDescription() != null) existing.setDescription(request.getDescription());
 
+        Set<Long> affectedBookIds = new HashSet<>();
         if (request.getBookIds() != null) {
             List<Book> currentBooks = existing.getBooks();
             if (currentBooks != null) {
                 for (Book book : currentBooks) {
                     if (!request.getBookIds().contains(book.getId())) {
+                        affectedBookIds.add(book.getId());
                         book.setSeries(null);
                         bookRepository.save(book);// cập nhật book
                     }
@@ -104,6 +124,7 @@ public class SeriesService {
 
             // Gán series vào từng book mới
             for (Book book : newBooks) {
+                affectedBookIds.add(book.getId());
                 book.setSeries(existing);
                 bookRepository.save(book);// cập nhật book
             }
@@ -112,6 +133,9 @@ public class SeriesService {
         }
 
         Series updated = seriesRepository.save(existing);
+        if (!affectedBookIds.isEmpty()) {
+            eventPublisher.publishEvent(BookChangedEvent.upsert(affectedBookIds));
+        }
 
         return ResponseEntity
                 .status(AppException.SUCCESS.getHttpStatus())
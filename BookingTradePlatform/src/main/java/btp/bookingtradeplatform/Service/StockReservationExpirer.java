@@ -0,0 +1,104 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Model.Event.StockReservedEvent;
+import btp.bookingtradeplatform.Repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nhả hàng giữ của các đơn quá hạn thanh toán.
+ * Mỗi lần giữ là một phần tử trong DelayQueue, một luồng nền chỉ thức dậy khi phần tử sớm nhất
+ * tới hạn, nên không có lượt quét định kỳ toàn bảng orders.
+ * Hàng đợi nằm trong bộ nhớ: lúc khởi động được nạp lại từ các đơn còn reservedUntil;
+ * việc nhả là UPDATE có điều kiện nên chạy trên nhiều instance hay trùng với thanh toán vẫn chỉ nhả một lần.
+ */
+@Slf4j
+@Component
+public class StockReservationExpirer {
+
+    private static final long RETRY_DELAY_MILLIS = 30_000;
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final DelayQueue<Expiry> queue = new DelayQueue<>();
+    private volatile Thread worker;
+
+    public StockReservationExpirer(OrderService orderService, OrderRepository orderRepository) {
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+    }
+
+    private record Expiry(Long orderId, long expiresAtMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAtMillis, ((Expiry) other).expiresAtMillis);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockReserved(StockReservedEvent event) {
+        schedule(event.getOrderId(), event.getExpiresAt());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int pending = 0;
+        for (Object[] row : orderRepository.findActiveReservations()) {
+            schedule((Long) row[0], (LocalDateTime) row[1]);
+            pending++;
+        }
+        worker = new Thread(this::run, "stock-reservation-expirer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Stock reservation expirer started with {} pending reservations", pending);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) worker.interrupt();
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    private void schedule(Long orderId, LocalDateTime expiresAt) {
+        if (orderId == null || expiresAt == null) return;
+        queue.put(new Expiry(orderId, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Expiry expiry;
+            try {
+                expiry = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                orderService.expireReservation(expiry.orderId());
+            } catch (Exception e) {
+                // Lỗi DB tạm thời: thử lại sau, phần giữ vẫn còn nguyên vì transaction đã rollback
+                log.warn("Could not release reservation of order {}: {}", expiry.orderId(), e.getMessage());
+                queue.put(new Expiry(expiry.orderId(), System.currentTimeMillis() + RETRY_DELAY_MILLIS));
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package btp.bookingtradeplatform.Service;
 
+import btp.bookingtradeplatform.Service.Pricing.PricingEngine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -35,7 +36,7 @@ public class VnPayService {
             params.put("vnp_Version", "2.1.0");
             params.put("vnp_Command", "pay");
             params.put("vnp_TmnCode", tmnCode);
-            params.put("vnp_Amount", String.valueOf(amount * 100));
+            params.put("vnp_Amount", String.valueOf(PricingEngine.toVnPayAmount(amount)));
             params.put("vnp_CurrCode", "VND");
             params.put("vnp_TxnRef", transactionId); // dùng transactionId
             params.put("vnp_OrderInfo", "Thanh toan don hang " + transactionId);
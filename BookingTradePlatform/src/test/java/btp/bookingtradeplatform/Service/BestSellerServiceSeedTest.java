@@ -0,0 +1,73 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BestSellerServiceSeedTest {
+
+    private RedisTemplate<String, String> redisTemplate;
+    private ValueOperations<String, String> values;
+    private BookRepository bookRepository;
+    private BestSellerService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        values = mock(ValueOperations.class);
+        bookRepository = mock(BookRepository.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(redisTemplate.hasKey("bestseller:seeded")).thenReturn(false);
+        when(values.setIfAbsent(eq("bestseller:seeding"), eq("1"), any(Duration.class))).thenReturn(true);
+        service = new BestSellerService(redisTemplate, bookRepository);
+    }
+
+    @Test
+    void marksSeededOnlyAfterSuccess() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{7L, null, 3});
+        when(bookRepository.findSoldRowsAfter(eq(0L), any())).thenReturn(rows);
+
+        service.seed();
+
+        verify(redisTemplate).executePipelined(any(SessionCallback.class));
+        verify(values).set("bestseller:seed-cursor", "7");
+        verify(values).set("bestseller:seeded", "1");
+        verify(redisTemplate).delete(List.of("bestseller:seed-cursor", "bestseller:seeding"));
+    }
+
+    @Test
+    void failureReleasesTheLockAndResumesFromTheCursor() {
+        when(values.get("bestseller:seed-cursor")).thenReturn("1000");
+        when(bookRepository.findSoldRowsAfter(eq(1000L), any())).thenThrow(new QueryTimeoutException("timeout"));
+
+        service.seed();
+
+        verify(values, never()).set(eq("bestseller:seeded"), anyString());
+        verify(redisTemplate).delete("bestseller:seeding");
+    }
+
+    @Test
+    void skipsWhenAlreadySeededOrLocked() {
+        when(redisTemplate.hasKey("bestseller:seeded")).thenReturn(true);
+        service.seed();
+
+        when(redisTemplate.hasKey("bestseller:seeded")).thenReturn(false);
+        when(values.setIfAbsent(eq("bestseller:seeding"), eq("1"), any(Duration.class))).thenReturn(false);
+        service.seed();
+
+        verifyNoInteractions(bookRepository);
+    }
+}
@@ -0,0 +1,121 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Model.DTO.BookDTO;
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Entity.Category;
+import btp.bookingtradeplatform.Model.Entity.Seller;
+import btp.bookingtradeplatform.Model.Entity.Series;
+import btp.bookingtradeplatform.Model.Enum.Role;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(BookDTOAssembler.class)
+class BookDTOAssemblerTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookDTOAssembler assembler;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void pageOfBooksCostsConstantQueries() {
+        persistBooks(40);
+
+        assertEquals(3, queriesForPage(5));
+        assertEquals(3, queriesForPage(40));
+    }
+
+    @Test
+    void dtoCarriesBatchedCollectionsAndForeignKeys() {
+        persistBooks(2);
+        entityManager.clear();
+
+        List<BookDTO> dtos = assembler.toDTOs(bookRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(10)));
+
+        assertEquals(2, dtos.size());
+        BookDTO first = dtos.get(0);
+        assertEquals(List.of("Fiction", "History"), first.getCategoryNames().stream().sorted().toList());
+        assertEquals(2, first.getAdditionalImages().size());
+        assertNotNull(first.getSellerId());
+        assertNotNull(first.getSeriesId());
+    }
+
+    private long queriesForPage(int size) {
+        entityManager.clear();
+        statistics.clear();
+
+        List<Book> books = bookRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(size));
+        List<BookDTO> dtos = assembler.toDTOs(books);
+
+        assertEquals(size, dtos.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void persistBooks(int count) {
+        Seller seller = new Seller();
+        seller.setUsername("seller");
+        seller.setEmail("seller@example.com");
+        seller.setStoreName("Nhà sách Phương Nam");
+        seller.setRole(Role.SELLER);
+        entityManager.persist(seller);
+
+        Series series = new Series();
+        series.setName("Series");
+        entityManager.persist(series);
+
+        Category fiction = new Category();
+        fiction.setName("Fiction");
+        entityManager.persist(fiction);
+        Category history = new Category();
+        history.setName("History");
+        entityManager.persist(history);
+
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setPrice(BigDecimal.valueOf(100_000));
+            book.setSeller(seller);
+            book.setSeries(series);
+            book.setCategories(List.of(fiction, history));
+            book.setAdditionalImages(List.of("a" + i + ".jpg", "b" + i + ".jpg"));
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+    }
+}
@@ -0,0 +1,144 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Model.DTO.BookDTO;
+import btp.bookingtradeplatform.Model.DTO.BookImportReportDTO;
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Entity.Category;
+import btp.bookingtradeplatform.Model.Entity.Seller;
+import btp.bookingtradeplatform.Model.Enum.BookFormat;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import btp.bookingtradeplatform.Service.Import.BookImportService;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * File export (CSV và NDJSON) phải nhập lại được qua /books/import mà giữ nguyên nội dung sách,
+ * kể cả category và ảnh phụ.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookExportService.class, BookImportService.class, BookDTOAssembler.class, JacksonAutoConfiguration.class})
+class BookExportImportRoundTripTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BookExportService exportService;
+
+    @Autowired
+    private BookImportService importService;
+
+    @Autowired
+    private BookDTOAssembler assembler;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private Seller source;
+    private Seller target;
+
+    @BeforeEach
+    void setUp() {
+        source = TestData.seller("source");
+        target = TestData.seller("target");
+        entityManager.persist(source);
+        entityManager.persist(target);
+
+        Category fiction = category("Fiction");
+        Category history = category("History");
+
+        Book quoted = TestData.book("Sapiens, \"Lược sử\" loài người", 189_000, 12, source);
+        quoted.setDescription("Dòng 1\nDòng 2, có dấu phẩy");
+        quoted.setAuthor("Yuval Noah Harari");
+        quoted.setLanguage("vi");
+        quoted.setPageCount(512);
+        quoted.setFormat(BookFormat.values()[0]);
+        quoted.setCategories(List.of(fiction, history));
+        quoted.setAdditionalImages(List.of("a.jpg", "b.jpg"));
+        entityManager.persist(quoted);
+
+        Book plain = TestData.book("Plain", 50_000, 3, source);
+        entityManager.persist(plain);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void csvExportReimports() throws IOException {
+        assertRoundTrip(BookExportService.CSV, BookImportService.CSV);
+    }
+
+    @Test
+    void ndjsonExportReimports() throws IOException {
+        assertRoundTrip(BookExportService.NDJSON, BookImportService.NDJSON);
+    }
+
+    private void assertRoundTrip(String exportFormat, String importType) throws IOException {
+        List<BookDTO> exported = booksOf(source);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportBooks(exportFormat).getBody().writeTo(out);
+        entityManager.clear();
+
+        BookImportReportDTO report = importService.importBooks(target.getId(), importType,
+                new ByteArrayInputStream(out.toByteArray())).getBody().getData();
+        entityManager.clear();
+
+        assertEquals(0, report.getFailed(), () -> String.valueOf(report.getErrors()));
+        assertEquals(exported.size(), report.getImported());
+        List<BookDTO> imported = booksOf(target);
+        assertEquals(exported.size(), imported.size());
+        for (int i = 0; i < exported.size(); i++) {
+            BookDTO expected = exported.get(i);
+            BookDTO actual = imported.get(i);
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getAuthor(), actual.getAuthor());
+            assertEquals(expected.getLanguage(), actual.getLanguage());
+            assertEquals(expected.getPageCount(), actual.getPageCount());
+            assertEquals(0, expected.getPrice().compareTo(actual.getPrice()));
+            assertEquals(expected.getStock(), actual.getStock());
+            assertEquals(expected.getFormat(), actual.getFormat());
+            assertEquals(sorted(expected.getCategoryIds()), sorted(actual.getCategoryIds()));
+            assertEquals(expected.getAdditionalImages(), actual.getAdditionalImages());
+        }
+        assertEquals(2, exported.get(0).getCategoryIds().size());
+    }
+
+    private List<BookDTO> booksOf(Seller seller) {
+        List<Book> books = bookRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(100)).stream()
+                .filter(b -> Objects.equals(b.getSeller().getId(), seller.getId()))
+                .toList();
+        return assembler.toDTOs(books);
+    }
+
+    private Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        entityManager.persist(category);
+        return category;
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+}
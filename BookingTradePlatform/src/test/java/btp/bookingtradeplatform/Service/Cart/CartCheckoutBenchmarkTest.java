@@ -0,0 +1,179 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import btp.bookingtradeplatform.Model.DTO.OrderDTO;
+import btp.bookingtradeplatform.Model.Entity.Customer;
+import btp.bookingtradeplatform.Model.Request.CheckoutRequest;
+import btp.bookingtradeplatform.Model.Request.CreateCartRequest;
+import btp.bookingtradeplatform.Repository.CartItemRepository;
+import btp.bookingtradeplatform.Repository.OrderRepository;
+import btp.bookingtradeplatform.Service.CartService;
+import btp.bookingtradeplatform.Support.Benchmarks;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Số truy vấn Hibernate khi checkout không tăng theo số dòng trong giỏ, và giỏ được dọn sau khi đặt.
+ * Phần đo độ trễ gắn tag benchmark, chỉ chạy với -Pbenchmark.
+ */
+@Slf4j
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ServiceTestConfig.class)
+class CartCheckoutBenchmarkTest {
+
+    private static final int[] LINE_COUNTS = {1, 10, 100};
+
+    // customer + sách (kèm seller) + mã giảm giá + insert order + insert outbox + delete CartItem;
+    // giỏ đọc từ store, giữ hàng và item đi bằng JDBC batch
+    private static final long STATEMENTS = 6;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartCheckoutService cartCheckoutService;
+
+    @Autowired
+    private CartWriteBehind cartWriteBehind;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Statistics statistics;
+    private TestData.Catalog catalog;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        // Store dùng chung giữa các test còn DB được rollback: bỏ các giỏ dirty của test trước
+        cartStore.pollDirty(Integer.MAX_VALUE);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        catalog = TestData.Catalog.persist(entityManager, 100);
+        customer = catalog.customer();
+    }
+
+    @Test
+    void queryCountIsIndependentOfLineCountAndCartIsCleared() {
+        for (int lines : LINE_COUNTS) {
+            fillCart(lines);
+            statistics.clear();
+            OrderDTO dto = cartCheckoutService.checkout(request(lines)).getBody().getData();
+
+            assertEquals(STATEMENTS, statistics.getPrepareStatementCount(), "Hibernate statements for " + lines + " lines");
+            assertEquals(lines, dto.getCartItems().size());
+            assertTrue(cartStore.get(customer.getId()).orElseThrow().lines().isEmpty());
+
+            entityManager.flush();
+            entityManager.clear();
+            assertEquals(lines, orderRepository.findById(dto.getId()).orElseThrow().getOrderItems().size());
+            Long cartId = cartStore.get(customer.getId()).orElseThrow().cartId();
+            assertTrue(cartItemRepository.findByCartId(cartId).isEmpty());
+            entityManager.clear();
+        }
+    }
+
+    @Test
+    void staleSnapshotCannotClaimTheCart() {
+        fillCart(2);
+        CartSnapshot read = cartStore.get(customer.getId()).orElseThrow();
+        Map<Long, Integer> deltas = new HashMap<>();
+        read.lines().forEach(line -> deltas.put(line.bookId(), -line.quantity()));
+
+        // Giỏ bị sửa sau lúc đọc: không trừ gì
+        fillCart(3);
+        CartSnapshot changed = cartStore.get(customer.getId()).orElseThrow();
+        assertEquals(Optional.of(false), cartStore.takeIfVersion(customer.getId(), read.version(), deltas));
+        assertEquals(changed.lines(), cartStore.get(customer.getId()).orElseThrow().lines());
+
+        // Version khớp thì trừ đúng một lần; lần thứ hai với cùng version bị từ chối
+        assertEquals(Optional.of(true), cartStore.takeIfVersion(customer.getId(), changed.version(), deltas));
+        assertEquals(Optional.of(false), cartStore.takeIfVersion(customer.getId(), changed.version(), deltas));
+        CartSnapshot after = cartStore.get(customer.getId()).orElseThrow();
+        assertEquals(3, after.lines().size());
+        assertEquals(changed.total() - read.total(), after.total());
+
+        assertEquals(Optional.empty(), cartStore.takeIfVersion(-1L, 0, deltas));
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    void latencyByLineCount() {
+        for (int lines : LINE_COUNTS) {
+            CheckoutRequest request = request(lines);
+            double avgMs = Benchmarks.averageMillis(() -> {
+                fillCart(lines);
+                statistics.clear();
+            }, () -> checkoutAndClear(request));
+
+            assertEquals(STATEMENTS, statistics.getPrepareStatementCount(), "Hibernate statements for " + lines + " lines");
+            log.info("checkout lines={} avg={} ms", lines, String.format("%.3f", avgMs));
+        }
+    }
+
+    private void checkoutAndClear(CheckoutRequest request) {
+        cartCheckoutService.checkout(request);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // Giỏ được ghi xuống DB trước khi đo để checkout phải xoá CartItem thật
+    private void fillCart(int lines) {
+        CreateCartRequest request = new CreateCartRequest();
+        request.setUserId(customer.getId());
+        request.setCartItems(new ArrayList<>());
+        for (int i = 0; i < lines; i++) {
+            CreateCartRequest.CartItemRequest item = new CreateCartRequest.CartItemRequest();
+            item.setBookId(catalog.books().get(i).getId());
+            item.setQuantity(1 + i % 3);
+            request.getCartItems().add(item);
+        }
+        cartService.addCartItem(request);
+        cartWriteBehind.flushPending();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private CheckoutRequest request(int lines) {
+        Map<Long, String> discountCodes = new HashMap<>();
+        for (int i = 0; i < lines; i += 2) {
+            discountCodes.put(catalog.books().get(i).getId(), TestData.DISCOUNT_CODE);
+        }
+        return new CheckoutRequest(customer.getId(), discountCodes);
+    }
+}
@@ -0,0 +1,165 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Entity.Cart;
+import btp.bookingtradeplatform.Model.Entity.Customer;
+import btp.bookingtradeplatform.Model.Entity.Seller;
+import btp.bookingtradeplatform.Model.Request.CreateCartRequest;
+import btp.bookingtradeplatform.Repository.CartItemRepository;
+import btp.bookingtradeplatform.Repository.CartRepository;
+import btp.bookingtradeplatform.Service.CartService;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ServiceTestConfig.class)
+class CartSweeperTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartWriteBehind cartWriteBehind;
+
+    @Autowired
+    private CartSweeper cartSweeper;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Customer> customers = new ArrayList<>();
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Store dùng chung giữa các test còn DB được rollback: bỏ các giỏ dirty của test trước
+        cartStore.pollDirty(Integer.MAX_VALUE);
+
+        Seller seller = TestData.seller("seller");
+        entityManager.persist(seller);
+
+        for (int i = 0; i < 3; i++) {
+            Customer customer = TestData.customer("customer" + i);
+            entityManager.persist(customer);
+            customers.add(customer);
+
+            Book book = TestData.book("Book " + i, 10_000L * (i + 1), 100, seller);
+            entityManager.persist(book);
+            books.add(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        for (Customer customer : customers) {
+            add(customer, books.get(0), 1);
+            add(customer, books.get(1), 2);
+        }
+        cartWriteBehind.flushPending();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void deletesOnlyCartsUntouchedLongerThanTheThreshold() {
+        age(customers.get(0), 31);
+        age(customers.get(1), 31);
+        age(customers.get(2), 5);
+        Long sweptCartId = cartRepository.findByUserId(customers.get(0).getId()).orElseThrow().getId();
+        entityManager.clear();
+
+        double cartsBefore = meterRegistry.counter("cart.sweeper.deleted.carts").count();
+        double itemsBefore = meterRegistry.counter("cart.sweeper.deleted.items").count();
+
+        assertEquals(2, cartSweeper.sweepPending());
+        assertEquals(0, cartSweeper.sweepPending());
+        entityManager.clear();
+
+        assertTrue(cartRepository.findByUserId(customers.get(0).getId()).isEmpty());
+        assertTrue(cartRepository.findByUserId(customers.get(1).getId()).isEmpty());
+        assertTrue(cartItemRepository.findByCartId(sweptCartId).isEmpty());
+        assertEquals(2, cartRepository.findByUserId(customers.get(2).getId()).orElseThrow().getCartItems().size());
+
+        assertEquals(2, meterRegistry.counter("cart.sweeper.deleted.carts").count() - cartsBefore);
+        assertEquals(4, meterRegistry.counter("cart.sweeper.deleted.items").count() - itemsBefore);
+    }
+
+    @Test
+    void storeKeepsCartsEditedAfterTheirLastFlush() {
+        age(customers.get(0), 31);
+        age(customers.get(1), 31);
+        // Giỏ 1 được sửa trong store nhưng chưa kịp ghi xuống DB
+        add(customers.get(1), books.get(2), 1);
+
+        assertEquals(2, cartSweeper.sweepPending());
+
+        assertTrue(cartStore.get(customers.get(0).getId()).isEmpty());
+        assertEquals(3, cartStore.get(customers.get(1).getId()).orElseThrow().lines().size());
+        assertTrue(cartStore.get(customers.get(2).getId()).isPresent());
+
+        // Write-behind tạo lại giỏ còn được dùng
+        assertEquals(1, cartWriteBehind.flushPending());
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(3, cartRepository.findByUserId(customers.get(1).getId()).orElseThrow().getCartItems().size());
+    }
+
+    @Test
+    void legacyCartsWithoutTimestampStartAgingFromTheFirstSweep() {
+        entityManager.createQuery("UPDATE Cart c SET c.updatedAt = null").executeUpdate();
+        entityManager.clear();
+
+        assertEquals(0, cartSweeper.sweepPending());
+        entityManager.clear();
+
+        for (Customer customer : customers) {
+            Cart cart = cartRepository.findByUserId(customer.getId()).orElseThrow();
+            assertNotNull(cart.getUpdatedAt());
+        }
+    }
+
+    private void age(Customer customer, int days) {
+        entityManager.createQuery("UPDATE Cart c SET c.updatedAt = :at WHERE c.userId = :userId")
+                .setParameter("at", LocalDateTime.now().minusDays(days))
+                .setParameter("userId", customer.getId())
+                .executeUpdate();
+    }
+
+    private void add(Customer customer, Book book, int quantity) {
+        CreateCartRequest.CartItemRequest item = new CreateCartRequest.CartItemRequest();
+        item.setBookId(book.getId());
+        item.setQuantity(quantity);
+        CreateCartRequest request = new CreateCartRequest();
+        request.setUserId(customer.getId());
+        request.setCartItems(List.of(item));
+        cartService.addCartItem(request);
+    }
+}
@@ -0,0 +1,209 @@
+package btp.bookingtradeplatform.Service.Cart;
+
+import btp.bookingtradeplatform.Model.DTO.CartDTO;
+import btp.bookingtradeplatform.Model.DeleteRequest.RemoveCartItemRequest;
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Entity.Cart;
+import btp.bookingtradeplatform.Model.Entity.CartItem;
+import btp.bookingtradeplatform.Model.Entity.Customer;
+import btp.bookingtradeplatform.Model.Entity.Seller;
+import btp.bookingtradeplatform.Model.Event.BookPriceChangedEvent;
+import btp.bookingtradeplatform.Model.Request.CreateCartRequest;
+import btp.bookingtradeplatform.Repository.CartRepository;
+import btp.bookingtradeplatform.Service.CartService;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ServiceTestConfig.class)
+class CartWriteBehindTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartWriteBehind cartWriteBehind;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartRepricer cartRepricer;
+
+    private Statistics statistics;
+    private Customer customer;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Store dùng chung giữa các test còn DB được rollback: bỏ các giỏ dirty của test trước
+        cartStore.pollDirty(Integer.MAX_VALUE);
+        cartStore.pollRepricing(Integer.MAX_VALUE);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        customer = TestData.customer("customer");
+        entityManager.persist(customer);
+
+        Seller seller = TestData.seller("seller");
+        entityManager.persist(seller);
+
+        for (int i = 0; i < 5; i++) {
+            Book book = TestData.book("Book " + i, 10_000L * (i + 1), 100, seller);
+            entityManager.persist(book);
+            books.add(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void readsAndRepeatedAddsStayOffTheDatabaseUntilFlushed() {
+        add(books.get(0), 1);
+        statistics.clear();
+
+        for (int i = 0; i < 50; i++) {
+            add(books.get(0), 1);
+        }
+        CartDTO cart = cartService.getCartByUserId(customer.getId()).getBody().getData();
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(51, cart.getCartItems().get(0).getQuantity());
+        assertEquals(0, BigDecimal.valueOf(510_000).compareTo(cart.getTotalPrice()));
+        assertTrue(cartRepository.findByUserId(customer.getId()).isEmpty());
+
+        // 51 lần sửa được gom thành một lần ghi
+        assertEquals(1, cartWriteBehind.flushPending());
+        assertEquals(0, cartWriteBehind.flushPending());
+        entityManager.flush();
+        entityManager.clear();
+
+        Cart saved = cartRepository.findByUserId(customer.getId()).orElseThrow();
+        assertEquals(1, saved.getCartItems().size());
+        assertEquals(51, saved.getCartItems().get(0).getQuantity());
+        assertEquals(0, BigDecimal.valueOf(510_000).compareTo(saved.getTotalPrice()));
+        assertEquals(saved.getId(), cartService.getCartByUserId(customer.getId()).getBody().getData().getId());
+    }
+
+    @Test
+    void flushMirrorsAddsRemovalsAndDecrements() {
+        add(books.get(0), 2);
+        add(books.get(1), 1);
+        add(books.get(2), 3);
+        cartWriteBehind.flushPending();
+
+        add(books.get(2), -3);
+        add(books.get(3), 4);
+        add(books.get(0), 1);
+        RemoveCartItemRequest remove = new RemoveCartItemRequest();
+        remove.setUserId(customer.getId());
+        remove.setBookId(books.get(1).getId());
+        cartService.removeCartItem(remove);
+        cartWriteBehind.flushPending();
+        entityManager.flush();
+        entityManager.clear();
+
+        Cart saved = cartRepository.findByUserId(customer.getId()).orElseThrow();
+        Map<Long, Integer> quantities = saved.getCartItems().stream()
+                .collect(Collectors.toMap(item -> item.getBook().getId(), CartItem::getQuantity));
+        assertEquals(Map.of(books.get(0).getId(), 3, books.get(3).getId(), 4), quantities);
+        // 3 x 10.000 + 4 x 40.000
+        assertEquals(0, BigDecimal.valueOf(190_000).compareTo(saved.getTotalPrice()));
+    }
+
+    @Test
+    void multiItemAddLoadsOnlyNewBooksInOneQueryAndKeepsTotalIncremental() {
+        add(books.get(0), 1);
+        statistics.clear();
+
+        // Sách 0 đã có giá cache; 1..4 được nạp chung một truy vấn
+        CreateCartRequest request = new CreateCartRequest();
+        request.setUserId(customer.getId());
+        request.setCartItems(new ArrayList<>());
+        for (Book book : books) {
+            CreateCartRequest.CartItemRequest item = new CreateCartRequest.CartItemRequest();
+            item.setBookId(book.getId());
+            item.setQuantity(2);
+            request.getCartItems().add(item);
+        }
+        cartService.addCartItem(request);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        add(books.get(4), -2);
+        add(books.get(1), 1);
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // 3 x 10.000 + 3 x 20.000 + 2 x 30.000 + 2 x 40.000
+        CartDTO cart = cartService.getCartByUserId(customer.getId()).getBody().getData();
+        assertEquals(4, cart.getCartItems().size());
+        assertEquals(0, BigDecimal.valueOf(230_000).compareTo(cart.getTotalPrice()));
+    }
+
+    @Test
+    void priceChangeRepricesOnlyCartsHoldingTheBook() {
+        add(books.get(0), 2);
+        add(books.get(1), 1);
+        cartWriteBehind.flushPending();
+
+        Book book = entityManager.find(Book.class, books.get(1).getId());
+        book.setPrice(BigDecimal.valueOf(25_000));
+        entityManager.flush();
+        cartRepricer.onPriceChanged(new BookPriceChangedEvent(List.of(book.getId(), books.get(4).getId())));
+
+        assertEquals(1, cartRepricer.repricePending());
+        assertEquals(0, cartRepricer.repricePending());
+
+        // 2 x 10.000 + 1 x 25.000
+        CartDTO cart = cartService.getCartByUserId(customer.getId()).getBody().getData();
+        assertEquals(0, BigDecimal.valueOf(45_000).compareTo(cart.getTotalPrice()));
+        assertEquals(0, BigDecimal.valueOf(25_000).compareTo(cart.getCartItems().get(1).getPrice()));
+
+        assertEquals(1, cartWriteBehind.flushPending());
+        entityManager.flush();
+        entityManager.clear();
+        Cart saved = cartRepository.findByUserId(customer.getId()).orElseThrow();
+        assertEquals(0, BigDecimal.valueOf(45_000).compareTo(saved.getTotalPrice()));
+    }
+
+    private void add(Book book, int quantity) {
+        CreateCartRequest.CartItemRequest item = new CreateCartRequest.CartItemRequest();
+        item.setBookId(book.getId());
+        item.setQuantity(quantity);
+        CreateCartRequest request = new CreateCartRequest();
+        request.setUserId(customer.getId());
+        request.setCartItems(List.of(item));
+        cartService.addCartItem(request);
+    }
+}
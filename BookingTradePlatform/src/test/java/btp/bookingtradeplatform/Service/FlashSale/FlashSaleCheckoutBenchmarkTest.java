@@ -0,0 +1,234 @@
+package btp.bookingtradeplatform.Service.FlashSale;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Entity.Seller;
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Model.Request.FlashSaleRequest;
+import btp.bookingtradeplatform.Repository.*;
+import btp.bookingtradeplatform.Service.OrderService;
+import btp.bookingtradeplatform.Support.Benchmarks;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Flash sale không bán vượt quota và hoàn đúng phần đã lấy khi rollback/huỷ/đóng.
+ * Phép so sánh thông lượng checkout (tạo đơn + thanh toán) trên một cuốn sách "nóng" giữa đường DB
+ * (UPDATE dòng book mỗi lần giữ/chốt) và flash sale (bộ đếm + đồng bộ theo lô) gắn tag benchmark,
+ * chỉ chạy với -Pbenchmark.
+ */
+@Slf4j
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ServiceTestConfig.class)
+class FlashSaleCheckoutBenchmarkTest {
+
+    private static final int THREADS = 16;
+    private static final int CHECKOUTS_PER_THREAD = 50;
+    private static final int TOTAL = THREADS * CHECKOUTS_PER_THREAD;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private FlashSaleCounter counter;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Seller seller;
+    private Long customerId;
+
+    @BeforeEach
+    void setUp() {
+        seller = sellerRepository.save(TestData.seller("seller"));
+        customerId = customerRepository.save(TestData.customer("customer")).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        counter.activeBooks().forEach(counter::close);
+        flashSaleService.reconcile();
+        jdbcTemplate.update("DELETE FROM outbox_event");
+        jdbcTemplate.update("DELETE FROM seller_order");
+        jdbcTemplate.update("DELETE FROM order_items");
+        orderRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+        customerRepository.deleteAllInBatch();
+        sellerRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    void checkoutThroughputAgainstDbPath() throws Exception {
+        Long dbBook = book("DB path", TOTAL);
+        double dbMs = run(dbBook, TOTAL);
+        report("db", dbMs);
+
+        Long flashBook = book("Flash sale", TOTAL);
+        flashSaleService.open(flashBook, new FlashSaleRequest(TOTAL));
+        double flashMs = run(flashBook, TOTAL);
+        report("flash", flashMs);
+
+        // Lịch đồng bộ có thể đã chạy vài lần trong lúc bán; lần cuối gom phần còn lại
+        flashSaleService.reconcile();
+        assertSold(dbBook, TOTAL, 0);
+        assertSold(flashBook, TOTAL, 0);
+        assertEquals(0, counter.remaining(flashBook));
+    }
+
+    @Test
+    void flashSaleNeverOversellsAndReturnsUnsoldStockOnClose() throws Exception {
+        Long bookId = book("Quota", 60);
+        flashSaleService.open(bookId, new FlashSaleRequest(50));
+        assertEquals(10, bookRepository.findById(bookId).orElseThrow().getAvailable());
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        concurrently(10, () -> {
+            try {
+                checkout(bookId);
+                sold.incrementAndGet();
+            } catch (BusinessException e) {
+                if (e.getAppException() != AppException.OUT_OF_STOCK) throw e;
+                outOfStock.incrementAndGet();
+            }
+        });
+        assertEquals(50, sold.get());
+        assertEquals(THREADS * 10 - 50, outOfStock.get());
+
+        flashSaleService.close(bookId);
+        assertSold(bookId, 50, 10);
+    }
+
+    @Test
+    void rollbackAndCancelReturnUnitsToCounter() {
+        Long bookId = book("Flash", 10);
+        Long scarce = book("Scarce", 0);
+        flashSaleService.open(bookId, new FlashSaleRequest(5));
+
+        // Sách kia thiếu hàng: cả đơn rollback và phần đã lấy từ bộ đếm được hoàn lại
+        BusinessException e = assertThrows(BusinessException.class, () ->
+                orderService.createOrder(new CreateOrderRequest(customerId, List.of(
+                        new CreateOrderRequest.OrderItemRequest(bookId, 2, null),
+                        new CreateOrderRequest.OrderItemRequest(scarce, 1, null)))));
+        assertEquals(AppException.OUT_OF_STOCK, e.getAppException());
+        assertEquals(5, counter.remaining(bookId));
+
+        Long orderId = createOrder(bookId, 3);
+        assertEquals(2, counter.remaining(bookId));
+        orderService.CancelOrder(orderId);
+        assertEquals(5, counter.remaining(bookId));
+
+        // Đơn còn giữ hàng khi flash sale đóng được nhả trên DB
+        Long pending = createOrder(bookId, 4);
+        flashSaleService.close(bookId);
+        assertEquals(1, bookRepository.findById(bookId).orElseThrow().getReserved() - 3);
+        orderService.CancelOrder(pending);
+        Book after = bookRepository.findById(bookId).orElseThrow();
+        assertEquals(0, after.getReserved());
+        assertEquals(10, after.getStock());
+    }
+
+    private double run(Long bookId, int expected) throws Exception {
+        AtomicInteger done = new AtomicInteger();
+        long start = System.nanoTime();
+        concurrently(CHECKOUTS_PER_THREAD, () -> {
+            checkout(bookId);
+            done.incrementAndGet();
+        });
+        double ms = (System.nanoTime() - start) / 1_000_000.0;
+        assertEquals(expected, done.get());
+        return ms;
+    }
+
+    private void concurrently(int perThread, Runnable task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get(120, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Tạo đơn rồi thanh toán, mỗi bước một transaction như luồng thật
+    private void checkout(Long bookId) {
+        Long orderId = createOrder(bookId, 1);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                orderService.decreaseStockForOrder(orderRepository.findById(orderId).orElseThrow()));
+    }
+
+    private Long createOrder(Long bookId, int quantity) {
+        return orderService.createOrder(new CreateOrderRequest(customerId, List.of(
+                new CreateOrderRequest.OrderItemRequest(bookId, quantity, null)))).getBody().getData().getId();
+    }
+
+    private void assertSold(Long bookId, int sold, int stock) {
+        Book after = bookRepository.findById(bookId).orElseThrow();
+        assertEquals(stock, after.getStock());
+        assertEquals(sold, after.getSoldCount());
+        assertEquals(0, after.getReserved());
+    }
+
+    private void report(String mode, double ms) {
+        log.info("checkout mode={} orders={} time={} ms throughput={} orders/s",
+                mode, TOTAL, String.format("%.1f", ms), String.format("%.1f", TOTAL * 1000.0 / ms));
+    }
+
+    private Long book(String title, int stock) {
+        return bookRepository.save(TestData.book(title, 50_000, stock, seller)).getId();
+    }
+}
@@ -0,0 +1,146 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.Response.ResponseData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Idempotency-Key trên một Redis giả trong bộ nhớ; hai script Lua được mô phỏng bằng
+ * remove/replace có điều kiện của ConcurrentHashMap (cũng nguyên tử như script).
+ */
+class IdempotencyServiceTest {
+
+    private static final String SCOPE = "orders:create";
+    private static final String KEY = "key-1";
+
+    private final Map<String, String> store = new ConcurrentHashMap<>();
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(i -> store.putIfAbsent(i.getArgument(0), i.getArgument(1)) == null);
+        when(values.get(anyString())).thenAnswer(i -> store.get(i.<String>getArgument(0)));
+        when(redisTemplate.execute(same(IdempotencyService.RELEASE), anyList(), any(Object[].class)))
+                .thenAnswer(i -> store.remove(i.<List<String>>getArgument(1).get(0), i.getArgument(2)) ? 1L : 0L);
+        when(redisTemplate.execute(same(IdempotencyService.COMPLETE), anyList(), any(Object[].class)))
+                .thenAnswer(i -> store.replace(i.<List<String>>getArgument(1).get(0), i.getArgument(2), i.getArgument(3)) ? 1L : 0L);
+
+        service = new IdempotencyService(redisTemplate, new ObjectMapper(), 24, 5);
+    }
+
+    @Test
+    void completedResponseIsReplayedWithoutRunningAgain() {
+        ResponseEntity<ResponseData<String>> first = call(Map.of("bookId", 1), () -> ok("order-1"));
+        ResponseEntity<ResponseData<String>> second = call(Map.of("bookId", 1), () -> ok("order-2"));
+
+        assertEquals(1, executions.get());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(200, second.getStatusCode().value());
+        assertEquals("order-1", second.getBody().getData());
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForTheFirstResponse() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<ResponseData<String>>> first = pool.submit(() -> call(Map.of("bookId", 1), () -> {
+                started.countDown();
+                await(finish);
+                return ok("order-1");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<ResponseData<String>>> duplicate = pool.submit(() ->
+                    call(Map.of("bookId", 1), () -> ok("order-2")));
+
+            // Bản trùng phải chờ, không tự chạy
+            assertThrows(TimeoutException.class, () -> duplicate.get(200, TimeUnit.MILLISECONDS));
+            finish.countDown();
+
+            assertEquals("order-1", first.get(5, TimeUnit.SECONDS).getBody().getData());
+            ResponseEntity<ResponseData<String>> replayed = duplicate.get(5, TimeUnit.SECONDS);
+            assertEquals("order-1", replayed.getBody().getData());
+            assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+            assertEquals(1, executions.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejected() {
+        call(Map.of("bookId", 1), () -> ok("order-1"));
+
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> call(Map.of("bookId", 2), () -> ok("order-2")));
+        assertEquals(AppException.IDEMPOTENCY_KEY_REUSED, e.getAppException());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void failureReleasesOnlyItsOwnLock() {
+        assertThrows(IllegalStateException.class, () -> call(Map.of("bookId", 1), () -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertTrue(store.isEmpty());
+
+        // Client thử lại với cùng key thì chạy lại
+        assertEquals("order-1", call(Map.of("bookId", 1), () -> ok("order-1")).getBody().getData());
+        assertEquals(2, executions.get());
+
+        // Request chạy quá hạn khoá: request khác đã giữ key, lỗi của request cũ không được xoá khoá đó
+        store.clear();
+        assertThrows(IllegalStateException.class, () -> call(Map.of("bookId", 1), () -> {
+            store.replaceAll((k, v) -> "{\"fingerprint\":\"other\",\"token\":\"t2\",\"status\":0}");
+            throw new IllegalStateException("slow request failed");
+        }));
+        assertEquals(1, store.size());
+        assertTrue(store.values().iterator().next().contains("\"t2\""));
+    }
+
+    private ResponseEntity<ResponseData<String>> call(Object request,
+                                                      Supplier<ResponseEntity<ResponseData<String>>> action) {
+        return service.execute(SCOPE, KEY, request, String.class, () -> {
+            executions.incrementAndGet();
+            return action.get();
+        });
+    }
+
+    private static ResponseEntity<ResponseData<String>> ok(String data) {
+        return ResponseEntity.ok(new ResponseData<>(AppException.SUCCESS.getCode(), "ok", data));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
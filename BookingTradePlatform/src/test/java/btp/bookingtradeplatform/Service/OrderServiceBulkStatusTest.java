@@ -0,0 +1,238 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.DTO.BulkOrderStatusDTO;
+import btp.bookingtradeplatform.Model.DTO.OrderTransitionDTO;
+import btp.bookingtradeplatform.Model.Entity.*;
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import btp.bookingtradeplatform.Model.Enum.TransitionOutcome;
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Model.UpdateRequest.BulkUpdateOrderStatus;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import btp.bookingtradeplatform.Repository.OrderRepository;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chuyển trạng thái hàng loạt: kiểm tra máy trạng thái, phạm vi seller, nhả giữ hàng hoặc hoàn kho khi huỷ
+ * và số truy vấn chỉ tăng theo số lô chứ không theo số đơn.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ServiceTestConfig.class)
+class OrderServiceBulkStatusTest {
+
+    private static final int ORDERS = 2_000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Customer customer;
+    private Seller seller;
+    private Seller otherSeller;
+    private Book book;
+    private Book otherBook;
+
+    @BeforeEach
+    void setUp() {
+        customer = TestData.customer("customer");
+        entityManager.persist(customer);
+
+        seller = seller("seller");
+        otherSeller = seller("other");
+        book = book(seller);
+        otherBook = book(otherSeller);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shipsThousandsOfOrdersWithPerChunkQueries() {
+        List<Long> ids = seedConfirmedOrders(book, ORDERS);
+        Long foreign = createOrders(otherBook, 1).get(0);
+
+        List<Long> requested = new ArrayList<>(ids);
+        requested.add(foreign);
+        requested.add(-1L);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        BulkOrderStatusDTO result = orderService.bulkUpdateOrderStatus(seller.getId(),
+                new BulkUpdateOrderStatus(OrderStatus.SHIPPING, requested)).getBody().getData();
+        entityManager.flush();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(ORDERS, result.getApplied());
+        assertEquals(2, result.getRejected());
+        assertEquals(requested.size(), result.getResults().size());
+        assertEquals(TransitionOutcome.NOT_FOUND, result.getResults().get(ORDERS).getOutcome());
+        assertEquals(TransitionOutcome.NOT_FOUND, result.getResults().get(ORDERS + 1).getOutcome());
+
+        // mỗi lô: khoá + update orders + update seller_order + nạp đơn + nạp item
+        int chunks = (requested.size() + 499) / 500;
+        assertTrue(statements <= chunks * 5L, "statements=" + statements);
+        assertEquals(ORDERS, count("SELECT COUNT(*) FROM orders WHERE status = 'SHIPPING'"));
+        assertEquals(ORDERS, count("SELECT COUNT(*) FROM seller_order WHERE status = 'SHIPPING'"));
+        assertEquals(ORDERS, count("SELECT COUNT(*) FROM outbox_event WHERE event_type = 'ORDER_STATUS_CHANGED'"));
+
+        // Gửi lại cùng yêu cầu không đổi gì thêm
+        BulkOrderStatusDTO again = orderService.bulkUpdateOrderStatus(seller.getId(),
+                new BulkUpdateOrderStatus(OrderStatus.SHIPPING, ids)).getBody().getData();
+        assertEquals(0, again.getApplied());
+        assertTrue(again.getResults().stream().allMatch(r -> r.getOutcome() == TransitionOutcome.UNCHANGED));
+    }
+
+    @Test
+    void cancelReleasesHeldStockRestocksPaidOrdersAndRejectsInvalidTransitions() {
+        List<Long> pending = createOrders(book, 3);
+        List<Long> paid = createOrders(book, 2);
+        pay(paid);
+        Long delivered = createOrders(book, 1).get(0);
+        confirm(List.of(delivered));
+        jdbcTemplate.update("UPDATE orders SET status = 'DELIVERED' WHERE id = ?", delivered);
+        entityManager.clear();
+        Book before = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals(4, before.getReserved());
+        assertEquals(2, before.getSoldCount());
+        entityManager.clear();
+
+        List<Long> requested = new ArrayList<>(pending);
+        requested.addAll(paid);
+        requested.add(delivered);
+        List<OrderTransitionDTO> results = orderService.bulkUpdateOrderStatus(seller.getId(),
+                new BulkUpdateOrderStatus(OrderStatus.CANCELLED, requested)).getBody().getData().getResults();
+
+        assertEquals(TransitionOutcome.APPLIED, results.get(0).getOutcome());
+        assertEquals(TransitionOutcome.APPLIED, results.get(3).getOutcome());
+        assertEquals(OrderStatus.CONFIRMED, results.get(3).getPreviousStatus());
+        assertEquals(TransitionOutcome.INVALID_TRANSITION, results.get(5).getOutcome());
+
+        entityManager.clear();
+        Book reloaded = bookRepository.findById(book.getId()).orElseThrow();
+        // còn lại phần giữ của đơn DELIVERED (được đánh dấu thẳng trong test); hai đơn đã trả được hoàn kho
+        assertEquals(1, reloaded.getReserved());
+        assertEquals(before.getStock() + 2, reloaded.getStock());
+        assertEquals(0, reloaded.getSoldCount());
+        assertEquals(0, count("SELECT COUNT(*) FROM orders WHERE reserved_until IS NOT NULL AND status = 'CANCELLED'"));
+        assertEquals(5, count("SELECT COUNT(*) FROM outbox_event WHERE event_type = 'ORDER_CANCELLED'"));
+
+        List<OrderTransitionDTO> shipped = orderService.bulkUpdateOrderStatus(seller.getId(),
+                new BulkUpdateOrderStatus(OrderStatus.SHIPPING, paid)).getBody().getData().getResults();
+        assertEquals(TransitionOutcome.INVALID_TRANSITION, shipped.get(0).getOutcome());
+    }
+
+    @Test
+    void rejectsConfirmationAndEmptyRequests() {
+        assertThrows(BusinessException.class, () -> orderService.bulkUpdateOrderStatus(seller.getId(),
+                new BulkUpdateOrderStatus(OrderStatus.CONFIRMED, List.of(1L))));
+        assertThrows(BusinessException.class, () -> orderService.bulkUpdateOrderStatus(seller.getId(),
+                new BulkUpdateOrderStatus(OrderStatus.SHIPPING, List.of())));
+    }
+
+    private List<Long> createOrders(Book target, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(orderService.createOrder(new CreateOrderRequest(customer.getId(), List.of(
+                    new CreateOrderRequest.OrderItemRequest(target.getId(), 1, null)))).getBody().getData().getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return ids;
+    }
+
+    /**
+     * Chèn thẳng bằng JDBC các đơn CONFIRMED một item (kèm seller_order) thay vì đi qua createOrder:
+     * test chỉ đo phần chuyển trạng thái, còn tạo từng đơn qua service làm test chậm hàng chục giây.
+     */
+    private List<Long> seedConfirmedOrders(Book target, int count) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("INSERT INTO orders (transaction_id, order_date, total_price, status, customer_id, paid) " +
+                        "VALUES (?, ?, ?, 'CONFIRMED', ?, TRUE)",
+                IntStream.range(0, count)
+                        .mapToObj(i -> new Object[]{"seed-" + i, now, target.getPrice(), customer.getId()})
+                        .toList());
+        jdbcTemplate.update("INSERT INTO order_items (order_id, book_id, seller_id, seller_name, book_title, " +
+                        "book_price, quantity, discount_amount, total_amount) " +
+                        "SELECT o.id, ?, ?, ?, ?, o.total_price, 1, 0, o.total_price FROM orders o " +
+                        "WHERE o.transaction_id LIKE 'seed-%'",
+                target.getId(), target.getSeller().getId(), target.getSeller().getUsername(), target.getTitle());
+        jdbcTemplate.update("INSERT INTO seller_order (seller_id, order_id, status, order_date, item_count, subtotal) " +
+                "SELECT ?, o.id, o.status, o.order_date, 1, o.total_price FROM orders o " +
+                "WHERE o.transaction_id LIKE 'seed-%'", target.getSeller().getId());
+        return jdbcTemplate.queryForList("SELECT id FROM orders WHERE transaction_id LIKE 'seed-%' ORDER BY id",
+                Long.class);
+    }
+
+    // Giả lập thanh toán xong, chỉ đổi trạng thái
+    private void confirm(List<Long> ids) {
+        for (Long id : ids) {
+            jdbcTemplate.update("UPDATE orders SET status = 'CONFIRMED' WHERE id = ?", id);
+            jdbcTemplate.update("UPDATE seller_order SET status = 'CONFIRMED' WHERE order_id = ?", id);
+        }
+    }
+
+    // Thanh toán như PaymentService: chốt phần giữ thành đã bán rồi xác nhận đơn
+    private void pay(List<Long> ids) {
+        for (Long id : ids) {
+            Order order = orderRepository.findById(id).orElseThrow();
+            orderService.decreaseStockForOrder(order);
+            orderService.changeStatus(order, OrderStatus.CONFIRMED);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    private Seller seller(String name) {
+        Seller s = TestData.seller(name);
+        entityManager.persist(s);
+        return s;
+    }
+
+    private Book book(Seller owner) {
+        Book b = TestData.book("Book of " + owner.getUsername(), 50_000, 10_000, owner);
+        entityManager.persist(b);
+        return b;
+    }
+}
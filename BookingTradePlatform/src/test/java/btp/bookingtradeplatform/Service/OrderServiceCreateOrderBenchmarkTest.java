@@ -0,0 +1,110 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Model.DTO.OrderDTO;
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Repository.OrderRepository;
+import btp.bookingtradeplatform.Support.Benchmarks;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Số truy vấn Hibernate khi tạo đơn không tăng theo số item.
+ * Phần đo độ trễ gắn tag benchmark, chỉ chạy với -Pbenchmark.
+ */
+@Slf4j
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ServiceTestConfig.class)
+class OrderServiceCreateOrderBenchmarkTest {
+
+    private static final int[] ITEM_COUNTS = {1, 10, 30, 100};
+
+    // customer + sách (kèm seller) + mã giảm giá + insert order + insert outbox; giữ hàng và item đi bằng JDBC batch
+    private static final long STATEMENTS = 5;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Statistics statistics;
+    private TestData.Catalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        catalog = TestData.Catalog.persist(entityManager, 100);
+    }
+
+    @Test
+    void queryCountIsIndependentOfItemCount() {
+        for (int items : ITEM_COUNTS) {
+            statistics.clear();
+            OrderDTO dto = orderService.createOrder(request(items)).getBody().getData();
+
+            assertEquals(STATEMENTS, statistics.getPrepareStatementCount(), "Hibernate statements for " + items + " items");
+            assertEquals(items, dto.getCartItems().size());
+
+            entityManager.flush();
+            entityManager.clear();
+            assertEquals(items, orderRepository.findById(dto.getId()).orElseThrow().getOrderItems().size());
+            entityManager.clear();
+        }
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    void latencyByItemCount() {
+        for (int items : ITEM_COUNTS) {
+            CreateOrderRequest request = request(items);
+            double avgMs = Benchmarks.averageMillis(statistics::clear, () -> createAndClear(request));
+
+            assertEquals(STATEMENTS, statistics.getPrepareStatementCount(), "Hibernate statements for " + items + " items");
+            log.info("createOrder items={} avg={} ms", items, String.format("%.3f", avgMs));
+        }
+    }
+
+    private void createAndClear(CreateOrderRequest request) {
+        orderService.createOrder(request);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private CreateOrderRequest request(int items) {
+        List<Book> books = catalog.books();
+        List<CreateOrderRequest.OrderItemRequest> lines = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            lines.add(new CreateOrderRequest.OrderItemRequest(books.get(i).getId(), 1 + i % 3,
+                    i % 2 == 0 ? TestData.DISCOUNT_CODE : null));
+        }
+        return new CreateOrderRequest(catalog.customer().getId(), lines);
+    }
+}
@@ -0,0 +1,211 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.DTO.OrderDTO;
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Entity.Customer;
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Model.Request.OrderHistoryRequest;
+import btp.bookingtradeplatform.Model.Response.CursorPage;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lịch sử đơn của khách: keyset (orderDate, id) mới nhất trước, lọc trạng thái,
+ * và mỗi trang đúng 2 truy vấn (trang đơn + item của cả trang) dù trang có bao nhiêu đơn.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ServiceTestConfig.class)
+class OrderServiceOrderHistoryTest {
+
+    private static final int ORDERS = 25;
+    private static final int PAGE_SIZE = 10;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private TestData.Catalog catalog;
+
+    // orderId -> số item, theo thứ tự tạo
+    private final Map<Long, Integer> itemCounts = new LinkedHashMap<>();
+    private final Map<Long, LocalDateTime> orderDates = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        catalog = TestData.Catalog.persist(entityManager, 5);
+
+        for (int i = 0; i < ORDERS; i++) {
+            Long id = createOrder(catalog.customer(), 1 + i % 3);
+            // Từng cặp đơn trùng orderDate để trang phải tách theo id
+            LocalDateTime date = START.plusMinutes(i / 2);
+            jdbcTemplate.update("UPDATE orders SET order_date = ? WHERE id = ?", date, id);
+            itemCounts.put(id, 1 + i % 3);
+            orderDates.put(id, date);
+        }
+
+        // Đơn của khách khác không được lẫn vào
+        Customer other = TestData.customer("other");
+        entityManager.persist(other);
+        createOrder(other, 1);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void pagesNewestFirstWithTwoQueriesPerPage() {
+        List<OrderDTO> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            entityManager.clear();
+            statistics.clear();
+            CursorPage<OrderDTO> page = history(cursor, null);
+
+            assertEquals(2, statistics.getPrepareStatementCount(), "statements for page " + pages);
+            assertTrue(page.getItems().size() <= PAGE_SIZE);
+            assertEquals(page.isHasMore(), page.getNextCursor() != null);
+            all.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(expectedOrder(itemCounts.keySet()), all.stream().map(OrderDTO::getId).toList());
+        for (OrderDTO dto : all) {
+            assertEquals(catalog.customer().getId(), dto.getCustomerId());
+            assertEquals(itemCounts.get(dto.getId()), dto.getCartItems().size(), "items of order " + dto.getId());
+            assertEquals(orderDates.get(dto.getId()), dto.getOrderDate());
+        }
+    }
+
+    @Test
+    void filtersByStatusAcrossPages() {
+        List<Long> ids = new ArrayList<>(itemCounts.keySet());
+        Set<Long> cancelled = new HashSet<>();
+        Set<Long> shipping = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (i % 3 == 0) cancelled.add(ids.get(i));
+            else if (i % 3 == 1) shipping.add(ids.get(i));
+        }
+        setStatus(cancelled, OrderStatus.CANCELLED);
+        setStatus(shipping, OrderStatus.SHIPPING);
+
+        assertEquals(expectedOrder(cancelled), pageAll(List.of(OrderStatus.CANCELLED)));
+
+        Set<Long> either = new HashSet<>(cancelled);
+        either.addAll(shipping);
+        assertEquals(expectedOrder(either), pageAll(List.of(OrderStatus.CANCELLED, OrderStatus.SHIPPING)));
+
+        assertTrue(pageAll(List.of(OrderStatus.DELIVERED)).isEmpty());
+    }
+
+    @Test
+    void cursorEncodesLastKeyAndReplaysTheSamePage() {
+        CursorPage<OrderDTO> first = history(null, null);
+        OrderDTO last = first.getItems().get(first.getItems().size() - 1);
+
+        String[] keys = CursorPage.decodeCursor(first.getNextCursor(), 2);
+        assertEquals(last.getOrderDate(), LocalDateTime.parse(keys[0]));
+        assertEquals(last.getId(), Long.parseLong(keys[1]));
+
+        // Cursor không trạng thái: gửi lại cho đúng trang đó
+        List<Long> second = history(first.getNextCursor(), null).getItems().stream().map(OrderDTO::getId).toList();
+        assertEquals(second, history(first.getNextCursor(), null).getItems().stream().map(OrderDTO::getId).toList());
+        assertFalse(second.contains(last.getId()));
+
+        assertEquals(first.getItems().stream().map(OrderDTO::getId).toList(),
+                history(" ", null).getItems().stream().map(OrderDTO::getId).toList());
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        for (String cursor : List.of("not-base64!", CursorPage.encodeCursor(1L),
+                CursorPage.encodeCursor("yesterday", 5L), CursorPage.encodeCursor(START, "x"))) {
+            BusinessException e = assertThrows(BusinessException.class, () -> history(cursor, null));
+            assertEquals(AppException.INVALID_CURSOR, e.getAppException(), cursor);
+        }
+    }
+
+    private List<Long> pageAll(List<OrderStatus> statuses) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            entityManager.clear();
+            statistics.clear();
+            CursorPage<OrderDTO> page = history(cursor, statuses);
+            // Trang rỗng không cần truy vấn item
+            assertEquals(page.getItems().isEmpty() ? 1 : 2, statistics.getPrepareStatementCount());
+            for (OrderDTO dto : page.getItems()) {
+                assertTrue(statuses.contains(dto.getStatus()));
+                ids.add(dto.getId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    // Thứ tự mong đợi: orderDate giảm dần, trùng ngày thì id giảm dần
+    private List<Long> expectedOrder(Collection<Long> ids) {
+        return ids.stream()
+                .sorted(Comparator.comparing((Long id) -> orderDates.get(id)).thenComparing(id -> id).reversed())
+                .toList();
+    }
+
+    private CursorPage<OrderDTO> history(String cursor, List<OrderStatus> statuses) {
+        OrderHistoryRequest request = new OrderHistoryRequest();
+        request.setCursor(cursor);
+        request.setSize(PAGE_SIZE);
+        request.setStatuses(statuses);
+        return orderService.getOrderHistory(catalog.customer().getId(), request).getBody().getData();
+    }
+
+    private void setStatus(Collection<Long> ids, OrderStatus status) {
+        for (Long id : ids) {
+            jdbcTemplate.update("UPDATE orders SET status = ? WHERE id = ?", status.name(), id);
+        }
+    }
+
+    private Long createOrder(Customer customer, int items) {
+        List<CreateOrderRequest.OrderItemRequest> lines = new ArrayList<>();
+        List<Book> books = catalog.books();
+        for (int i = 0; i < items; i++) {
+            lines.add(new CreateOrderRequest.OrderItemRequest(books.get(i).getId(), 1, null));
+        }
+        return orderService.createOrder(new CreateOrderRequest(customer.getId(), lines)).getBody().getData().getId();
+    }
+}
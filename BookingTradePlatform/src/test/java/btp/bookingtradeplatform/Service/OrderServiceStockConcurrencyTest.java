@@ -0,0 +1,232 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.Entity.*;
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import btp.bookingtradeplatform.Repository.BookStockJdbcRepository;
+import btp.bookingtradeplatform.Repository.CustomerRepository;
+import btp.bookingtradeplatform.Repository.OrderRepository;
+import btp.bookingtradeplatform.Repository.SellerRepository;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nhiều luồng cùng trừ kho một cuốn sách: mỗi lần gọi là một transaction riêng (test không bọc transaction),
+ * nên kết quả phản ánh đúng tranh chấp khoá dòng trên DB.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ServiceTestConfig.class)
+class OrderServiceStockConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 25;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookStockJdbcRepository bookStockJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM outbox_event");
+        jdbcTemplate.update("DELETE FROM seller_order");
+        jdbcTemplate.update("DELETE FROM order_items");
+        orderRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+        customerRepository.deleteAllInBatch();
+        sellerRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        int initialStock = 100;
+        int quantity = 2;
+        Book book = bookRepository.save(book("Hot book", initialStock));
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        List<Throwable> unexpected = new CopyOnWriteArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                        try {
+                            orderService.decreaseStockForOrder(order(item(book.getId(), quantity)));
+                            sold.incrementAndGet();
+                        } catch (BusinessException e) {
+                            if (e.getAppException() == AppException.OUT_OF_STOCK) outOfStock.incrementAndGet();
+                            else unexpected.add(e);
+                        } catch (Throwable e) {
+                            unexpected.add(e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Book after = bookRepository.findById(book.getId()).orElseThrow();
+        assertTrue(unexpected.isEmpty(), () -> "Unexpected failures: " + unexpected);
+        assertEquals(THREADS * ORDERS_PER_THREAD, sold.get() + outOfStock.get());
+        assertEquals(initialStock / quantity, sold.get());
+        assertEquals(0, after.getStock());
+        assertEquals(initialStock, after.getSoldCount());
+    }
+
+    @Test
+    void partialShortageRollsBackWholeOrder() {
+        Book plenty = bookRepository.save(book("Plenty", 10));
+        Book scarce = bookRepository.save(book("Scarce", 1));
+
+        BusinessException e = assertThrows(BusinessException.class, () -> orderService.decreaseStockForOrder(
+                order(item(plenty.getId(), 3), item(scarce.getId(), 2))));
+        assertEquals(AppException.OUT_OF_STOCK, e.getAppException());
+
+        // Sách trừ trước (id nhỏ hơn) phải được hoàn lại cùng transaction
+        assertEquals(10, bookRepository.findById(plenty.getId()).orElseThrow().getStock());
+        assertEquals(1, bookRepository.findById(scarce.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void reverseRestoresStock() {
+        Book book = bookRepository.save(book("Returned", 5));
+        Order order = order(item(book.getId(), 2), item(book.getId(), 1));
+
+        orderService.decreaseStockForOrder(order);
+        assertEquals(2, bookRepository.findById(book.getId()).orElseThrow().getStock());
+
+        orderService.reverseStockForOrder(order);
+        Book after = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals(5, after.getStock());
+        assertEquals(0, after.getSoldCount());
+    }
+
+    @Test
+    void reservationHoldsStockUntilPaidOrExpired() {
+        Seller seller = sellerRepository.save(TestData.seller("seller"));
+        Long customerId = customerRepository.save(TestData.customer("customer")).getId();
+        Long bookId = bookRepository.save(TestData.book("Limited", 100_000, 3, seller)).getId();
+
+        Long paid = createOrder(customerId, bookId, 2);
+        assertEquals(1, bookRepository.findById(bookId).orElseThrow().getAvailable());
+
+        BusinessException e = assertThrows(BusinessException.class, () -> createOrder(customerId, bookId, 2));
+        assertEquals(AppException.OUT_OF_STOCK, e.getAppException());
+
+        Long expired = createOrder(customerId, bookId, 1);
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getAvailable());
+
+        // Chưa tới hạn thì không nhả; quá hạn thì nhả đúng một lần
+        orderService.expireReservation(expired);
+        assertEquals(0, bookRepository.findById(bookId).orElseThrow().getAvailable());
+        jdbcTemplate.update("UPDATE orders SET reserved_until = ? WHERE id = ?",
+                LocalDateTime.now().minusMinutes(1), expired);
+        orderService.expireReservation(expired);
+        orderService.expireReservation(expired);
+        assertEquals(1, bookRepository.findById(bookId).orElseThrow().getAvailable());
+
+        // Thanh toán chuyển phần giữ thành đã bán
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                orderService.decreaseStockForOrder(orderRepository.findById(paid).orElseThrow()));
+        Book after = bookRepository.findById(bookId).orElseThrow();
+        assertEquals(1, after.getStock());
+        assertEquals(0, after.getReserved());
+        assertEquals(2, after.getSoldCount());
+        assertNull(orderRepository.findById(paid).orElseThrow().getReservedUntil());
+    }
+
+    @Test
+    void nonPositiveQuantityCannotReleaseOtherHolds() {
+        Seller seller = sellerRepository.save(TestData.seller("seller"));
+        Long customerId = customerRepository.save(TestData.customer("customer")).getId();
+        Long bookId = bookRepository.save(TestData.book("Limited", 100_000, 3, seller)).getId();
+
+        createOrder(customerId, bookId, 2);
+        for (int quantity : new int[]{-5, 0}) {
+            BusinessException e = assertThrows(BusinessException.class, () -> createOrder(customerId, bookId, quantity));
+            assertEquals(AppException.BAD_REQUEST, e.getAppException());
+        }
+        // Chặn cả ở câu UPDATE giữ hàng
+        assertFalse(bookStockJdbcRepository.reserveAll(new TreeMap<>(Map.of(bookId, -5))));
+
+        Book after = bookRepository.findById(bookId).orElseThrow();
+        assertEquals(2, after.getReserved());
+        assertEquals(1, after.getAvailable());
+    }
+
+    private Long createOrder(Long customerId, Long bookId, int quantity) {
+        return orderService.createOrder(new CreateOrderRequest(customerId,
+                List.of(new CreateOrderRequest.OrderItemRequest(bookId, quantity, null)))).getBody().getData().getId();
+    }
+
+    private static Book book(String title, int stock) {
+        return TestData.book(title, 100_000, stock, null);
+    }
+
+    private static Order order(OrderItem... items) {
+        Order order = new Order();
+        order.setOrderItems(new ArrayList<>(List.of(items)));
+        return order;
+    }
+
+    private static OrderItem item(Long bookId, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setBookId(bookId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
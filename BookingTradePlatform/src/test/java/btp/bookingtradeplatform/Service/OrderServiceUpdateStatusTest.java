@@ -0,0 +1,168 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Exception.AppException;
+import btp.bookingtradeplatform.Exception.BusinessException;
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Entity.Order;
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Model.UpdateRequest.UpdateOrderStatus;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import btp.bookingtradeplatform.Repository.OrderRepository;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Đổi trạng thái một đơn: đi đúng máy trạng thái của OrderStatus, không nhận CONFIRMED,
+ * huỷ đơn còn giữ hàng thì nhả phần giữ, huỷ đơn đã thanh toán thì hoàn kho.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ServiceTestConfig.class)
+class OrderServiceUpdateStatusTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData.Catalog catalog;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        catalog = TestData.Catalog.persist(entityManager, 1);
+        book = catalog.books().get(0);
+    }
+
+    @Test
+    void rejectsTransitionsOutsideTheStateMachine() {
+        Long id = createOrder(2);
+
+        assertRejected(id, OrderStatus.SHIPPING, AppException.INVALID_ORDER_TRANSITION);
+        assertRejected(id, OrderStatus.DELIVERED, AppException.INVALID_ORDER_TRANSITION);
+        assertRejected(id, OrderStatus.PENDING, AppException.INVALID_ORDER_TRANSITION);
+        assertRejected(id, OrderStatus.CONFIRMED, AppException.BAD_REQUEST);
+        assertRejected(id, null, AppException.BAD_REQUEST);
+        assertEquals(OrderStatus.PENDING, statusOf(id));
+
+        setStatus(id, OrderStatus.DELIVERED);
+        assertRejected(id, OrderStatus.CANCELLED, AppException.INVALID_ORDER_TRANSITION);
+        assertRejected(id, OrderStatus.SHIPPING, AppException.INVALID_ORDER_TRANSITION);
+
+        setStatus(id, OrderStatus.CANCELLED);
+        assertRejected(id, OrderStatus.SHIPPING, AppException.INVALID_ORDER_TRANSITION);
+        assertRejected(id, OrderStatus.PENDING, AppException.INVALID_ORDER_TRANSITION);
+        assertEquals(OrderStatus.CANCELLED, statusOf(id));
+
+        assertRejected(-1L, OrderStatus.SHIPPING, AppException.NOT_FOUND);
+    }
+
+    @Test
+    void walksTheHappyPathAndUpdatesSellerOrder() {
+        Long id = pay(createOrder(1));
+
+        update(id, OrderStatus.SHIPPING);
+        update(id, OrderStatus.DELIVERED);
+
+        assertEquals(OrderStatus.DELIVERED, statusOf(id));
+        assertEquals("DELIVERED", jdbcTemplate.queryForObject(
+                "SELECT status FROM seller_order WHERE order_id = ?", String.class, id));
+    }
+
+    @Test
+    void cancellingPendingOrderReleasesTheHold() {
+        Long id = createOrder(3);
+        assertEquals(3, reload().getReserved());
+
+        update(id, OrderStatus.CANCELLED);
+
+        Book reloaded = reload();
+        assertEquals(0, reloaded.getReserved());
+        assertEquals(1000, reloaded.getStock());
+        assertEquals(0, reloaded.getSoldCount());
+    }
+
+    @Test
+    void cancellingConfirmedOrderRestocks() {
+        Long id = pay(createOrder(4));
+        Book paid = reload();
+        assertEquals(996, paid.getStock());
+        assertEquals(4, paid.getSoldCount());
+
+        update(id, OrderStatus.CANCELLED);
+
+        Book reloaded = reload();
+        assertEquals(1000, reloaded.getStock());
+        assertEquals(0, reloaded.getSoldCount());
+        assertEquals(0, reloaded.getReserved());
+        assertEquals(OrderStatus.CANCELLED, statusOf(id));
+    }
+
+    private void assertRejected(Long id, OrderStatus target, AppException expected) {
+        BusinessException e = assertThrows(BusinessException.class, () -> update(id, target));
+        assertEquals(expected, e.getAppException(), String.valueOf(target));
+        entityManager.clear();
+    }
+
+    private void update(Long id, OrderStatus target) {
+        orderService.updateOrderStatus(id, new UpdateOrderStatus(target));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // Thanh toán như PaymentService: chốt phần giữ thành đã bán rồi xác nhận đơn
+    private Long pay(Long id) {
+        Order order = orderRepository.findById(id).orElseThrow();
+        orderService.decreaseStockForOrder(order);
+        orderService.changeStatus(order, OrderStatus.CONFIRMED);
+        entityManager.flush();
+        entityManager.clear();
+        return id;
+    }
+
+    private Long createOrder(int quantity) {
+        Long id = orderService.createOrder(new CreateOrderRequest(catalog.customer().getId(), List.of(
+                new CreateOrderRequest.OrderItemRequest(book.getId(), quantity, null)))).getBody().getData().getId();
+        entityManager.flush();
+        entityManager.clear();
+        return id;
+    }
+
+    private void setStatus(Long id, OrderStatus status) {
+        jdbcTemplate.update("UPDATE orders SET status = ? WHERE id = ?", status.name(), id);
+    }
+
+    private OrderStatus statusOf(Long id) {
+        return OrderStatus.valueOf(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, id));
+    }
+
+    private Book reload() {
+        entityManager.clear();
+        return bookRepository.findById(book.getId()).orElseThrow();
+    }
+}
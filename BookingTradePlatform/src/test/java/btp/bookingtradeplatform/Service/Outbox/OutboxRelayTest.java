@@ -0,0 +1,105 @@
+package btp.bookingtradeplatform.Service.Outbox;
+
+import btp.bookingtradeplatform.Model.DTO.OrderDTO;
+import btp.bookingtradeplatform.Model.Entity.*;
+import btp.bookingtradeplatform.Model.Enum.OrderEventType;
+import btp.bookingtradeplatform.Model.Enum.OrderStatus;
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Model.UpdateRequest.UpdateOrderStatus;
+import btp.bookingtradeplatform.Repository.OutboxEventRepository;
+import btp.bookingtradeplatform.Service.OrderService;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sự kiện vòng đời đơn được ghi vào outbox cùng transaction và relay gửi ra broker giả theo đúng thứ tự.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ServiceTestConfig.class)
+class OutboxRelayTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private InMemoryOutboxBroker broker;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private Customer customer;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        broker.clear();
+        broker.setFailing(false);
+
+        customer = TestData.customer("customer");
+        entityManager.persist(customer);
+
+        Seller seller = TestData.seller("seller");
+        entityManager.persist(seller);
+
+        book = TestData.book("Outbox", 80_000, 10, seller);
+        entityManager.persist(book);
+        entityManager.flush();
+    }
+
+    @Test
+    void relaysOrderLifecycleInOrder() {
+        Long orderId = createOrder();
+        orderService.updateOrderStatus(orderId, new UpdateOrderStatus(OrderStatus.CANCELLED));
+        entityManager.flush();
+
+        assertEquals(2, outboxRelay.relayPending());
+        entityManager.clear();
+
+        List<OrderEventType> types = broker.getPublished(orderId).stream().map(OutboxEvent::getEventType).toList();
+        assertEquals(List.of(OrderEventType.ORDER_CREATED, OrderEventType.ORDER_STATUS_CHANGED), types);
+        assertTrue(outboxEventRepository.findAll().stream().allMatch(e -> e.getPublishedAt() != null));
+        assertTrue(broker.getPublished(orderId).get(0).getPayload().contains("\"transactionId\""));
+
+        // Lần chạy sau không gửi lại
+        assertEquals(0, outboxRelay.relayPending());
+        assertEquals(2, broker.getPublished(orderId).size());
+    }
+
+    @Test
+    void brokerFailureLeavesEventsUnpublished() {
+        Long orderId = createOrder();
+        broker.setFailing(true);
+
+        outboxRelay.relay();
+
+        assertTrue(broker.getPublished(orderId).isEmpty());
+        assertTrue(outboxEventRepository.findAll().stream().allMatch(e -> e.getPublishedAt() == null));
+    }
+
+    private Long createOrder() {
+        OrderDTO dto = orderService.createOrder(new CreateOrderRequest(customer.getId(),
+                List.of(new CreateOrderRequest.OrderItemRequest(book.getId(), 1, null)))).getBody().getData();
+        entityManager.flush();
+        return dto.getId();
+    }
+}
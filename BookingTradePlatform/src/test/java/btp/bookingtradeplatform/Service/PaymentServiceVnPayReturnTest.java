@@ -0,0 +1,106 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Model.Entity.Order;
+import btp.bookingtradeplatform.Model.Entity.Payment;
+import btp.bookingtradeplatform.Model.Enum.PaymentMethod;
+import btp.bookingtradeplatform.Model.Enum.PaymentStatus;
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Callback VNPay: thanh toán lỗi thì huỷ đơn và nhả phần giữ hàng ngay, giống callback MoMo.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ServiceTestConfig.class, PaymentService.class})
+class PaymentServiceVnPayReturnTest {
+
+    private static final String TXN_REF = "VNP-1";
+
+    @MockitoBean
+    private VnPayService vnPayService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData.Catalog catalog;
+    private Long orderId;
+
+    @BeforeEach
+    void setUp() {
+        catalog = TestData.Catalog.persist(entityManager, 1);
+        orderId = orderService.createOrder(new CreateOrderRequest(catalog.customer().getId(), List.of(
+                new CreateOrderRequest.OrderItemRequest(catalog.books().get(0).getId(), 2, null))))
+                .getBody().getData().getId();
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE orders SET transaction_id = ? WHERE id = ?", TXN_REF, orderId);
+        entityManager.clear();
+
+        Payment payment = new Payment();
+        payment.setOrder(entityManager.find(Order.class, orderId));
+        payment.setMethod(PaymentMethod.VNPAY);
+        payment.setStatus(PaymentStatus.PENDING);
+        payment.setAmount(BigDecimal.valueOf(100_000));
+        entityManager.persist(payment);
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(2, reserved());
+    }
+
+    @Test
+    void failedPaymentCancelsOrderAndReleasesTheHold() {
+        paymentService.handleVnPayReturn(Map.of("vnp_ResponseCode", "24", "vnp_TxnRef", TXN_REF));
+        entityManager.flush();
+
+        assertEquals(0, reserved());
+        assertEquals(1000, queryInt("SELECT stock FROM book WHERE id = ?", catalog.books().get(0).getId()));
+        assertEquals("CANCELLED", jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, orderId));
+        assertEquals("FAILED", jdbcTemplate.queryForObject("SELECT status FROM payment WHERE order_id = ?", String.class, orderId));
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM outbox_event WHERE event_type = 'PAYMENT_FAILED'"));
+    }
+
+    @Test
+    void successfulPaymentTurnsTheHoldIntoASale() {
+        paymentService.handleVnPayReturn(Map.of("vnp_ResponseCode", "00", "vnp_TxnRef", TXN_REF));
+        entityManager.flush();
+
+        assertEquals(0, reserved());
+        assertEquals(998, queryInt("SELECT stock FROM book WHERE id = ?", catalog.books().get(0).getId()));
+        assertEquals("SUCCESS", jdbcTemplate.queryForObject("SELECT status FROM payment WHERE order_id = ?", String.class, orderId));
+    }
+
+    private int reserved() {
+        return queryInt("SELECT reserved FROM book WHERE id = ?", catalog.books().get(0).getId());
+    }
+
+    private int queryInt(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+}
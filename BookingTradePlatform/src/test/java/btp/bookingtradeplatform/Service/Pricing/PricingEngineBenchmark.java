@@ -0,0 +1,77 @@
+package btp.bookingtradeplatform.Service.Pricing;
+
+import btp.bookingtradeplatform.Model.Entity.DiscountCode;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh tính tiền một đơn 30 dòng (xen kẽ giảm %, giảm cố định, không giảm)
+ * giữa chuỗi BigDecimal cũ của createOrder và PricingEngine.
+ * Được chạy bởi PricingEngineBenchmarkTest với mvn test -Pbenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PricingEngineBenchmark {
+
+    private static final int LINES = 30;
+
+    private BigDecimal[] prices;
+    private int[] quantities;
+    private DiscountCode[] codes;
+    private PricingEngine.Discount[] discounts;
+
+    @Setup
+    public void setUp() {
+        DiscountCode percent = code(true, new BigDecimal("12.5"));
+        DiscountCode fixed = code(false, BigDecimal.valueOf(20_000));
+        prices = new BigDecimal[LINES];
+        quantities = new int[LINES];
+        codes = new DiscountCode[LINES];
+        discounts = new PricingEngine.Discount[LINES];
+        for (int i = 0; i < LINES; i++) {
+            prices[i] = BigDecimal.valueOf(49_000 + i * 1_337L);
+            quantities[i] = 1 + i % 4;
+            codes[i] = i % 3 == 0 ? percent : i % 3 == 1 ? fixed : null;
+            discounts[i] = PricingEngine.Discount.of(codes[i]);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalPath() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < LINES; i++) {
+            BigDecimal subtotal = prices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            BigDecimal line = subtotal;
+            DiscountCode code = codes[i];
+            if (code != null) {
+                BigDecimal discount = code.isPercentage()
+                        ? subtotal.multiply(code.getDiscountAmount()).divide(BigDecimal.valueOf(100), 0, RoundingMode.HALF_UP)
+                        : code.getDiscountAmount();
+                line = subtotal.subtract(discount).max(BigDecimal.ZERO);
+            }
+            total = total.add(line);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long pricingEnginePath() {
+        long total = 0;
+        for (int i = 0; i < LINES; i++) {
+            long subtotal = PricingEngine.lineSubtotal(PricingEngine.toMinor(prices[i]), quantities[i]);
+            total = Math.addExact(total, subtotal - PricingEngine.discountOf(subtotal, discounts[i]));
+        }
+        return total;
+    }
+
+    private static DiscountCode code(boolean percentage, BigDecimal amount) {
+        DiscountCode code = new DiscountCode();
+        code.setPercentage(percentage);
+        code.setDiscountAmount(amount);
+        return code;
+    }
+}
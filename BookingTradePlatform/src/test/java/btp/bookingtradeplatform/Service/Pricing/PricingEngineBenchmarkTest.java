@@ -0,0 +1,62 @@
+package btp.bookingtradeplatform.Service.Pricing;
+
+import btp.bookingtradeplatform.Support.Benchmarks;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hai cách tính của PricingEngineBenchmark phải cho cùng tổng tiền.
+ * Phần chạy JMH gắn tag benchmark, chỉ chạy với -Pbenchmark (in-process, không fork, warmup ngắn).
+ */
+@Slf4j
+class PricingEngineBenchmarkTest {
+
+    @Test
+    void bothPathsAgree() {
+        PricingEngineBenchmark benchmark = new PricingEngineBenchmark();
+        benchmark.setUp();
+        assertEquals(benchmark.bigDecimalPath().longValueExact(), benchmark.pricingEnginePath());
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    void pricingEngineIsFasterThanBigDecimal() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(PricingEngineBenchmark.class.getName() + "\\.")
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(200))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.milliseconds(200))
+                .addProfiler("gc")
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Double> scores = new HashMap<>();
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            scores.put(benchmark.substring(benchmark.lastIndexOf('.') + 1), result.getPrimaryResult().getScore());
+            log.info("{} {} ns/op alloc={}", benchmark,
+                    String.format("%.1f", result.getPrimaryResult().getScore()),
+                    result.getSecondaryResults().containsKey("gc.alloc.rate.norm")
+                            ? String.format("%.0f B/op", result.getSecondaryResults().get("gc.alloc.rate.norm").getScore())
+                            : "n/a");
+        }
+
+        assertEquals(2, scores.size());
+        assertTrue(scores.get("pricingEnginePath") < scores.get("bigDecimalPath"), () -> "scores=" + scores);
+    }
+}
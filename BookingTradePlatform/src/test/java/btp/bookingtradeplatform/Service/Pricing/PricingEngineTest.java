@@ -0,0 +1,49 @@
+package btp.bookingtradeplatform.Service.Pricing;
+
+import btp.bookingtradeplatform.Model.Entity.DiscountCode;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PricingEngineTest {
+
+    @Test
+    void percentDiscountRoundsHalfUpToDong() {
+        // 33.33% của 10.001 = 3333.3333 -> 3333
+        assertEquals(3_333, PricingEngine.discountOf(10_001, PricingEngine.Discount.of(code(true, "33.33"))));
+        // 12.5% của 99.999 = 12499.875 -> 12500
+        assertEquals(12_500, PricingEngine.discountOf(99_999, PricingEngine.Discount.of(code(true, "12.5"))));
+        // 10% của 5 = 0.5 -> 1
+        assertEquals(1, PricingEngine.discountOf(5, PricingEngine.Discount.of(code(true, "10"))));
+    }
+
+    @Test
+    void discountNeverExceedsSubtotal() {
+        assertEquals(15_000, PricingEngine.discountOf(15_000, PricingEngine.Discount.of(code(false, "20000"))));
+        assertEquals(15_000, PricingEngine.discountOf(15_000, PricingEngine.Discount.of(code(true, "150"))));
+        assertEquals(0, PricingEngine.discountOf(15_000, PricingEngine.Discount.NONE));
+    }
+
+    @Test
+    void payableIsNeverNegativeAndNullMeansZero() {
+        assertEquals(0, PricingEngine.payable(BigDecimal.valueOf(10_000), BigDecimal.valueOf(12_000)));
+        assertEquals(10_000, PricingEngine.payable(BigDecimal.valueOf(10_000), null));
+        assertEquals(10_001, PricingEngine.payable(new BigDecimal("10000.5"), BigDecimal.ZERO));
+    }
+
+    @Test
+    void overflowIsRejected() {
+        assertThrows(ArithmeticException.class, () -> PricingEngine.lineSubtotal(Long.MAX_VALUE / 2, 3));
+        assertThrows(ArithmeticException.class, () -> PricingEngine.toVnPayAmount(Long.MAX_VALUE / 10));
+    }
+
+    private static DiscountCode code(boolean percentage, String amount) {
+        DiscountCode code = new DiscountCode();
+        code.setPercentage(percentage);
+        code.setDiscountAmount(new BigDecimal(amount));
+        return code;
+    }
+}
@@ -0,0 +1,82 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookChangeBroadcasterTest {
+
+    private RedisTemplate<String, String> redisTemplate;
+    private final List<String> applied = new CopyOnWriteArrayList<>();
+    private final List<String> threads = new CopyOnWriteArrayList<>();
+    private BookChangeBroadcaster broadcaster;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        BookIndexListener listener = event -> {
+            threads.add(Thread.currentThread().getName());
+            applied.add(event.getType() + ":" + event.getBookIds());
+        };
+        broadcaster = new BookChangeBroadcaster(redisTemplate, List.of(listener));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.stop();
+    }
+
+    @Test
+    void appliesOffTheCommittingThreadInOrder() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BookChangeBroadcaster slow = new BookChangeBroadcaster(redisTemplate, List.of(event -> {
+            await(release);
+            applied.add(event.getType() + ":" + event.getBookIds());
+        }));
+        try {
+            // Listener đang chặn không giữ luồng gọi lại
+            slow.onBookChanged(BookChangedEvent.upsert(1L));
+            slow.onBookChanged(BookChangedEvent.stock(List.of(1L)));
+            slow.onBookChanged(BookChangedEvent.delete(1L));
+            assertTrue(applied.isEmpty());
+            verify(redisTemplate, times(3)).convertAndSend(eq(BookChangeBroadcaster.CHANNEL), anyString());
+
+            release.countDown();
+            assertTrue(slow.awaitDispatched(5, TimeUnit.SECONDS));
+            assertEquals(List.of("UPSERT:[1]", "STOCK:[1]", "DELETE:[1]"), applied);
+        } finally {
+            slow.stop();
+        }
+    }
+
+    @Test
+    void reservationOnlyChangesAreNeitherAppliedNorBroadcast() throws InterruptedException {
+        broadcaster.onBookChanged(BookChangedEvent.reservation(List.of(1L, 2L)));
+        broadcaster.onBookChanged(BookChangedEvent.stock(List.of(3L)));
+        assertTrue(broadcaster.awaitDispatched(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("STOCK:[3]"), applied);
+        assertEquals(List.of("book-change-dispatcher"), threads);
+        verify(redisTemplate, times(1)).convertAndSend(eq(BookChangeBroadcaster.CHANNEL), anyString());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
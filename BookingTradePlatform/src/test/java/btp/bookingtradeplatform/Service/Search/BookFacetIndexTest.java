@@ -0,0 +1,100 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookFacetIndexTest {
+
+    private BookRepository bookRepository;
+    private BookFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.findFacetRowsAfter(eq(0L), any())).thenReturn(List.of(row(1, "vi"), row(2, "vi"), row(3, "en")));
+        when(bookRepository.findCategoryIdsByBookIdIn(anyCollection())).thenReturn(List.of());
+        index = new BookFacetIndex(bookRepository);
+        index.rebuild();
+    }
+
+    @Test
+    void deletedTailIsReclaimedAndNewBooksPageInIdOrder() {
+        index.onBookChanged(BookChangedEvent.delete(3L));
+        upsert(row(4, "en"));
+
+        BookFacetIndex.Result all = index.browse(Map.of(), null, 10);
+        assertEquals(List.of(1L, 2L, 4L), all.getBookIds());
+        assertEquals(List.of(2L, 4L), index.browse(Map.of(), 1L, 10).getBookIds());
+        assertEquals(1, count(all, BookFacetIndex.LANGUAGE, "en"));
+    }
+
+    @Test
+    void lateUpsertForDeletedBookRemovesIt() {
+        // Tin upsert đến sau khi sách đã bị xoá ở instance khác: không còn dòng trong DB
+        when(bookRepository.findFacetRowsByIdIn(anyCollection())).thenReturn(List.of());
+        index.onBookChanged(BookChangedEvent.upsert(2L));
+
+        BookFacetIndex.Result vi = index.browse(Map.of(BookFacetIndex.LANGUAGE, Set.of("vi")), null, 10);
+        assertEquals(List.of(1L), vi.getBookIds());
+        assertEquals(1, count(vi, BookFacetIndex.LANGUAGE, "vi"));
+    }
+
+    @Test
+    void reindexedTailKeepsItsOrdinal() {
+        index.onBookChanged(BookChangedEvent.delete(2L));
+        upsert(row(3, "vi"));
+
+        BookFacetIndex.Result vi = index.browse(Map.of(BookFacetIndex.LANGUAGE, Set.of("vi")), null, 10);
+        assertEquals(List.of(1L, 3L), vi.getBookIds());
+        assertEquals(2, vi.getTotal());
+    }
+
+    @Test
+    void changesArrivingDuringRebuildSurviveTheSwap() {
+        // Snapshot của rebuild đọc trước khi sách 2 đổi sang "en" và sách 3 bị xoá
+        when(bookRepository.findFacetRowsAfter(eq(0L), any())).thenAnswer(invocation -> {
+            upsert(row(2, "en"));
+            when(bookRepository.findFacetRowsByIdIn(anyCollection())).thenReturn(List.of());
+            index.onBookChanged(BookChangedEvent.delete(3L));
+            when(bookRepository.findFacetRowsByIdIn(anyCollection())).thenReturn(List.<Object[]>of(row(2, "en")));
+            return List.of(row(1, "vi"), row(2, "vi"), row(3, "en"));
+        });
+        index.rebuild();
+
+        BookFacetIndex.Result all = index.browse(Map.of(), null, 10);
+        assertEquals(List.of(1L, 2L), all.getBookIds());
+        assertEquals(1, count(all, BookFacetIndex.LANGUAGE, "vi"));
+        assertEquals(1, count(all, BookFacetIndex.LANGUAGE, "en"));
+    }
+
+    private void upsert(Object[] row) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row);
+        when(bookRepository.findFacetRowsByIdIn(anyCollection())).thenReturn(rows);
+        index.onBookChanged(BookChangedEvent.upsert((Long) row[0]));
+    }
+
+    private static int count(BookFacetIndex.Result result, String facet, String value) {
+        return result.getFacets().get(facet).stream()
+                .filter(c -> c.getValue().equals(value))
+                .mapToInt(BookFacetIndex.FacetCount::getCount)
+                .sum();
+    }
+
+    private static Object[] row(long id, String language) {
+        return new Object[]{id, null, language, BigDecimal.valueOf(80_000), 7L};
+    }
+}
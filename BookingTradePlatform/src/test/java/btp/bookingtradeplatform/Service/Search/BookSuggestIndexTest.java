@@ -0,0 +1,84 @@
+package btp.bookingtradeplatform.Service.Search;
+
+import btp.bookingtradeplatform.Model.DTO.SuggestionDTO;
+import btp.bookingtradeplatform.Model.Event.BookChangedEvent;
+import btp.bookingtradeplatform.Repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookSuggestIndexTest {
+
+    private BookRepository bookRepository;
+    private BookSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.findSearchRowsAfter(eq(0L), any())).thenReturn(rows(
+                row(1, "Harry Potter", 5), row(2, "Harry Hole", 3)));
+        index = new BookSuggestIndex(bookRepository);
+        index.rebuild();
+    }
+
+    @Test
+    void stockEventsOnlyRescoreBooksWhoseSoldCountChanged() {
+        assertEquals(List.of("Harry Potter", "Harry Hole"), titles("harry"));
+
+        // soldCount không đổi thì sách không được dựng lại (tiêu đề khác ở đây chỉ để thấy điều đó)
+        when(bookRepository.findSearchRowsByIdIn(anyCollection())).thenReturn(rows(
+                row(1, "Harry Potter Renamed", 5), row(2, "Harry Hole", 3)));
+        index.onBookChanged(BookChangedEvent.stock(List.of(1L, 2L)));
+        assertEquals(List.of("Harry Potter", "Harry Hole"), titles("harry"));
+
+        when(bookRepository.findSearchRowsByIdIn(anyCollection())).thenReturn(rows(
+                row(1, "Harry Potter", 5), row(2, "Harry Hole", 9)));
+        index.onBookChanged(BookChangedEvent.stock(List.of(1L, 2L)));
+        assertEquals(List.of("Harry Hole", "Harry Potter"), titles("harry"));
+        assertEquals(9, index.suggest("harry hole", 10).get(0).getSoldCount());
+    }
+
+    @Test
+    void reservationEventsDoNotTouchTheDatabase() {
+        index.onBookChanged(BookChangedEvent.reservation(List.of(1L, 2L)));
+
+        verify(bookRepository, never()).findSearchRowsByIdIn(anyCollection());
+        assertEquals(List.of("Harry Potter", "Harry Hole"), titles("harry"));
+    }
+
+    @Test
+    void changesArrivingDuringRebuildSurviveTheSwap() {
+        // Snapshot của rebuild đọc trước khi sách 3 được tạo và sách 2 bị xoá
+        when(bookRepository.findSearchRowsAfter(eq(0L), any())).thenAnswer(invocation -> {
+            when(bookRepository.findSearchRowsByIdIn(anyCollection())).thenReturn(rows(row(3, "Harry Dresden", 1)));
+            index.onBookChanged(BookChangedEvent.upsert(3L));
+            index.onBookChanged(BookChangedEvent.delete(2L));
+            when(bookRepository.findSearchRowsByIdIn(anyCollection())).thenReturn(rows(row(3, "Harry Dresden", 1)));
+            return rows(row(1, "Harry Potter", 5), row(2, "Harry Hole", 3));
+        });
+        index.rebuild();
+
+        assertEquals(List.of("Harry Potter", "Harry Dresden"), titles("harry"));
+    }
+
+    private List<String> titles(String prefix) {
+        return index.suggest(prefix, 10).stream()
+                .filter(s -> "TITLE".equals(s.getType()))
+                .map(SuggestionDTO::getText)
+                .toList();
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    private static Object[] row(long id, String title, int soldCount) {
+        return new Object[]{id, title, null, null, soldCount};
+    }
+}
@@ -0,0 +1,82 @@
+package btp.bookingtradeplatform.Service;
+
+import btp.bookingtradeplatform.Model.Request.CreateOrderRequest;
+import btp.bookingtradeplatform.Repository.SellerOrderJdbcRepository;
+import btp.bookingtradeplatform.Support.ServiceTestConfig;
+import btp.bookingtradeplatform.Support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bổ sung seller_order cho đơn cũ: chỉ chạy khi bật cờ, chỉ chèn phần còn thiếu nên chạy lại không đổi gì.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ServiceTestConfig.class)
+class SellerOrderBackfillTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SellerOrderJdbcRepository sellerOrderJdbcRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        TestData.Catalog catalog = TestData.Catalog.persist(entityManager, 2);
+        for (int i = 1; i <= 3; i++) {
+            orderIds.add(orderService.createOrder(new CreateOrderRequest(catalog.customer().getId(), List.of(
+                    new CreateOrderRequest.OrderItemRequest(catalog.books().get(0).getId(), i, null),
+                    new CreateOrderRequest.OrderItemRequest(catalog.books().get(1).getId(), 1, null))))
+                    .getBody().getData().getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void fillsOnlyMissingRowsAndIsIdempotent() {
+        List<Map<String, Object>> expected = sellerOrders();
+        jdbcTemplate.update("DELETE FROM seller_order WHERE order_id IN (?, ?)", orderIds.get(0), orderIds.get(2));
+
+        assertEquals(2, sellerOrderJdbcRepository.backfill());
+        assertEquals(expected, sellerOrders());
+        assertEquals(0, sellerOrderJdbcRepository.backfill());
+    }
+
+    @Test
+    void doesNotRunOnStartupUnlessEnabled() {
+        jdbcTemplate.update("DELETE FROM seller_order");
+
+        orderService.backfillSellerOrders();
+
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM seller_order", Long.class));
+    }
+
+    private List<Map<String, Object>> sellerOrders() {
+        return jdbcTemplate.queryForList("SELECT seller_id, order_id, status, item_count, subtotal " +
+                "FROM seller_order ORDER BY order_id");
+    }
+}
@@ -0,0 +1,36 @@
+package btp.bookingtradeplatform.Support;
+
+/**
+ * Đo độ trễ cho các test gắn {@code @Tag(Benchmarks.TAG)}.
+ * Các test này không chạy trong {@code mvn test} mặc định; chạy bằng {@code mvn test -Pbenchmark}.
+ */
+public final class Benchmarks {
+
+    public static final String TAG = "benchmark";
+
+    private static final int WARMUP = 5;
+    private static final int RUNS = 20;
+
+    private Benchmarks() {
+    }
+
+    /**
+     * @param prepare chuẩn bị trước mỗi lần chạy, không tính vào thời gian
+     * @param action  thao tác cần đo
+     * @return thời gian trung bình một lần {@code action}, tính bằng ms
+     */
+    public static double averageMillis(Runnable prepare, Runnable action) {
+        for (int i = 0; i < WARMUP; i++) {
+            prepare.run();
+            action.run();
+        }
+        long elapsed = 0;
+        for (int i = 0; i < RUNS; i++) {
+            prepare.run();
+            long start = System.nanoTime();
+            action.run();
+            elapsed += System.nanoTime() - start;
+        }
+        return elapsed / 1_000_000.0 / RUNS;
+    }
+}
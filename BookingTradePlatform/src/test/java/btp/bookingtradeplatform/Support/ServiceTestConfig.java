@@ -0,0 +1,32 @@
+package btp.bookingtradeplatform.Support;
+
+import btp.bookingtradeplatform.Repository.BookStockJdbcRepository;
+import btp.bookingtradeplatform.Repository.OrderItemJdbcRepository;
+import btp.bookingtradeplatform.Repository.OutboxEventJdbcRepository;
+import btp.bookingtradeplatform.Repository.SellerOrderJdbcRepository;
+import btp.bookingtradeplatform.Service.Cart.*;
+import btp.bookingtradeplatform.Service.CartService;
+import btp.bookingtradeplatform.Service.FlashSale.FlashSaleService;
+import btp.bookingtradeplatform.Service.FlashSale.InMemoryFlashSaleCounter;
+import btp.bookingtradeplatform.Service.OrderService;
+import btp.bookingtradeplatform.Service.Outbox.InMemoryOutboxBroker;
+import btp.bookingtradeplatform.Service.Outbox.OutboxRelay;
+import btp.bookingtradeplatform.Service.Outbox.OutboxService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Bộ bean dùng chung cho các test @DataJpaTest của đơn hàng, giỏ hàng và outbox.
+ * Mọi lớp test import cùng cấu hình này nên Spring dùng lại một context thay vì dựng lại cho từng lớp.
+ * Các job @Scheduled được đặt chu kỳ dài trong application-test.properties; test tự gọi các hàm *Pending().
+ */
+@TestConfiguration
+@Import({OrderService.class, OrderItemJdbcRepository.class, BookStockJdbcRepository.class,
+        SellerOrderJdbcRepository.class, OutboxEventJdbcRepository.class, OutboxService.class,
+        OutboxRelay.class, InMemoryOutboxBroker.class, FlashSaleService.class, InMemoryFlashSaleCounter.class,
+        CartService.class, InMemoryCartStore.class, CartWriteBehind.class, CartRepricer.class,
+        CartCheckoutService.class, CartSweeper.class, SimpleMeterRegistry.class, JacksonAutoConfiguration.class})
+public class ServiceTestConfig {
+}
@@ -0,0 +1,84 @@
+package btp.bookingtradeplatform.Support;
+
+import btp.bookingtradeplatform.Model.Entity.Book;
+import btp.bookingtradeplatform.Model.Entity.Customer;
+import btp.bookingtradeplatform.Model.Entity.DiscountCode;
+import btp.bookingtradeplatform.Model.Entity.Seller;
+import btp.bookingtradeplatform.Model.Enum.Role;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dữ liệu mẫu dùng chung cho các test: entity chưa lưu và một catalog dựng sẵn.
+ */
+public final class TestData {
+
+    public static final String DISCOUNT_CODE = "SALE10";
+
+    private TestData() {
+    }
+
+    /**
+     * Khách hàng, một seller, {@code bookCount} sách giá 50.000 + i (kho 1.000) và mã SALE10 giảm 10%.
+     * Được flush rồi clear để test bắt đầu với persistence context rỗng.
+     */
+    public record Catalog(Customer customer, Seller seller, List<Book> books) {
+
+        public static Catalog persist(EntityManager entityManager, int bookCount) {
+            Customer customer = TestData.customer("customer");
+            entityManager.persist(customer);
+            Seller seller = TestData.seller("seller");
+            entityManager.persist(seller);
+
+            List<Book> books = new ArrayList<>();
+            for (int i = 0; i < bookCount; i++) {
+                Book book = book("Book " + i, 50_000 + i, 1_000, seller);
+                entityManager.persist(book);
+                books.add(book);
+            }
+            entityManager.persist(discountCode());
+
+            entityManager.flush();
+            entityManager.clear();
+            return new Catalog(customer, seller, books);
+        }
+    }
+
+    public static Customer customer(String username) {
+        Customer customer = new Customer();
+        customer.setUsername(username);
+        customer.setEmail(username + "@example.com");
+        customer.setRole(Role.CUSTOMER);
+        return customer;
+    }
+
+    public static Seller seller(String username) {
+        Seller seller = new Seller();
+        seller.setUsername(username);
+        seller.setEmail(username + "@example.com");
+        seller.setStoreName("Nhà sách Phương Nam");
+        seller.setRole(Role.SELLER);
+        return seller;
+    }
+
+    public static Book book(String title, long price, int stock, Seller seller) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setPrice(BigDecimal.valueOf(price));
+        book.setStock(stock);
+        book.setSeller(seller);
+        return book;
+    }
+
+    public static DiscountCode discountCode() {
+        DiscountCode code = new DiscountCode();
+        code.setCode(DISCOUNT_CODE);
+        code.setDiscountAmount(BigDecimal.TEN);
+        code.setPercentage(true);
+        code.setActive(true);
+        return code;
+    }
+}